@@ -1,49 +1,101 @@
-import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import datafetch.DataFetch;
-
-import java.io.File;
-import java.io.IOException;
-
-/**
- * <p>Entry point for the backendTV application.</p>
- *
- * @see ObjectMapper
- * @see ArrayNode
- * @since 1.0.0
- * @author Mihai Negru
- */
-public final class Main {
-
-    private Main() {
-        // Do not let anyone instantiate this class
-    }
-
-    /**
-     * <p>Takes two {@code String} objects as two file paths.</p>
-     *
-     * <p>Opens first file for readying and fetches the data into the
-     * {@code DataFetch} class which will be processed in the main
-     * application.</p>
-     *
-     * <p>Opens second file for writing and prints all the collected
-     * information into file as a JSON object.</p>
-     * @param args files that need to be processed.
-     */
-    public static void main(final String[] args) throws IOException, IllegalArgumentException {
-        if (args.length != 2) {
-            throw new IllegalArgumentException("Bad main args list");
-        }
-
-        final ObjectMapper objectMapper = new ObjectMapper();
-
-        DataFetch inputData = objectMapper.readValue(new File(args[0]), DataFetch.class);
-
-        final ArrayNode outputData = objectMapper.createArrayNode();
-
-        ServerApp.connect().start(inputData, outputData);
-
-        objectMapper.writerWithDefaultPrettyPrinter().writeValue(new File(args[1]), outputData);
-    }
-}
+import backendtv.server.ServerApp;
+import backendtv.storage.WriteAheadLog;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import datafetch.DataStream;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>Entry point for the backendTV application.</p>
+ *
+ * @see ObjectMapper
+ * @see JsonGenerator
+ * @since 1.0.0
+ * @author Mihai Negru
+ */
+public final class Main {
+    private static final int FILES_COUNT = 2;
+    private static final String PARALLEL_SESSIONS = "--parallel-sessions";
+    private static final String WRITE_AHEAD_LOG = "--wal=";
+    private static final String SNAPSHOT = "--snapshot=";
+    private static final String MAPPED_USERS = "--mapped-users=";
+
+    private Main() {
+        // Do not let anyone instantiate this class
+    }
+
+    /**
+     * <p>Takes two {@code String} objects as two file paths.</p>
+     *
+     * <p>Opens first file for readying as a {@code DataStream}, the users
+     * and the movies are loaded first, while the actions are fetched
+     * one by one as the main application processes them.</p>
+     *
+     * <p>Opens second file for writing and streams the output of
+     * every action into file, inside one JSON array, as soon as the
+     * action finishes.</p>
+     *
+     * <p>The files can be followed by some options, {@code --parallel-sessions}
+     * runs the actions of different sessions in parallel and
+     * {@code --wal=<file>} makes the database durable through a
+     * write-ahead log and {@code --snapshot=<file>} loads the database
+     * from a binary snapshot and dumps it back at the end, while
+     * {@code --mapped-users=<directory>} stores the users off the heap,
+     * in memory-mapped files of the directory.</p>
+     * @param args files that need to be processed.
+     */
+    public static void main(final String[] args) throws IOException, IllegalArgumentException {
+        if (args.length < FILES_COUNT) {
+            throw new IllegalArgumentException("Bad main args list");
+        }
+
+        Path logFile = null;
+
+        for (int option = FILES_COUNT; option < args.length; ++option) {
+            if (args[option].equals(PARALLEL_SESSIONS)) {
+                ServerApp.connect().enableParallelSessions(
+                        Runtime.getRuntime().availableProcessors());
+            } else if (args[option].startsWith(SNAPSHOT)) {
+                ServerApp.connect().useSnapshot(
+                        Path.of(args[option].substring(SNAPSHOT.length())));
+            } else if (args[option].startsWith(MAPPED_USERS)) {
+                ServerApp.connect().useMappedUsers(
+                        Path.of(args[option].substring(MAPPED_USERS.length())));
+            } else if (args[option].startsWith(WRITE_AHEAD_LOG)) {
+                logFile = Path.of(args[option].substring(WRITE_AHEAD_LOG.length()));
+            } else {
+                throw new IllegalArgumentException("Bad main args list");
+            }
+        }
+
+        final ObjectMapper objectMapper = new ObjectMapper();
+
+        try (WriteAheadLog log = (logFile == null) ? null : WriteAheadLog.open(logFile);
+             DataStream inputData = DataStream.open(objectMapper, new File(args[0]));
+             FileChannel outputChannel = FileChannel.open(Path.of(args[1]),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING);
+             JsonGenerator outputData = objectMapper.getFactory().createGenerator(
+                     new BufferedOutputStream(Channels.newOutputStream(outputChannel)))) {
+
+            if (log != null) {
+                ServerApp.connect().useWriteAheadLog(log);
+            }
+
+            outputData.setPrettyPrinter(new DefaultPrettyPrinter());
+            outputData.writeStartArray();
+
+            ServerApp.connect().start(inputData.getData(), inputData, outputData);
+
+            outputData.writeEndArray();
+        }
+    }
+}
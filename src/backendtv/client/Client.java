@@ -2,13 +2,18 @@ package backendtv.client;
 
 import projectutils.ObserverHandler;
 import backendtv.pagestype.PageType;
+import backendtv.storage.ListCodec;
+import backendtv.storage.RowList;
+import backendtv.storage.RowSet;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * <p>Simple class maintaining the information about a server client.</p>
@@ -21,6 +26,19 @@ import java.util.Map;
  * at the same time, this class encapsulated the class information and will
  * not cause any bad synchronizations when talking about multicore.</p>
  *
+ * <p>The movie lists of the client hold the row ids of the movies in
+ * the movies collection, so checking one movie is a bitmap lookup and
+ * the names are read just when the lists are printed or stored. The
+ * subscribed genres are kept in an insertion-ordered set.</p>
+ *
+ * <p>The lists of the client are loaded from the stored user the first
+ * time they are used, so logging in does not depend on the length of
+ * the stored lists and a list that is never used is never decoded.</p>
+ *
+ * <p>The client records the changes made while it is active, the
+ * changed fields, the elements appended to its lists and the deleted
+ * movies, so just the changes are written back to the stored user.</p>
+ *
  * @since 1.0.0
  * @author Mihai Negru
  */
@@ -35,15 +53,19 @@ public final class Client implements ObserverHandler {
     private int balance;
     private int tokensCount;
     private int numFreePremiumMovies;
-    private final List<String> purchasedMovies;
-    private final List<String> watchedMovies;
-    private final List<String> likedMovies;
-    private final List<String> ratedMovies;
-    private final List<String> availableMovies;
-    private final List<String> filteredMovies;
-    private final List<String> notifications;
-    private final List<String> subscribedGenres;
+    private RowList purchasedMovies;
+    private RowList watchedMovies;
+    private RowList likedMovies;
+    private RowList ratedMovies;
+    private final RowSet availableMovies;
+    private RowList filteredMovies;
+    private List<String> notifications;
+    private Set<String> subscribedGenres;
+    private final Map<String, String> storedData;
     private final boolean isActive;
+    private final Set<String> changedFields;
+    private final Map<String, List<String>> appendedElements;
+    private final List<String> deletedMovies;
     private boolean areMoviesFiltered;
     private final Deque<PageType> pageStack;
 
@@ -52,11 +74,11 @@ public final class Client implements ObserverHandler {
      *
      * @param clientData {@code Map} object containing all the
      *                              data needed for the client.
-     * @param initAvailableMovies {@code List} of String containing
-     *                            the names of all available
-     *                            movies that a client can watch.
+     * @param initAvailableMovies shared {@code RowSet} of all the
+     *                            movies that the client can watch
+     *                            from his/her country.
      */
-    public Client(final Map<String, String> clientData, final List<String> initAvailableMovies) {
+    public Client(final Map<String, String> clientData, final RowSet initAvailableMovies) {
         loadedPage = PageType.AUTH;
 
         name = clientData.get("name");
@@ -69,52 +91,21 @@ public final class Client implements ObserverHandler {
         tokensCount = Integer.parseInt(clientData.get("tokensCount"));
         numFreePremiumMovies = Integer.parseInt(clientData.get("numFreePremiumMovies"));
 
-        final String clientBoughtMovies = clientData.get("purchasedMovies");
-        if (clientBoughtMovies.equals("null")) {
-            purchasedMovies = new ArrayList<>();
-        } else {
-            purchasedMovies = new ArrayList<>(Arrays.asList(clientBoughtMovies.split(",")));
-        }
-
-        final String clientWatchedMovies = clientData.get("watchedMovies");
-        if (clientWatchedMovies.equals("null")) {
-            watchedMovies = new ArrayList<>();
-        } else {
-            watchedMovies = new ArrayList<>(Arrays.asList(clientWatchedMovies.split(",")));
-        }
-
-        final String clientLikedMovies = clientData.get("likedMovies");
-        if (clientLikedMovies.equals("null")) {
-            likedMovies = new ArrayList<>();
-        } else {
-            likedMovies = new ArrayList<>(Arrays.asList(clientWatchedMovies.split(",")));
-        }
-
-        final String clientRatedMovies = clientData.get("ratedMovies");
-        if (clientRatedMovies.equals("null")) {
-            ratedMovies = new ArrayList<>();
-        } else {
-            ratedMovies = new ArrayList<>(Arrays.asList(clientWatchedMovies.split(",")));
-        }
-
-        availableMovies = new ArrayList<>(initAvailableMovies);
-        filteredMovies = new ArrayList<>();
-
-        final String clientNotifications = clientData.get("notifications");
-        if (clientNotifications.equals("null")) {
-            notifications = new ArrayList<>();
-        } else {
-            notifications = new ArrayList<>(Arrays.asList(clientNotifications.split(",")));
-        }
+        storedData = clientData;
+        availableMovies = initAvailableMovies;
 
-        final String clientSubscribedGenres = clientData.get("subscribedGenres");
-        if (clientSubscribedGenres.equals("null")) {
-            subscribedGenres = new ArrayList<>();
-        } else {
-            subscribedGenres = new ArrayList<>(Arrays.asList(clientNotifications.split(",")));
-        }
+        purchasedMovies = null;
+        watchedMovies = null;
+        likedMovies = null;
+        ratedMovies = null;
+        filteredMovies = null;
+        notifications = null;
+        subscribedGenres = null;
 
         isActive = true;
+        changedFields = new LinkedHashSet<>();
+        appendedElements = new LinkedHashMap<>();
+        deletedMovies = new ArrayList<>();
         areMoviesFiltered = false;
 
         pageStack = new ArrayDeque<>();
@@ -146,7 +137,11 @@ public final class Client implements ObserverHandler {
 
         subscribedGenres = null;
 
+        storedData = null;
         isActive = false;
+        changedFields = null;
+        appendedElements = null;
+        deletedMovies = null;
         areMoviesFiltered = false;
 
         pageStack = null;
@@ -188,35 +183,67 @@ public final class Client implements ObserverHandler {
         return numFreePremiumMovies;
     }
 
-    public List<String> getPurchasedMovies() {
+    public RowList getPurchasedMovies() {
+        if ((purchasedMovies == null) && isActive) {
+            purchasedMovies = loadMovies("purchasedMovies");
+        }
+
         return purchasedMovies;
     }
 
-    public List<String> getWatchedMovies() {
+    public RowList getWatchedMovies() {
+        if ((watchedMovies == null) && isActive) {
+            watchedMovies = loadMovies("watchedMovies");
+        }
+
         return watchedMovies;
     }
 
-    public List<String> getLikedMovies() {
+    public RowList getLikedMovies() {
+        if ((likedMovies == null) && isActive) {
+            likedMovies = ListCodec.isEmpty(storedData.get("likedMovies"))
+                    ? availableMovies.newList() : loadMovies("watchedMovies");
+        }
+
         return likedMovies;
     }
 
-    public List<String> getRatedMovies() {
+    public RowList getRatedMovies() {
+        if ((ratedMovies == null) && isActive) {
+            ratedMovies = ListCodec.isEmpty(storedData.get("ratedMovies"))
+                    ? availableMovies.newList() : loadMovies("watchedMovies");
+        }
+
         return ratedMovies;
     }
 
-    public List<String> getAvailableMovies() {
+    public RowSet getAvailableMovies() {
         return availableMovies;
     }
 
-    public List<String> getFilteredMovies() {
+    public RowList getFilteredMovies() {
+        if ((filteredMovies == null) && isActive) {
+            filteredMovies = availableMovies.newList();
+        }
+
         return filteredMovies;
     }
 
     public List<String> getNotifications() {
+        if ((notifications == null) && isActive) {
+            notifications = ListCodec.decode(storedData.get("notifications"));
+        }
+
         return notifications;
     }
 
-    public List<String> getSubscribedGenres() {
+    public Set<String> getSubscribedGenres() {
+        if ((subscribedGenres == null) && isActive) {
+            subscribedGenres = ListCodec.isEmpty(storedData.get("subscribedGenres"))
+                    ? new LinkedHashSet<>()
+                    : new LinkedHashSet<>(ListCodec.decode(storedData.get("subscribedGenres")));
+        }
+
         return subscribedGenres;
     }
 
@@ -228,11 +255,17 @@ public final class Client implements ObserverHandler {
      * false if the genre already existed or the genre is not valid.
      */
     public boolean subscribeToGenre(final String genre) {
-        if ((genre == null) || (subscribedGenres.contains(genre))) {
+        if (genre == null) {
+            return false;
+        }
+
+        if (!getSubscribedGenres().add(genre)) {
             return false;
         }
 
-        return subscribedGenres.add(genre);
+        appendElement("subscribedGenres", genre);
+
+        return true;
     }
 
     /**
@@ -255,6 +288,47 @@ public final class Client implements ObserverHandler {
         return isActive;
     }
 
+    /**
+     * <p>Fetches the current values of the fields changed
+     * since the client was loaded.</p>
+     *
+     * @return a {@code Map} of the changed fields.
+     */
+    public Map<String, String> getChangedFields() {
+        final Map<String, String> fields = new LinkedHashMap<>();
+
+        for (var field : changedFields) {
+            fields.put(field, switch (field) {
+                case "accountType" -> accountType;
+                case "balance" -> Integer.toString(balance);
+                case "tokensCount" -> Integer.toString(tokensCount);
+                default -> Integer.toString(numFreePremiumMovies);
+            });
+        }
+
+        return fields;
+    }
+
+    /**
+     * <p>Fetches the elements appended to the lists of the
+     * client since the client was loaded.</p>
+     *
+     * @return the appended elements, by the names of the lists.
+     */
+    public Map<String, List<String>> getAppendedElements() {
+        return appendedElements;
+    }
+
+    /**
+     * <p>Fetches the movies deleted from the database while the client was
+     * active, the movies must be removed from the stored lists.</p>
+     *
+     * @return the names of the deleted movies.
+     */
+    public List<String> getDeletedMovies() {
+        return deletedMovies;
+    }
+
     /**
      * <p>Changes the current loaded page to another page.
      * If the page type is known.</p>
@@ -298,9 +372,7 @@ public final class Client implements ObserverHandler {
      * <p>Prepares the client for a filter action.</p>
      */
     public void filterMovies() {
-        if (!filteredMovies.isEmpty()) {
-            filteredMovies.clear();
-        }
+        getFilteredMovies().clear();
 
         areMoviesFiltered = true;
     }
@@ -308,10 +380,10 @@ public final class Client implements ObserverHandler {
     /**
      * <p>Adds a movie to the filter movies list.</p>
      *
-     * @param movieName movie to add in the filter list.
+     * @param movieRow row id of the movie to add in the filter list.
      */
-    public void addFilteredMovie(final String movieName) {
-        filteredMovies.add(movieName);
+    public void addFilteredMovie(final int movieRow) {
+        getFilteredMovies().addRow(movieRow);
     }
 
     /**
@@ -344,6 +416,8 @@ public final class Client implements ObserverHandler {
 
         balance -= tokens;
         tokensCount += tokens;
+        changedFields.add("balance");
+        changedFields.add("tokensCount");
 
         return true;
     }
@@ -363,6 +437,8 @@ public final class Client implements ObserverHandler {
         tokensCount -= PREMIUM_COST;
 
         accountType = "premium";
+        changedFields.add("tokensCount");
+        changedFields.add("accountType");
 
         return true;
     }
@@ -385,7 +461,7 @@ public final class Client implements ObserverHandler {
             return false;
         }
 
-        if (purchasedMovies.contains(movieName)) {
+        if (getPurchasedMovies().contains(movieName)) {
             return false;
         }
 
@@ -396,8 +472,10 @@ public final class Client implements ObserverHandler {
 
             if (numFreePremiumMovies >= 1) {
                 --numFreePremiumMovies;
+                changedFields.add("numFreePremiumMovies");
             } else {
                 tokensCount -= 2;
+                changedFields.add("tokensCount");
             }
         } else if (accountType.equals("standard")) {
             if (tokensCount < 2) {
@@ -405,11 +483,15 @@ public final class Client implements ObserverHandler {
             }
 
             tokensCount -= 2;
+            changedFields.add("tokensCount");
         } else {
             return false;
         }
 
-        return purchasedMovies.add(movieName);
+        getPurchasedMovies().add(movieName);
+        appendElement("purchasedMovies", movieName);
+
+        return true;
     }
 
     /**
@@ -425,15 +507,15 @@ public final class Client implements ObserverHandler {
             return false;
         }
 
-        if (!purchasedMovies.contains(movieName)) {
+        if (!getPurchasedMovies().contains(movieName)) {
             return false;
         }
 
-        if (watchedMovies.contains(movieName)) {
-            return true;
+        if (getWatchedMovies().add(movieName)) {
+            appendElement("watchedMovies", movieName);
         }
 
-        return watchedMovies.add(movieName);
+        return true;
     }
 
     /**
@@ -449,15 +531,15 @@ public final class Client implements ObserverHandler {
             return false;
         }
 
-        if (!watchedMovies.contains(movieName)) {
+        if (!getWatchedMovies().contains(movieName)) {
             return false;
         }
 
-        if (likedMovies.contains(movieName)) {
-            return true;
+        if (getLikedMovies().add(movieName)) {
+            appendElement("likedMovies", movieName);
         }
 
-        return likedMovies.add(movieName);
+        return true;
     }
 
     /**
@@ -467,7 +549,7 @@ public final class Client implements ObserverHandler {
      * @return true if the movie was already rated, or false otherwise.
      */
     public boolean hasRatedMovie(final String movieName) {
-        return ratedMovies.contains(movieName);
+        return getRatedMovies().contains(movieName);
     }
 
     /**
@@ -483,22 +565,24 @@ public final class Client implements ObserverHandler {
             return false;
         }
 
-        if (!watchedMovies.contains(movieName)) {
+        if (!getWatchedMovies().contains(movieName)) {
             return false;
         }
 
-        if (ratedMovies.contains(movieName)) {
-            return true;
+        if (getRatedMovies().add(movieName)) {
+            appendElement("ratedMovies", movieName);
         }
 
-        return ratedMovies.add(movieName);
+        return true;
     }
 
     /**
      * <p>Depending on the message that triggered the method call,
-     * the client will add or delete a movie from the available list.
-     * For the deletion any instance (name) of the movie will be
-     * removed.</p>
+     * the client will be notified about a new movie or will drop
+     * any instance (name) of a deleted movie.</p>
+     *
+     * <p>The available movies are shared with the database, so they
+     * already reflect the change when the method is called.</p>
      *
      * @param message the message that called the update method.
      * @param movieName the movie that needs to be notified.
@@ -516,15 +600,13 @@ public final class Client implements ObserverHandler {
             return;
         }
 
-        if (message.equals("ADD")) {
-            addAvailableMovie(movieName);
-        } else if (message.equals("DELETE")) {
+        if (message.equals("DELETE")) {
             removeAvailableMovie(movieName);
         }
 
-        for (var genre : subscribedGenres) {
+        for (var genre : getSubscribedGenres()) {
             if (genres.contains(genre)) {
-                notifications.add(movieName + ";" + message);
+                addNotification(movieName + ";" + message);
 
                 return;
             }
@@ -532,46 +614,58 @@ public final class Client implements ObserverHandler {
     }
 
     /**
-     * <p>Adds one movie to the available list of movies that
-     * the client can access.</p>
+     * <p>Refunds the client for one movie, that was available for the
+     * client and was deleted from the database.</p>
      *
-     * @param movieName the name of the movie to add to the list.
-     */
-    public void addAvailableMovie(final String movieName) {
-        if (movieName == null) {
-            return;
-        }
-
-        availableMovies.add(movieName);
-    }
-
-    /**
-     * <p>Removes one movie from the available list of movies that
-     * the client can access.</p>
+     * <p>The row of the deleted movie is not live anymore, so the movie
+     * is already dropped from all the client's lists.</p>
      *
-     * @param movieName the name of the movie to remove from the list.
+     * @param movieName the name of the deleted movie.
      */
     public void removeAvailableMovie(final String movieName) {
         if (movieName == null) {
             return;
         }
 
-        if (!availableMovies.contains(movieName)) {
-            return;
-        }
-
-        availableMovies.remove(movieName);
-        purchasedMovies.remove(movieName);
-        watchedMovies.remove(movieName);
-        likedMovies.remove(movieName);
-        ratedMovies.remove(movieName);
-        filteredMovies.remove(movieName);
+        deletedMovies.add(movieName);
+        appendedElements.values().forEach(elements -> elements.remove(movieName));
 
         if (accountType.equals("premium")) {
             ++numFreePremiumMovies;
+            changedFields.add("numFreePremiumMovies");
         } else if (accountType.equals("standard")) {
             tokensCount += 2;
+            changedFields.add("tokensCount");
+        }
+    }
+
+    private void addNotification(final String notification) {
+        getNotifications().add(notification);
+        appendElement("notifications", notification);
+    }
+
+    private void appendElement(final String listField, final String element) {
+        appendedElements.computeIfAbsent(listField, field -> new ArrayList<>()).add(element);
+    }
+
+    /**
+     * <p>Loads a list of movies of the client from one stored list, the
+     * movies that do not exist anymore or were deleted since the client
+     * logged in are skipped.</p>
+     *
+     * @param listField the stored list to load.
+     * @return the loaded list.
+     */
+    private RowList loadMovies(final String listField) {
+        final RowList movies = availableMovies.newList();
+
+        for (var movieName : ListCodec.decode(storedData.get(listField))) {
+            if (!deletedMovies.contains(movieName)) {
+                movies.add(movieName);
+            }
         }
+
+        return movies;
     }
 
     /**
@@ -588,6 +682,6 @@ public final class Client implements ObserverHandler {
             return;
         }
 
-        notifications.add(movieName + ";" + "Recommendation");
+        addNotification(movieName + ";" + "Recommendation");
     }
 }
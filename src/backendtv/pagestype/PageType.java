@@ -16,5 +16,27 @@ public enum PageType {
     DETAILS,
     UPGRADES,
     LOGOUT,
-    UNKNOWN
+    UNKNOWN;
+
+    /**
+     * <p>Decodes the page named in the input data.</p>
+     *
+     * @param name the name of the page.
+     * @return the type of the page or UNKNOWN if the name is unknown.
+     */
+    public static PageType fromName(final String name) {
+        if (name == null) {
+            return UNKNOWN;
+        }
+
+        return switch (name) {
+            case "login" -> LOGIN;
+            case "register" -> REGISTER;
+            case "logout" -> LOGOUT;
+            case "movies" -> MOVIES;
+            case "see details" -> DETAILS;
+            case "upgrades" -> UPGRADES;
+            default -> UNKNOWN;
+        };
+    }
 }
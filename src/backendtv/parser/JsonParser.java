@@ -1,14 +1,22 @@
 package backendtv.parser;
 
 import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import backendtv.server.Session;
+import backendtv.storage.ColumnCollection;
+import backendtv.storage.RowList;
+import com.fasterxml.jackson.core.JsonGenerator;
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.stream.IntStream;
 
 /**
  * <p>Utility class to parse the output into a Json file.</p>
  *
+ * <p>The output is written straight to a {@code JsonGenerator}, so
+ * no Json tree is built for the messages of the server. The errors of
+ * the generator are rethrown as {@code UncheckedIOException}.</p>
+ *
  * @since 1.0.0
  * @author Mihai Negru
  */
@@ -18,175 +26,222 @@ public final class JsonParser {
     }
 
     /**
-     * <p>Parses the basic error message in the output node.</p>
+     * <p>Parses the basic error message in the output.</p>
      *
-     * @param output main node to parse the error message.
+     * @param output generator receiving the error message.
      */
-    public static void parseBasicError(final ObjectNode output) {
-        output.put("error", "Error");
-        output.putArray("currentMoviesList");
-        output.putNull("currentUser");
+    public static void parseBasicError(final JsonGenerator output) {
+        parseMessage(output, "Error", IntStream.empty(), null);
     }
 
     /**
-     * <p>Parses a {@code Client} object to a Json File.</p>
+     * <p>Parses one message of the server, holding an error, a list
+     * of movies and the client of one session.</p>
      *
-     * @param output main node to parse the client object.
+     * @param output generator receiving the message.
+     * @param error the error of the message or null if no error occurred.
+     * @param movieRows row ids of the movies of the message, or null
+     *                  if the message has no list of movies.
+     * @param session the session of the client or null if the
+     *                message has no client.
      */
-    public static void parseClient(final ObjectNode output) {
-        final var client = ServerApp.connect().fetchActiveClient();
-
-        if (client.getStatus()) {
-            final var outputObject = output.putObject("currentUser");
-            final var credentialsOutput = outputObject.putObject("credentials");
-
-            credentialsOutput.put("name", client.getName());
-            credentialsOutput.put("password", client.getPassword());
-            credentialsOutput.put("accountType", client.getAccountType());
-            credentialsOutput.put("country", client.getCountry());
-            credentialsOutput.put("balance", Integer.toString(client.getBalance()));
-
-            outputObject.put("tokensCount", client.getTokensCount());
-            outputObject.put("numFreePremiumMovies", client.getNumFreePremiumMovies());
+    public static void parseMessage(final JsonGenerator output, final String error,
+                                    final IntStream movieRows, final Session session) {
+        try {
+            output.writeStartObject();
 
-            var tempArray = outputObject.putArray("purchasedMovies");
-            for (String movieName : client.getPurchasedMovies()) {
-                parseMovie(tempArray, "name", movieName);
-            }
-
-            tempArray = outputObject.putArray("watchedMovies");
-            for (String movieName : client.getWatchedMovies()) {
-                parseMovie(tempArray, "name", movieName);
+            if (error == null) {
+                output.writeNullField("error");
+            } else {
+                output.writeStringField("error", error);
             }
 
-            tempArray = outputObject.putArray("likedMovies");
-            for (String movieName : client.getLikedMovies()) {
-                parseMovie(tempArray, "name", movieName);
+            output.writeFieldName("currentMoviesList");
+            if (movieRows == null) {
+                output.writeNull();
+            } else {
+                parseMovies(output, movieRows);
             }
 
-            tempArray = outputObject.putArray("ratedMovies");
-            for (String movieName : client.getRatedMovies()) {
-                parseMovie(tempArray, "name", movieName);
+            if (session == null) {
+                output.writeNullField("currentUser");
+            } else {
+                parseClient(output, session);
             }
 
-            tempArray = outputObject.putArray("notifications");
-            for (String notification : client.getNotifications()) {
-                parseNotification(tempArray, notification);
-            }
-        } else {
-            output.putNull("currentUser");
+            output.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
     /**
-     * <p>Parses all the available movies of one client.</p>
+     * <p>Fetches the row ids of all the available movies of one client.</p>
      *
      * <p>The movies parsed does not depend on the
      * current page loaded for the client.</p>
      *
-     * @param output main array node to parse movies.
+     * @param session the session of the client.
+     * @return a stream of row ids.
      */
-    public static void parseAvailableMovies(final ArrayNode output) {
-        final var client = ServerApp.connect().fetchActiveClient();
-
-        for (String movieName : client.getAvailableMovies()) {
-            parseMovie(output, "name", movieName);
-        }
+    public static IntStream availableMovies(final Session session) {
+        return session.getClient().getAvailableMovies().rows();
     }
 
     /**
-     * <p>Parses a movie to a Json File.</p>
+     * <p>Fetches the row id of one movie, to parse just that movie.</p>
      *
      * <p>The movie is loaded from the server's database
      * and does not depend on the current active client.</p>
      *
-     * @param output main array node to parse the movie.
      * @param movieKey movie key to find in the database.
      * @param movieValue movie value to find in the database.
+     * @return a stream of the row id of the movie.
      */
-    public static void parseMovie(final ArrayNode output, final String movieKey,
-                                  final String movieValue) {
-        final var movie = ServerApp.connect()
-                .fetchDatabase()
-                .collection("movies")
-                .findOne(movieKey, movieValue);
-
-        parseMovie(output, movie);
+    public static IntStream movie(final String movieKey, final String movieValue) {
+        return IntStream.of(movies().rowOf(movieKey, movieValue));
+    }
+
+    /**
+     * <p>Parses the {@code Client} object of one session to a Json File.</p>
+     *
+     * @param output generator receiving the client, inside an object.
+     * @param session the session of the client.
+     * @throws IOException if the generator fails to write.
+     */
+    private static void parseClient(final JsonGenerator output, final Session session)
+            throws IOException {
+        final var client = session.getClient();
+
+        if (!client.getStatus()) {
+            output.writeNullField("currentUser");
+            return;
+        }
+
+        output.writeObjectFieldStart("currentUser");
+        output.writeObjectFieldStart("credentials");
+
+        output.writeStringField("name", client.getName());
+        output.writeStringField("password", client.getPassword());
+        output.writeStringField("accountType", client.getAccountType());
+        output.writeStringField("country", client.getCountry());
+        output.writeStringField("balance", Integer.toString(client.getBalance()));
+        output.writeEndObject();
+
+        output.writeNumberField("tokensCount", client.getTokensCount());
+        output.writeNumberField("numFreePremiumMovies", client.getNumFreePremiumMovies());
+
+        parseMovies(output, "purchasedMovies", client.getPurchasedMovies());
+        parseMovies(output, "watchedMovies", client.getWatchedMovies());
+        parseMovies(output, "likedMovies", client.getLikedMovies());
+        parseMovies(output, "ratedMovies", client.getRatedMovies());
+
+        output.writeArrayFieldStart("notifications");
+        for (String notification : client.getNotifications()) {
+            parseNotification(output, notification);
+        }
+
+        output.writeEndArray();
+        output.writeEndObject();
+    }
+
+    /**
+     * <p>Parses the movies of one list of a client, the names
+     * of the movies are read from their rows.</p>
+     *
+     * @param output generator receiving the movies, inside an object.
+     * @param fieldName the name of the list field.
+     * @param movieList the list of movies to parse.
+     * @throws IOException if the generator fails to write.
+     */
+    private static void parseMovies(final JsonGenerator output, final String fieldName,
+                                    final RowList movieList) throws IOException {
+        output.writeFieldName(fieldName);
+        parseMovies(output, movieList.rows());
+    }
+
+    private static void parseMovies(final JsonGenerator output, final IntStream movieRows)
+            throws IOException {
+        output.writeStartArray();
+
+        final var rows = movieRows.iterator();
+        while (rows.hasNext()) {
+            parseMovie(output, rows.nextInt());
+        }
+
+        output.writeEndArray();
     }
 
     /**
      * <p>Parses a movie to a Json File.</p>
      *
-     * <p>The movies is parsed depending on the {@code Map}
-     * object specified at input.</p>
+     * <p>The movie is read directly from the typed columns
+     * of the movies collection.</p>
      *
-     * @param output main array node to parse the movie.
-     * @param movie data {@code Map} of the movie.
+     * @param output generator receiving the movie, inside an array.
+     * @param movieRow row id of the movie in the movies collection.
+     * @throws IOException if the generator fails to write.
      */
-    public static void parseMovie(final ArrayNode output, final Map<String, String> movie) {
-        if (movie != null) {
-            final var outputObject = output.addObject();
-
-            outputObject.put("name", movie.get("name"));
-            outputObject.put("year", movie.get("year"));
-            outputObject.put("duration", Integer.parseInt(movie.get("duration")));
-
-            var tempArray = outputObject.putArray("genres");
-            if (!movie.get("genres").equals("null")) {
-                for (String genre : movie.get("genres").split(",")) {
-                    tempArray.add(genre);
-                }
-            }
+    private static void parseMovie(final JsonGenerator output, final int movieRow)
+            throws IOException {
+        final var movies = movies();
 
-            tempArray = outputObject.putArray("actors");
-            if (!movie.get("actors").equals("null")) {
-                for (String actor : movie.get("actors").split(",")) {
-                    tempArray.add(actor);
-                }
-            }
+        if (!movies.isLive(movieRow)) {
+            return;
+        }
 
-            tempArray = outputObject.putArray("countriesBanned");
-            if (!movie.get("countriesBanned").equals("null")) {
-                for (String actor : movie.get("countriesBanned").split(",")) {
-                    tempArray.add(actor);
-                }
-            }
+        output.writeStartObject();
 
-            outputObject.put("numLikes", Integer.parseInt(movie.get("numLikes")));
+        output.writeStringField("name", movies.getText(movieRow, "name"));
+        output.writeStringField("year", Integer.toString(movies.getInt(movieRow, "year")));
+        output.writeNumberField("duration", movies.getInt(movieRow, "duration"));
 
-            double rating = 0;
-            for (String rate : movie.get("rating").split(",")) {
-                rating += Double.parseDouble(rate.split(":")[1]);
-            }
+        parseSymbols(output, "genres", movies, movies.getSymbols(movieRow, "genres"));
+        parseSymbols(output, "actors", movies, movies.getSymbols(movieRow, "actors"));
+        parseSymbols(output, "countriesBanned", movies,
+                movies.getSymbols(movieRow, "countriesBanned"));
 
-            final int numRatings = Integer.parseInt(movie.get("numRatings"));
+        output.writeNumberField("numLikes", movies.getInt(movieRow, "numLikes"));
+        output.writeNumberField("rating", movies.getAverageScore(movieRow, "rating"));
+        output.writeNumberField("numRatings", movies.getScoreCount(movieRow, "rating"));
 
-            if (numRatings != 0) {
-                rating /= numRatings;
-            } else {
-                rating = 0;
-            }
+        output.writeEndObject();
+    }
+
+    private static void parseSymbols(final JsonGenerator output, final String fieldName,
+                                     final ColumnCollection movies, final int[] symbolIds)
+            throws IOException {
+        output.writeArrayFieldStart(fieldName);
 
-            outputObject.put("rating", rating);
-            outputObject.put("numRatings", numRatings);
+        for (int symbolId : symbolIds) {
+            output.writeString(movies.symbol(symbolId));
         }
+
+        output.writeEndArray();
     }
 
     /**
      * <p>Parses a notification from the client's notifications queue.</p>
      *
-     * @param output the main node to parse the notification.
+     * @param output generator receiving the notification, inside an array.
      * @param notification the {@code String} representation for the notifications,
      *                     contains the message then separated by the comma contains
      *                     the actual notification.
+     * @throws IOException if the generator fails to write.
      */
-    public static void parseNotification(final ArrayNode output, final String notification) {
+    private static void parseNotification(final JsonGenerator output,
+                                          final String notification) throws IOException {
         final var notificationInfo = notification.split(";");
 
         if (notificationInfo.length == 2) {
-            final var outputObject = output.addObject();
-            outputObject.put("movieName", notificationInfo[0]);
-            outputObject.put("message", notificationInfo[1]);
+            output.writeStartObject();
+            output.writeStringField("movieName", notificationInfo[0]);
+            output.writeStringField("message", notificationInfo[1]);
+            output.writeEndObject();
         }
     }
+
+    private static ColumnCollection movies() {
+        return ServerApp.connect().fetchDatabase().columnCollection("movies");
+    }
 }
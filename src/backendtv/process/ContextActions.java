@@ -3,10 +3,19 @@ package backendtv.process;
 import backendtv.process.actionfactory.ActionFactory;
 import backendtv.process.actiontype.ActionCommand;
 import backendtv.process.actiontype.clientactions.RecommendationAction;
+import backendtv.server.ServerApp;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import datafetch.ActionFetch;
+import projectutils.MailboxExecutor;
 
-import java.util.LinkedList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -19,14 +28,32 @@ import java.util.List;
  *
  * <p>Commands(Actions) are executes sequentially maintaining
  * the order from the input data so no strategy design pattern
- * is needed.</p>
+ * is needed. Every command is created just before its execution,
+ * so the actions can be consumed while they are still read.</p>
+ *
+ * <p>In the streaming mode every command writes its output straight
+ * to a {@code JsonGenerator}, so no Json tree is built for the output.
+ * Otherwise the output of a command is buffered as Json tokens and is
+ * then appended to the main array node.</p>
+ *
+ * <p>The commands can also be dispatched to the mailboxes of their
+ * sessions, the commands of one session run in order, while the
+ * sessions run in parallel. The commands take no lock of their own, the
+ * order of the commands of one session comes just from its mailbox, while
+ * the storage shared by the sessions is thread-safe by itself. Every
+ * dispatched command writes its output to its own token buffer, which is
+ * copied to the generator when the command finishes.</p>
  *
  * @since 1.0.0
  * @author Mihai Negru
  */
 public final class ContextActions {
-    private final List<ActionCommand> readyQueue;
+    private static final ObjectMapper TREE_MAPPER = new ObjectMapper();
+
+    private final ActionFactory factory;
+    private final Iterator<ActionFetch> pendingActions;
     private final ArrayNode output;
+    private final JsonGenerator generator;
 
     /**
      * <p>Creates all the commands from the input</p>
@@ -37,43 +64,141 @@ public final class ContextActions {
      *                   to the Json File.
      */
     public ContextActions(final List<ActionFetch> initInput, final ArrayNode initOutput) {
-        final ActionFactory generator = new ActionFactory();
+        this(initInput.iterator(), initOutput, null);
+    }
+
+    /**
+     * <p>Creates the commands from a stream of actions, the output
+     * of the commands is streamed to a generator.</p>
+     *
+     * @param initInput {@code Iterator} of actions data, read one
+     *                  at a time when the next command is executed.
+     * @param initGenerator generator opened inside the main Json
+     *                      array, receiving the output of every command.
+     */
+    public ContextActions(final Iterator<ActionFetch> initInput,
+                          final JsonGenerator initGenerator) {
+        this(initInput, null, initGenerator);
+    }
 
-        readyQueue = new LinkedList<>();
-        initInput.forEach(actionInfo -> readyQueue.add(generator.createAction(actionInfo)));
+    private ContextActions(final Iterator<ActionFetch> initInput, final ArrayNode initOutput,
+                           final JsonGenerator initGenerator) {
+        factory = new ActionFactory();
+        pendingActions = initInput;
 
         output = initOutput;
+        generator = initGenerator;
     }
 
     /**
      * <p>Checks if server can process the next action.</p>
      *
      * @return true if next action exists and is ready for execution,
-     * or false if no more actions are left in the ready queue.
+     * or false if no more actions are left in the input.
      */
     public boolean hasNext() {
-        return !readyQueue.isEmpty();
+        return pendingActions.hasNext();
     }
 
     /**
-     * <p>Executes the next command(action) from
-     * the ready queue.</p>
+     * <p>Creates and executes the next command(action)
+     * from the input.</p>
      *
      * <p>User should first check if there exists an
-     * action left in the ready queue.</p>
+     * action left in the input.</p>
+     *
+     * <p>The command is executed for the session named by the
+     * action, or for the default session if no session is named.</p>
      *
      * <p>Works as an iterator.</p>
      */
     public void next() {
-        readyQueue.remove(0).execute(output);
+        final var actionInfo = pendingActions.next();
+        final var session = ServerApp.connect().session(actionInfo.getSession());
+
+        run(factory.createAction(actionInfo), session);
+    }
+
+    /**
+     * <p>Creates the next command(action) from the input and posts
+     * it in the mailbox of its session.</p>
+     *
+     * <p>Every dispatched action receives its own command, because the
+     * pooled commands cannot be shared between the workers. The output
+     * of the command is appended to the main output when the command
+     * finishes, so the output of one session keeps the input order while
+     * the outputs of different sessions are interleaved.</p>
+     *
+     * @param executor the executor running the mailboxes of the sessions.
+     */
+    public void dispatchNext(final MailboxExecutor executor) {
+        final var actionInfo = pendingActions.next();
+        final var session = ServerApp.connect().session(actionInfo.getSession());
+        final var command = factory.createFreshAction(actionInfo);
+
+        executor.dispatch(session.getId(), () -> publish(buffer(command, session)));
     }
 
     /**
      * <p>Generate and execute an action that
-     * gives to the current premium client
+     * gives to the premium client of one session
      * a movie for recommendation.</p>
+     *
+     * @param session the session of the premium client.
+     */
+    public void premiumBenefits(final Session session) {
+        run(new RecommendationAction(), session);
+    }
+
+    /**
+     * <p>Executes one command, writing its output straight to the
+     * generator if the output is streamed.</p>
+     *
+     * @param command the command to execute.
+     * @param session the session that sent the action.
+     */
+    private void run(final ActionCommand command, final Session session) {
+        if (output == null) {
+            command.execute(session, generator);
+        } else {
+            publish(buffer(command, session));
+        }
+    }
+
+    /**
+     * <p>Executes one command, writing its output to a new token buffer.</p>
+     *
+     * @param command the command to execute.
+     * @param session the session that sent the action.
+     * @return the buffer holding the output of the command.
      */
-    public void premiumBenefits() {
-        new RecommendationAction().execute(output);
+    private static TokenBuffer buffer(final ActionCommand command, final Session session) {
+        final var commandOutput = new TokenBuffer(TREE_MAPPER, false);
+        command.execute(session, commandOutput);
+
+        return commandOutput;
+    }
+
+    /**
+     * <p>Copies the buffered output of one command to the generator,
+     * or appends it to the main array node if the output is not
+     * streamed.</p>
+     *
+     * @param commandOutput the buffer holding the output of the command.
+     */
+    private synchronized void publish(final TokenBuffer commandOutput) {
+        try {
+            if (output == null) {
+                commandOutput.serialize(generator);
+                return;
+            }
+
+            final var tokens = commandOutput.asParser(TREE_MAPPER);
+            while (tokens.nextToken() != null) {
+                output.add(tokens.<JsonNode>readValueAsTree());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
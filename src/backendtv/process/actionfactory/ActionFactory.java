@@ -15,6 +15,7 @@ import backendtv.process.actiontype.moviesactions.SubscribeAction;
 import backendtv.process.actiontype.moviesactions.WatchAction;
 import backendtv.process.actiontype.pagesactions.ChangePageAction;
 import backendtv.process.actiontype.pagesactions.ChangePageBackAction;
+import datafetch.ActionCode;
 import datafetch.ActionFetch;
 
 /**
@@ -24,40 +25,85 @@ import datafetch.ActionFetch;
  * creation of the command. Server does not care what command is
  * executing so the creation of the command is hidden from the server.</p>
  *
- * <p>The commands are created based on their type from the input data.</p>
+ * <p>The commands are created based on the {@code ActionCode} decoded
+ * from the input data, the pooled commands are kept in a table indexed
+ * by the ordinal of the code, so dispatching an action is just one
+ * indexed access.</p>
+ *
+ * <p>Every type of command is created once, when the first action of that
+ * type is met, and the instance is pooled and rebound to the following
+ * actions of the same type. The server executes one command at a time,
+ * so a pooled command is never shared by two running actions.</p>
  *
  * @since 1.0.0
  * @author Mihai Negru
  */
 public final class ActionFactory {
+    private final ActionCommand[] pool;
+
+    /**
+     * <p>Creates the factory with an empty pool of commands.</p>
+     */
+    public ActionFactory() {
+        pool = new ActionCommand[ActionCode.values().length];
+    }
 
     /**
      * <p>Creates an command(action) from the specified
      * flags from the input data.</p>
      *
      * @param actionInfo information about one action to be created.
-     * @return a new {@code ActionCommand} object to be executed, or
-     * null if the flags are unknown.
+     * @return the pooled {@code ActionCommand} object bound to the
+     * action, or null if the flags are unknown.
      */
     public ActionCommand createAction(final ActionFetch actionInfo) {
-        return switch (actionInfo.getType().toLowerCase()) {
-            case "on page" -> switch (actionInfo.getFeature()) {
-                case "register" -> new RegisterAction(actionInfo);
-                case "login" -> new LoginAction(actionInfo);
-                case "search" -> new SearchAction(actionInfo);
-                case "filter" -> new FilterAction(actionInfo);
-                case "buy tokens" -> new BuyTokensAction(actionInfo);
-                case "buy premium account" -> new BuyPremiumAction();
-                case "purchase" -> new PurchaseAction(actionInfo);
-                case "watch" -> new WatchAction(actionInfo);
-                case "like" -> new LikeAction(actionInfo);
-                case "rate" -> new RateAction(actionInfo);
-                case "subscribe" -> new SubscribeAction(actionInfo);
-                default -> null;
-            };
-            case "back" -> new ChangePageBackAction();
-            case "database" -> new AdminDatabaseAction(actionInfo);
-            case "change page" -> new ChangePageAction(actionInfo);
+        final int code = actionInfo.getActionCode().ordinal();
+        final var command = pool[code];
+
+        if (command != null) {
+            return command.bind(actionInfo);
+        }
+
+        pool[code] = newCommand(actionInfo);
+
+        return pool[code];
+    }
+
+    /**
+     * <p>Creates a new command(action), outside the pool, that
+     * can be executed by another thread.</p>
+     *
+     * @param actionInfo information about one action to be created.
+     * @return a new {@code ActionCommand} object bound to the action,
+     * or null if the flags are unknown.
+     */
+    public ActionCommand createFreshAction(final ActionFetch actionInfo) {
+        return newCommand(actionInfo);
+    }
+
+    /**
+     * <p>Creates the command of one code for its first action.</p>
+     *
+     * @param actionInfo information about one action to be created.
+     * @return a new {@code ActionCommand} object or null if
+     * the code is unknown.
+     */
+    private static ActionCommand newCommand(final ActionFetch actionInfo) {
+        return switch (actionInfo.getActionCode()) {
+            case REGISTER -> new RegisterAction(actionInfo);
+            case LOGIN -> new LoginAction(actionInfo);
+            case SEARCH -> new SearchAction(actionInfo);
+            case FILTER -> new FilterAction(actionInfo);
+            case BUY_TOKENS -> new BuyTokensAction(actionInfo);
+            case BUY_PREMIUM_ACCOUNT -> new BuyPremiumAction();
+            case PURCHASE -> new PurchaseAction(actionInfo);
+            case WATCH -> new WatchAction(actionInfo);
+            case LIKE -> new LikeAction(actionInfo);
+            case RATE -> new RateAction(actionInfo);
+            case SUBSCRIBE -> new SubscribeAction(actionInfo);
+            case BACK -> new ChangePageBackAction();
+            case ADD_MOVIE, DELETE_MOVIE, UNKNOWN_DATABASE -> new AdminDatabaseAction(actionInfo);
+            case CHANGE_PAGE -> new ChangePageAction(actionInfo);
             default -> null;
         };
     }
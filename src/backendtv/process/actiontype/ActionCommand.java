@@ -1,6 +1,8 @@
 package backendtv.process.actiontype;
 
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
+import datafetch.ActionFetch;
 
 /**
  * <p>Interface to support the command design pattern.</p>
@@ -8,6 +10,9 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
  * <p>Interface binds all the specific commands for the
  * server processor.</p>
  *
+ * <p>A command can be rebound to a new action after it was executed,
+ * so the processor keeps one pooled instance of every command.</p>
+ *
  * @since 1.0.0
  * @author Mihai Negru
  */
@@ -17,8 +22,21 @@ public interface ActionCommand {
     /**
      * <p>Executes the command started by the server processor.</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
+     */
+    void execute(Session session, JsonGenerator output);
+
+    /**
+     * <p>Rebinds the command to the information of a new action,
+     * the commands that do not depend on the input data are
+     * returned unchanged.</p>
+     *
+     * @param actionInfo information about one action to be created.
+     * @return the bound command.
      */
-    void execute(ArrayNode output);
+    default ActionCommand bind(final ActionFetch actionInfo) {
+        return this;
+    }
 }
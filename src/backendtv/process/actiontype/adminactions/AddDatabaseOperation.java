@@ -4,8 +4,6 @@ import backendtv.server.ServerApp;
 import datafetch.ActionFetch;
 import datafetch.MovieFetch;
 
-import java.util.Map;
-
 /**
  * <p>The Strategy in order to add a movie for the database
  * and to notify the server about this change. The strategy also
@@ -16,20 +14,32 @@ import java.util.Map;
  * @author Mihai Negru
  */
 public final class AddDatabaseOperation implements DatabaseStrategy {
-    private final MovieFetch addedMovieInfo;
+    private MovieFetch addedMovieInfo;
 
     /**
-     * <p>Extracts the information about the movie to add in the database.</p>
+     * <p>Creates the operation and binds it to its first action.</p>
+     *
      * @param initOperationInfo information about the operation process.
      */
     public AddDatabaseOperation(final ActionFetch initOperationInfo) {
+        bind(initOperationInfo);
+    }
+
+    /**
+     * <p>Extracts the information about the movie to add in the database.</p>
+     * @param initOperationInfo information about the operation process.
+     * @return the bound operation.
+     */
+    @Override
+    public DatabaseStrategy bind(final ActionFetch initOperationInfo) {
         addedMovieInfo = initOperationInfo.getAddedMovie();
+
+        return this;
     }
 
     /**
-     * <p>Generates a {@code Map} representation for the
-     * movie and inserts it in the database and notifies
-     * the server about the change.</p>
+     * <p>Inserts the movie in the typed columns of the
+     * database and notifies the server about the change.</p>
      *
      * @return true if the movie is not already in the database
      * or false otherwise.
@@ -37,28 +47,26 @@ public final class AddDatabaseOperation implements DatabaseStrategy {
     @Override
     public boolean apply() {
         final var server = ServerApp.connect();
-        final var moviesCollection = server.fetchDatabase().collection("movies");
+        final var moviesCollection = server.fetchDatabase().columnCollection("movies");
 
         final String movieName = addedMovieInfo.getName();
         final var movieGenres = addedMovieInfo.getGenres();
         final var bannedCountries = addedMovieInfo.getCountriesBanned();
 
-        if (moviesCollection.findOne("name", movieName) != null) {
+        final int movieRow = moviesCollection.newRow()
+                .setText("name", movieName)
+                .setInt("year", addedMovieInfo.getYear())
+                .setInt("duration", addedMovieInfo.getDuration())
+                .setList("genres", movieGenres)
+                .setList("actors", addedMovieInfo.getActors())
+                .setList("countriesBanned", bannedCountries)
+                .setInt("numLikes", 0)
+                .insert();
+
+        if (movieRow < 0) {
             return false;
         }
 
-        moviesCollection.insert(Map.of(
-                "name", movieName,
-                "year", Integer.toString(addedMovieInfo.getYear()),
-                "duration", Integer.toString(addedMovieInfo.getDuration()),
-                "genres", String.join(",", movieGenres),
-                "actors", String.join(",", addedMovieInfo.getActors()),
-                "countriesBanned", String.join(",", bannedCountries),
-                "numLikes", "0",
-                "rating", "Unknown:0",
-                "numRatings", "0"
-        ));
-
         server.updateNotifications("ADD", movieName, movieGenres, bannedCountries);
 
         return true;
@@ -2,7 +2,8 @@ package backendtv.process.actiontype.adminactions;
 
 import backendtv.parser.JsonParser;
 import backendtv.process.actiontype.ActionCommand;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
 import datafetch.ActionFetch;
 
 /**
@@ -13,20 +14,50 @@ import datafetch.ActionFetch;
  * @author Mihai Negru
  */
 public final class AdminDatabaseAction implements ActionCommand {
-    private final DatabaseStrategy operation;
+    private DatabaseStrategy operation;
+    private AddDatabaseOperation addOperation;
+    private DeleteDatabaseOperation deleteOperation;
+
+    /**
+     * <p>Creates the command and binds it to its first action.</p>
+     *
+     * @param actionInfo information in order to execute the strategy.
+     */
+    public AdminDatabaseAction(final ActionFetch actionInfo) {
+        bind(actionInfo);
+    }
 
     /**
      * <p>Selects one strategy for database operations
      * that just an admin can execute.</p>
      *
+     * <p>Every strategy is created once and rebound
+     * to the following actions.</p>
+     *
      * @param actionInfo information in order to execute the strategy.
+     * @return the bound command.
      */
-    public AdminDatabaseAction(final ActionFetch actionInfo) {
-        operation = switch (actionInfo.getFeature().toLowerCase()) {
-            case "add" -> new AddDatabaseOperation(actionInfo);
-            case "delete" -> new DeleteDatabaseOperation(actionInfo);
+    @Override
+    public ActionCommand bind(final ActionFetch actionInfo) {
+        operation = switch (actionInfo.getActionCode()) {
+            case ADD_MOVIE -> {
+                if (addOperation == null) {
+                    addOperation = new AddDatabaseOperation(actionInfo);
+                }
+
+                yield addOperation.bind(actionInfo);
+            }
+            case DELETE_MOVIE -> {
+                if (deleteOperation == null) {
+                    deleteOperation = new DeleteDatabaseOperation(actionInfo);
+                }
+
+                yield deleteOperation.bind(actionInfo);
+            }
             default -> null;
         };
+
+        return this;
     }
 
     /**
@@ -34,19 +65,17 @@ public final class AdminDatabaseAction implements ActionCommand {
      * the error message in the logger file if
      * something wrong happened.</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
      */
     @Override
-    public void execute(final ArrayNode output) {
-        final var parserObject = output.objectNode();
+    public void execute(final Session session, final JsonGenerator output) {
         if (operation == null) {
-            JsonParser.parseBasicError(parserObject);
-            output.add(parserObject);
+            JsonParser.parseBasicError(output);
         } else {
             if (!operation.apply()) {
-                JsonParser.parseBasicError(parserObject);
-                output.add(parserObject);
+                JsonParser.parseBasicError(output);
             }
         }
     }
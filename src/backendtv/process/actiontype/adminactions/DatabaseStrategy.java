@@ -1,5 +1,7 @@
 package backendtv.process.actiontype.adminactions;
 
+import datafetch.ActionFetch;
+
 /**
  * <p>The basic interface that characterizes a strategy
  * for the database. The strategies are allowed just by
@@ -17,4 +19,15 @@ public interface DatabaseStrategy {
      * false otherwise.
      */
     boolean apply();
+
+    /**
+     * <p>Rebinds the operation to the information of a new action,
+     * so one instance can be reused for many actions.</p>
+     *
+     * @param operationInfo information about the operation process.
+     * @return the bound operation.
+     */
+    default DatabaseStrategy bind(final ActionFetch operationInfo) {
+        return this;
+    }
 }
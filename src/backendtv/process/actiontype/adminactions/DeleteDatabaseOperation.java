@@ -15,14 +15,27 @@ import java.util.List;
  * @author Mihai Negru
  */
 public final class DeleteDatabaseOperation implements DatabaseStrategy {
-    private final String deletedMovieName;
+    private String deletedMovieName;
 
     /**
-     * <p>Extracts the information about the movie to remove from the database.</p>
+     * <p>Creates the operation and binds it to its first action.</p>
+     *
      * @param initOperationInfo information about the operation process.
      */
     public DeleteDatabaseOperation(final ActionFetch initOperationInfo) {
+        bind(initOperationInfo);
+    }
+
+    /**
+     * <p>Extracts the information about the movie to remove from the database.</p>
+     * @param initOperationInfo information about the operation process.
+     * @return the bound operation.
+     */
+    @Override
+    public DatabaseStrategy bind(final ActionFetch initOperationInfo) {
         deletedMovieName = initOperationInfo.getDeletedMovie();
+
+        return this;
     }
 
     /**
@@ -36,21 +49,21 @@ public final class DeleteDatabaseOperation implements DatabaseStrategy {
     @Override
     public boolean apply() {
         final var server = ServerApp.connect();
-        final var moviesCollection = server.fetchDatabase().collection("movies");
+        final var moviesCollection = server.fetchDatabase().columnCollection("movies");
 
-        final var movieInfo = moviesCollection.findOne("name", deletedMovieName);
+        final int movieRow = moviesCollection.rowOf("name", deletedMovieName);
 
-        if (movieInfo == null) {
+        if (movieRow < 0) {
             return false;
         }
 
+        final List<String> movieGenres = moviesCollection.getList(movieRow, "genres");
+        final List<String> bannedCountries = moviesCollection.getList(movieRow,
+                "countriesBanned");
+
         moviesCollection.delete("name", deletedMovieName);
 
-        server.updateNotifications("DELETE",
-                deletedMovieName,
-                List.of(movieInfo.get("genres").split(",")),
-                List.of(movieInfo.get("countriesBanned").split(","))
-        );
+        server.updateNotifications("DELETE", deletedMovieName, movieGenres, bannedCountries);
 
         return true;
     }
@@ -3,8 +3,8 @@ package backendtv.process.actiontype.clientactions;
 import backendtv.pagestype.PageType;
 import backendtv.parser.JsonParser;
 import backendtv.process.actiontype.ActionCommand;
-import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 /**
  * <p>Specific Command class to buy a premium account for the
@@ -19,21 +19,19 @@ public final class BuyPremiumAction implements ActionCommand {
      * <p>Buys a premium account for the current active client if
      * possible or parses an error message to the Json File.</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
      */
     @Override
-    public void execute(final ArrayNode output) {
-        final var client = ServerApp.connect().fetchActiveClient();
+    public void execute(final Session session, final JsonGenerator output) {
+        final var client = session.getClient();
 
-        final var parserObject = output.objectNode();
         if (client.getLoadedPage() != PageType.UPGRADES) {
-            JsonParser.parseBasicError(parserObject);
-            output.add(parserObject);
+            JsonParser.parseBasicError(output);
         } else {
             if (!client.buyPremiumAccount()) {
-                JsonParser.parseBasicError(parserObject);
-                output.add(parserObject);
+                JsonParser.parseBasicError(output);
             }
         }
     }
@@ -3,8 +3,8 @@ package backendtv.process.actiontype.clientactions;
 import backendtv.pagestype.PageType;
 import backendtv.parser.JsonParser;
 import backendtv.process.actiontype.ActionCommand;
-import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
 import datafetch.ActionFetch;
 
 /**
@@ -15,36 +15,47 @@ import datafetch.ActionFetch;
  * @author Mihai Negru
  */
 public final class BuyTokensAction implements ActionCommand {
-    private final int tokensToBuy;
+    private int tokensToBuy;
 
     /**
-     * <p>Extract the number of tokens to buy.</p>
+     * <p>Creates the command and binds it to its first action.</p>
      *
      * @param actionInfo information about one action to be created.
      */
     public BuyTokensAction(final ActionFetch actionInfo) {
+        bind(actionInfo);
+    }
+
+    /**
+     * <p>Extract the number of tokens to buy.</p>
+     *
+     * @param actionInfo information about one action to be created.
+     * @return the bound command.
+     */
+    @Override
+    public ActionCommand bind(final ActionFetch actionInfo) {
         tokensToBuy = actionInfo.getCount();
+
+        return this;
     }
 
     /**
      * <p>Buys tokens for the current active client if
      * possible or parses an error message to the Json File.</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
      */
     @Override
-    public void execute(final ArrayNode output) {
-        final var client = ServerApp.connect().fetchActiveClient();
+    public void execute(final Session session, final JsonGenerator output) {
+        final var client = session.getClient();
 
-        final var parserObject = output.objectNode();
         if (client.getLoadedPage() != PageType.UPGRADES) {
-            JsonParser.parseBasicError(parserObject);
-            output.add(parserObject);
+            JsonParser.parseBasicError(output);
         } else {
             if (!client.buyTokens(tokensToBuy)) {
-                JsonParser.parseBasicError(parserObject);
-                output.add(parserObject);
+                JsonParser.parseBasicError(output);
             }
         }
     }
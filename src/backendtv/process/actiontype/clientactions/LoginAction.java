@@ -4,9 +4,12 @@ import backendtv.parser.JsonParser;
 import backendtv.pagestype.PageType;
 import backendtv.process.actiontype.ActionCommand;
 import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
 import datafetch.ActionFetch;
 
+import java.util.stream.IntStream;
+
 /**
  * <p>Specific Command class to login a guest as an
  * active client on the running server.</p>
@@ -15,42 +18,53 @@ import datafetch.ActionFetch;
  * @author Mihai Negru
  */
 public final class LoginAction implements ActionCommand {
-    private final String loginName;
-    private final String loginPassword;
+    private String loginName;
+    private String loginPassword;
 
     /**
-     * <p>Extract client's credentials for login.</p>
+     * <p>Creates the command and binds it to its first action.</p>
      *
      * @param actionInfo information about one action to be created.
      */
     public LoginAction(final ActionFetch actionInfo) {
+        bind(actionInfo);
+    }
+
+    /**
+     * <p>Extract client's credentials for login.</p>
+     *
+     * @param actionInfo information about one action to be created.
+     * @return the bound command.
+     */
+    @Override
+    public ActionCommand bind(final ActionFetch actionInfo) {
         loginName = actionInfo.getCredentials().getName();
         loginPassword = actionInfo.getCredentials().getPassword();
+
+        return this;
     }
 
     /**
      * <p>Login a guest to an active client if
      * possible or parses an error message to the Json File.</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
      */
     @Override
-    public void execute(final ArrayNode output) {
+    public void execute(final Session session, final JsonGenerator output) {
         final var server = ServerApp.connect();
 
-        final var parserObject = output.addObject();
-        if (server.fetchActiveClient().getLoadedPage() != PageType.LOGIN) {
-            JsonParser.parseBasicError(parserObject);
+        if (session.getClient().getLoadedPage() != PageType.LOGIN) {
+            JsonParser.parseBasicError(output);
         } else {
-            if (!server.loginClient(loginName, loginPassword)) {
-                server.fetchActiveClient().changePage(PageType.NO_AUTH);
+            if (!server.loginClient(session, loginName, loginPassword)) {
+                session.getClient().changePage(PageType.NO_AUTH);
 
-                JsonParser.parseBasicError(parserObject);
+                JsonParser.parseBasicError(output);
             } else {
-                parserObject.putNull("error");
-                parserObject.putArray("currentMoviesList");
-                JsonParser.parseClient(parserObject);
+                JsonParser.parseMessage(output, null, IntStream.empty(), session);
             }
         }
     }
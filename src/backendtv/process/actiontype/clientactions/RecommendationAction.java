@@ -3,7 +3,8 @@ package backendtv.process.actiontype.clientactions;
 import backendtv.parser.JsonParser;
 import backendtv.process.actiontype.ActionCommand;
 import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
 import projectutils.Pair;
 
 import java.util.ArrayList;
@@ -33,20 +34,21 @@ public final class RecommendationAction implements ActionCommand {
      * watched movies, watched genres and number of likes that an
      * available film has.</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
      */
     @Override
-    public void execute(final ArrayNode output) {
+    public void execute(final Session session, final JsonGenerator output) {
         final var server = ServerApp.connect();
-        final var movies = server.fetchDatabase().collection("movies");
-        final var client = server.fetchActiveClient();
+        final var movies = server.fetchDatabase().columnCollection("movies");
+        final var client = session.getClient();
 
         final List<Pair<String, Integer>> genrePairs = new ArrayList<>();
-        for (var movieName : client.getLikedMovies()) {
-            final var movieInfo = movies.findOne("name", movieName);
+        for (int movieRow : client.getLikedMovies().rows().toArray()) {
+            for (int genreId : movies.getSymbols(movieRow, "genres")) {
+                final String genre = movies.symbol(genreId);
 
-            for (var genre : movieInfo.get("genres").split(",")) {
                 boolean pairDoesNotExist = true;
                 for (var genrePair : genrePairs) {
                     if (genrePair.containsKey(genre)) {
@@ -64,15 +66,14 @@ public final class RecommendationAction implements ActionCommand {
         generator.addGenres(genrePairs);
 
         final List<Pair<String, Integer>> movieLikePairs = new ArrayList<>();
-        final Map<String, String> movieGenrePairs = new HashMap<>();
-        for (var movieName : client.getAvailableMovies()) {
-            final var movieInfo = movies.findOne("name", movieName);
+        final Map<String, List<String>> movieGenrePairs = new HashMap<>();
+        client.getAvailableMovies().rows().forEach(movieRow -> {
+            final String movieName = movies.getText(movieRow, "name");
 
-            movieLikePairs.add(new Pair<>(movieName,
-                    Integer.parseInt(movieInfo.get("numLikes"))));
+            movieLikePairs.add(new Pair<>(movieName, movies.getInt(movieRow, "numLikes")));
 
-            movieGenrePairs.put(movieName, movieInfo.get("genres"));
-        }
+            movieGenrePairs.put(movieName, movies.getList(movieRow, "genres"));
+        });
 
         generator.addMovies(movieLikePairs)
                 .addMoviesGenres(movieGenrePairs)
@@ -80,9 +81,6 @@ public final class RecommendationAction implements ActionCommand {
 
         client.acceptRecommendation(generator.build().generateRecommendation());
 
-        final var parserObject = output.addObject();
-        parserObject.putNull("error");
-        parserObject.putNull("currentMoviesList");
-        JsonParser.parseClient(parserObject);
+        JsonParser.parseMessage(output, null, null, session);
     }
 }
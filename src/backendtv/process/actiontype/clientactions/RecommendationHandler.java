@@ -5,8 +5,10 @@ import projectutils.Pair;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -21,8 +23,8 @@ import java.util.stream.Collectors;
 public final class RecommendationHandler {
     private final List<Pair<String, Integer>> allowedGenres;
     private final List<Pair<String, Integer>> movieLikes;
-    private final Map<String, String> movieGenres;
-    private final List<String> watchedMovies;
+    private final Map<String, List<String>> movieGenres;
+    private final Set<String> watchedMovies;
 
     /**
      * <p>The Class can be instanced just by the builder class.</p>
@@ -42,8 +44,8 @@ public final class RecommendationHandler {
     public static final class RecommendationHandlerBuilder {
         private List<Pair<String, Integer>> allowedGenres;
         private List<Pair<String, Integer>> movieLikes;
-        private Map<String, String> movieGenres;
-        private List<String> watchedMovies;
+        private Map<String, List<String>> movieGenres;
+        private Set<String> watchedMovies;
 
         public RecommendationHandlerBuilder() {
             // The constructor is left intentionally in order
@@ -91,7 +93,8 @@ public final class RecommendationHandler {
          * @param genres the genres for every movie.
          * @return builder instance.
          */
-        public RecommendationHandlerBuilder addMoviesGenres(final Map<String, String> genres) {
+        public RecommendationHandlerBuilder addMoviesGenres(
+                final Map<String, List<String>> genres) {
             movieGenres = new HashMap<>(genres);
             return this;
         }
@@ -102,8 +105,9 @@ public final class RecommendationHandler {
          * @param movies all watched movies list.
          * @return builder instance.
          */
-        public RecommendationHandlerBuilder addWatchedMovies(final List<String> movies) {
-            watchedMovies = new ArrayList<>(movies);
+        public RecommendationHandlerBuilder addWatchedMovies(final Iterable<String> movies) {
+            watchedMovies = new HashSet<>();
+            movies.forEach(watchedMovies::add);
             return this;
         }
 
@@ -4,9 +4,12 @@ import backendtv.parser.JsonParser;
 import backendtv.pagestype.PageType;
 import backendtv.process.actiontype.ActionCommand;
 import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
 import datafetch.ActionFetch;
 
+import java.util.stream.IntStream;
+
 /**
  * <p>Specific Command class to register a guest as a new
  * active client on the running server.</p>
@@ -15,50 +18,60 @@ import datafetch.ActionFetch;
  * @author Mihai Negru
  */
 public final class RegisterAction implements ActionCommand {
-    private final String registerName;
-    private final String registerPassword;
-    private final String registerAccountType;
-    private final String registerCountry;
-    private final String registerBalance;
+    private String registerName;
+    private String registerPassword;
+    private String registerAccountType;
+    private String registerCountry;
+    private String registerBalance;
 
     /**
-     * <p>Extract client's credentials for register.</p>
+     * <p>Creates the command and binds it to its first action.</p>
      *
      * @param actionInfo information about one action to be created.
      */
     public RegisterAction(final ActionFetch actionInfo) {
+        bind(actionInfo);
+    }
+
+    /**
+     * <p>Extract client's credentials for register.</p>
+     *
+     * @param actionInfo information about one action to be created.
+     * @return the bound command.
+     */
+    @Override
+    public ActionCommand bind(final ActionFetch actionInfo) {
         registerName = actionInfo.getCredentials().getName();
         registerPassword = actionInfo.getCredentials().getPassword();
         registerAccountType = actionInfo.getCredentials().getAccountType();
         registerCountry = actionInfo.getCredentials().getCountry();
         registerBalance = Integer.toString(actionInfo.getCredentials().getBalance());
+
+        return this;
     }
 
     /**
      * <p>Register a guest to a new active client if
      * possible or parses an error message to the Json File.</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
      */
     @Override
-    public void execute(final ArrayNode output) {
+    public void execute(final Session session, final JsonGenerator output) {
         final var server = ServerApp.connect();
 
-        if (server.fetchActiveClient().getLoadedPage() == PageType.REGISTER) {
-            final var parserObject = output.addObject();
-
-            if (!server.registerClient(registerName, registerPassword,
+        if (session.getClient().getLoadedPage() == PageType.REGISTER) {
+            if (!server.registerClient(session, registerName, registerPassword,
                     registerAccountType, registerCountry,
                     registerBalance)) {
 
-                server.fetchActiveClient().changePage(PageType.NO_AUTH);
+                session.getClient().changePage(PageType.NO_AUTH);
 
-                JsonParser.parseBasicError(parserObject);
+                JsonParser.parseBasicError(output);
             } else {
-                parserObject.putNull("error");
-                parserObject.putArray("currentMoviesList");
-                JsonParser.parseClient(parserObject);
+                JsonParser.parseMessage(output, null, IntStream.empty(), session);
             }
         }
     }
@@ -4,15 +4,14 @@ import backendtv.pagestype.PageType;
 import backendtv.parser.JsonParser;
 import backendtv.process.actiontype.ActionCommand;
 import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
 import datafetch.ActionFetch;
+import projectutils.IntArrays;
 
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
-import java.util.function.Predicate;
 
 /**
  * <p>Specific Command class to filter some movies for the
@@ -22,179 +21,120 @@ import java.util.function.Predicate;
  * @author Mihai Negru
  */
 public final class FilterAction implements ActionCommand {
-    private final Comparator<Map<String, String>> sortComp;
-    private final Predicate<Map<String, String>> filterPred;
-    private final List<String> selectedActors;
-    private final List<String> selectedGenres;
+    private int durationOrder;
+    private int ratingOrder;
+    private List<String> selectedActors;
+    private List<String> selectedGenres;
 
     /**
-     * <p>Extract flags for the filtering and build the
-     * lambda function for filtering and sorting.</p>
+     * <p>Creates the command and binds it to its first action.</p>
      *
      * @param actionInfo information about one action to be created.
      */
     public FilterAction(final ActionFetch actionInfo) {
+        bind(actionInfo);
+    }
+
+    /**
+     * <p>Extract flags for the filtering and sorting.</p>
+     *
+     * @param actionInfo information about one action to be created.
+     * @return the bound command.
+     */
+    @Override
+    public ActionCommand bind(final ActionFetch actionInfo) {
         final var filters = actionInfo.getFilters();
         if (filters.getSort() != null) {
-            final var rating = filters.getSort().getRating();
-            final var duration = filters.getSort().getDuration();
-
-            final Function<Map<String, String>, Double> rateCalculator = m -> {
-                double ratingValue = 0;
-                for (String rate : m.get("rating").split(",")) {
-                    ratingValue += Double.parseDouble(rate.split(":")[1]);
-                }
-
-                final int numRatings = Integer.parseInt(m.get("numRatings"));
-                if (numRatings != 0) {
-                    ratingValue /= numRatings;
-                } else {
-                    ratingValue = 0;
-                }
-
-                return ratingValue;
-            };
-
-            Comparator<Map<String, String>> durationComp;
-            Comparator<Map<String, String>> ratingComp;
-
-            if (duration != null) {
-                if (duration.equals("increasing")) {
-                    durationComp = Comparator.comparingInt(m ->
-                            Integer.parseInt(m.get("duration")));
-                } else {
-                    durationComp = (m1, m2) -> Integer.compare(Integer.parseInt(m2.get("duration")),
-                            Integer.parseInt(m1.get("duration")));
-                }
-            } else {
-                durationComp = null;
-            }
-
-            if (rating != null) {
-                if (rating.equals("increasing")) {
-                    ratingComp = Comparator.comparingDouble(rateCalculator::apply);
-                } else {
-                    ratingComp = (m1, m2) -> Double.compare(rateCalculator.apply(m2),
-                            rateCalculator.apply(m1));
-                }
-            } else {
-                ratingComp = null;
-            }
-
-            if ((durationComp == null) && (ratingComp == null)) {
-                sortComp = null;
-            } else if (ratingComp == null) {
-                sortComp = durationComp;
-            } else if (durationComp == null) {
-                sortComp = ratingComp;
-            } else {
-                sortComp = durationComp.thenComparing(ratingComp);
-            }
+            durationOrder = sortOrder(filters.getSort().getDuration());
+            ratingOrder = sortOrder(filters.getSort().getRating());
         } else {
-            sortComp = null;
+            durationOrder = 0;
+            ratingOrder = 0;
         }
 
         if (filters.getContains() != null) {
             selectedActors = filters.getContains().getActors();
             selectedGenres = filters.getContains().getGenre();
-
-            if ((selectedActors == null) && (selectedGenres == null)) {
-                filterPred = null;
-            } else if (selectedActors == null) {
-                filterPred = m -> {
-                    final String genres = m.get("genres");
-                    for (String genre : selectedGenres) {
-                        if (!genres.contains(genre)) {
-                            return false;
-                        }
-                    }
-
-                    return true;
-                };
-            } else if (selectedGenres == null) {
-                filterPred = m -> {
-                    final String actors = m.get("actors");
-                    for (String actor : selectedActors) {
-                        if (!actors.contains(actor)) {
-                            return false;
-                        }
-                    }
-
-                    return true;
-                };
-            } else {
-                filterPred = m -> {
-                    final String actors = m.get("actors");
-                    for (String actor : selectedActors) {
-                        if (!actors.contains(actor)) {
-                            return false;
-                        }
-                    }
-
-                    final String genres = m.get("genres");
-                    for (String genre : selectedGenres) {
-                        if (!genres.contains(genre)) {
-                            return false;
-                        }
-                    }
-
-                    return true;
-                };
-            }
         } else {
-            filterPred = null;
             selectedActors = null;
             selectedGenres = null;
         }
+
+        return this;
+    }
+
+    /**
+     * <p>Converts a sorting flag into a sorting order.</p>
+     *
+     * @param order the sorting flag from the input data.
+     * @return 1 for increasing order, -1 for decreasing
+     * order and 0 if no sorting is requested.
+     */
+    private static int sortOrder(final String order) {
+        if (order == null) {
+            return 0;
+        }
+
+        if (order.equals("increasing")) {
+            return 1;
+        }
+
+        return -1;
     }
 
     /**
      * <p>Filters some movies for the current active client
      * possible or parses an error message to the Json File.</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
      */
     @Override
-    public void execute(final ArrayNode output) {
+    public void execute(final Session session, final JsonGenerator output) {
         final var server = ServerApp.connect();
-        final var client = server.fetchActiveClient();
+        final var client = session.getClient();
 
-        final var parserObject = output.addObject();
-        if (server.fetchActiveClient().getLoadedPage() != PageType.MOVIES) {
-            JsonParser.parseBasicError(parserObject);
+        if (session.getClient().getLoadedPage() != PageType.MOVIES) {
+            JsonParser.parseBasicError(output);
         } else {
-            final List<Map<String, String>> movies = new ArrayList<>();
-            for (String movieName : client.getAvailableMovies()) {
-                movies.add(server.fetchDatabase().collection("movies").findOne("name", movieName));
-            }
+            final var movies = server.fetchDatabase().columnCollection("movies");
 
-            List<Map<String, String>> filteredMovies;
-            if (filterPred == null) {
-                filteredMovies = movies;
-            } else {
-                filteredMovies = movies.stream()
-                        .filter(filterPred)
-                        .toList();
+            final BitSet selectedMovies = client.getAvailableMovies().copyRows();
+
+            if (selectedActors != null) {
+                movies.retainContaining(selectedMovies, "actors", selectedActors);
             }
 
-            if (sortComp != null) {
-                filteredMovies = filteredMovies.stream()
-                        .sorted(sortComp)
-                        .toList();
+            if (selectedGenres != null) {
+                movies.retainContaining(selectedMovies, "genres", selectedGenres);
             }
 
-            parserObject.putNull("error");
+            final int[] filteredMovies = selectedMovies.stream().toArray();
+
+            if ((durationOrder != 0) || (ratingOrder != 0)) {
+                IntArrays.sort(filteredMovies, (firstRow, secondRow) -> {
+                    final int durationComp = durationOrder * Integer.compare(
+                            movies.getInt(firstRow, "duration"),
+                            movies.getInt(secondRow, "duration"));
+
+                    if (durationComp != 0) {
+                        return durationComp;
+                    }
+
+                    return ratingOrder * Double.compare(
+                            movies.getAverageScore(firstRow, "rating"),
+                            movies.getAverageScore(secondRow, "rating"));
+                });
+            }
 
             client.filterMovies();
 
-            final var currentMovies = parserObject.putArray("currentMoviesList");
-            for (var movie : filteredMovies) {
-                JsonParser.parseMovie(currentMovies, movie);
-                client.addFilteredMovie(movie.get("name"));
+            for (int movieRow : filteredMovies) {
+                client.addFilteredMovie(movieRow);
             }
 
-            JsonParser.parseClient(parserObject);
+            JsonParser.parseMessage(output, null, Arrays.stream(filteredMovies), session);
         }
     }
 }
@@ -4,7 +4,8 @@ import backendtv.pagestype.PageType;
 import backendtv.parser.JsonParser;
 import backendtv.process.actiontype.ActionCommand;
 import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
 import datafetch.ActionFetch;
 
 /**
@@ -18,50 +19,54 @@ public final class LikeAction implements ActionCommand {
     private String movieToLike;
 
     /**
-     * <p>Extract the movie to like.</p>
+     * <p>Creates the command and binds it to its first action.</p>
      *
      * @param actionInfo information about one action to be created.
      */
     public LikeAction(final ActionFetch actionInfo) {
+        bind(actionInfo);
+    }
+
+    /**
+     * <p>Extract the movie to like.</p>
+     *
+     * @param actionInfo information about one action to be created.
+     * @return the bound command.
+     */
+    @Override
+    public ActionCommand bind(final ActionFetch actionInfo) {
         movieToLike = actionInfo.getMovie();
+
+        return this;
     }
 
     /**
      * <p>Like movie regarding the current active client if
      * possible or parses an error message to the Json File.</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
      */
     @Override
-    public void execute(final ArrayNode output) {
+    public void execute(final Session session, final JsonGenerator output) {
         final var server = ServerApp.connect();
-        final var client = server.fetchActiveClient();
+        final var client = session.getClient();
 
-        final var parserObject = output.addObject();
         if (client.getLoadedPage() != PageType.DETAILS) {
-            JsonParser.parseBasicError(parserObject);
+            JsonParser.parseBasicError(output);
         } else {
             movieToLike = client.getSeeMovie();
 
             if (!client.likeMovie(movieToLike)) {
-                JsonParser.parseBasicError(parserObject);
+                JsonParser.parseBasicError(output);
             } else {
-                server.fetchDatabase()
-                        .collection("movies")
-                        .modifyField(
-                                "name", movieToLike,
-                                "numLikes", Integer.toString(
-                                        Integer.parseInt(server.fetchDatabase()
-                                                .collection("movies")
-                                                .findOne("name", movieToLike)
-                                                .get("numLikes")) + 1)
-                        );
+                final var movies = server.fetchDatabase().columnCollection("movies");
+
+                movies.addToInt(movies.rowOf("name", movieToLike), "numLikes", 1);
 
-                parserObject.putNull("error");
-                JsonParser.parseMovie(parserObject.putArray("currentMoviesList"),
-                        "name", movieToLike);
-                JsonParser.parseClient(parserObject);
+                JsonParser.parseMessage(output, null,
+                        JsonParser.movie("name", movieToLike), session);
             }
         }
     }
@@ -4,7 +4,8 @@ import backendtv.pagestype.PageType;
 import backendtv.parser.JsonParser;
 import backendtv.process.actiontype.ActionCommand;
 import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
 import datafetch.ActionFetch;
 
 /**
@@ -15,43 +16,51 @@ import datafetch.ActionFetch;
  * @author Mihai Negru
  */
 public final class SearchAction implements ActionCommand {
-    private final String startString;
+    private String startString;
+
+    /**
+     * <p>Creates the command and binds it to its first action.</p>
+     *
+     * @param actionInfo information about one action to be created.
+     */
+    public SearchAction(final ActionFetch actionInfo) {
+        bind(actionInfo);
+    }
 
     /**
      * <p>Extract starting of the movie to search for in the
      * database.</p>
      *
      * @param actionInfo information about one action to be created.
+     * @return the bound command.
      */
-    public SearchAction(final ActionFetch actionInfo) {
+    @Override
+    public ActionCommand bind(final ActionFetch actionInfo) {
         startString = actionInfo.getStartsWith();
+
+        return this;
     }
 
     /**
      * <p>Search a movie for the current active client
      * possible or parses an error message to the Json File.</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
      */
     @Override
-    public void execute(final ArrayNode output) {
+    public void execute(final Session session, final JsonGenerator output) {
         final var server = ServerApp.connect();
 
-        final var parserObject = output.addObject();
-        if (server.fetchActiveClient().getLoadedPage() != PageType.MOVIES) {
-            JsonParser.parseBasicError(parserObject);
+        if (session.getClient().getLoadedPage() != PageType.MOVIES) {
+            JsonParser.parseBasicError(output);
         } else {
-            parserObject.putNull("error");
-
-            final var movies = parserObject.putArray("currentMoviesList");
-            for (String movieName : server.fetchActiveClient().getAvailableMovies()) {
-                if (movieName.startsWith(startString)) {
-                    JsonParser.parseMovie(movies, "name", movieName);
-                }
-            }
+            final var foundMovies = server.fetchDatabase().columnCollection("movies")
+                    .getRowsStartingWith("name", startString,
+                            session.getClient().getAvailableMovies()::containsRow);
 
-            JsonParser.parseClient(parserObject);
+            JsonParser.parseMessage(output, null, foundMovies.stream(), session);
         }
     }
 }
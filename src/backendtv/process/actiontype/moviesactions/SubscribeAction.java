@@ -4,11 +4,10 @@ import backendtv.pagestype.PageType;
 import backendtv.parser.JsonParser;
 import backendtv.process.actiontype.ActionCommand;
 import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
 import datafetch.ActionFetch;
 
-import java.util.Arrays;
-
 /**
  * <p>Specific Command class to subscribe to a specific
  * genre of a film for the active client.</p>
@@ -17,15 +16,28 @@ import java.util.Arrays;
  * @author Mihai Negru
  */
 public final class SubscribeAction implements ActionCommand {
-    private final String selectedGenre;
+    private String selectedGenre;
 
     /**
-     * <p>Extracts the specific genre in order to subscribe.</p>
+     * <p>Creates the command and binds it to its first action.</p>
      *
      * @param actionInfo information about one action to be created.
      */
     public SubscribeAction(final ActionFetch actionInfo) {
+        bind(actionInfo);
+    }
+
+    /**
+     * <p>Extracts the specific genre in order to subscribe.</p>
+     *
+     * @param actionInfo information about one action to be created.
+     * @return the bound command.
+     */
+    @Override
+    public ActionCommand bind(final ActionFetch actionInfo) {
         selectedGenre = actionInfo.getSubscribedGenre();
+
+        return this;
     }
 
     /**
@@ -34,34 +46,39 @@ public final class SubscribeAction implements ActionCommand {
      * to the log file otherwise the basic error message
      * is generated.</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
      */
     @Override
-    public void execute(final ArrayNode output) {
+    public void execute(final Session session, final JsonGenerator output) {
         final var server = ServerApp.connect();
-        final var client = server.fetchActiveClient();
+        final var client = session.getClient();
         final var database = server.fetchDatabase();
 
-        final var parserObject = output.objectNode();
         if (client.getLoadedPage() != PageType.DETAILS) {
-            JsonParser.parseBasicError(parserObject);
-            output.add(parserObject);
+            JsonParser.parseBasicError(output);
         } else {
-            final var movieInfo = database.collection("movies")
-                    .findOne("name", client.getSeeMovie());
+            final var movies = database.columnCollection("movies");
+            final int movieRow = movies.rowOf("name", client.getSeeMovie());
 
-            if (movieInfo != null) {
-                final var movieGenres = Arrays.asList(movieInfo.get("genres").split(","));
+            if (movies.isLive(movieRow)) {
+                final int genreId = movies.symbolId(selectedGenre);
+                boolean hasGenre = false;
+
+                for (int movieGenre : movies.getSymbols(movieRow, "genres")) {
+                    if (movieGenre == genreId) {
+                        hasGenre = true;
+                        break;
+                    }
+                }
 
-                if (movieGenres.contains(selectedGenre)) {
+                if (hasGenre) {
                     if (!client.subscribeToGenre(selectedGenre)) {
-                        JsonParser.parseBasicError(parserObject);
-                        output.add(parserObject);
+                        JsonParser.parseBasicError(output);
                     }
                 } else {
-                    JsonParser.parseBasicError(parserObject);
-                    output.add(parserObject);
+                    JsonParser.parseBasicError(output);
                 }
             }
         }
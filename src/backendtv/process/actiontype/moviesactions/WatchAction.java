@@ -3,8 +3,8 @@ package backendtv.process.actiontype.moviesactions;
 import backendtv.pagestype.PageType;
 import backendtv.parser.JsonParser;
 import backendtv.process.actiontype.ActionCommand;
-import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
 import datafetch.ActionFetch;
 
 /**
@@ -18,38 +18,49 @@ public final class WatchAction implements ActionCommand {
     private String movieToWatch;
 
     /**
-     * <p>Extracts the movie to watch.</p>
+     * <p>Creates the command and binds it to its first action.</p>
      *
      * @param actionInfo information about one action to be created.
      */
     public WatchAction(final ActionFetch actionInfo) {
+        bind(actionInfo);
+    }
+
+    /**
+     * <p>Extracts the movie to watch.</p>
+     *
+     * @param actionInfo information about one action to be created.
+     * @return the bound command.
+     */
+    @Override
+    public ActionCommand bind(final ActionFetch actionInfo) {
         movieToWatch = actionInfo.getMovie();
+
+        return this;
     }
 
     /**
      * <p>Watch movie regarding the current active client if
      * possible or parses an error message to the Json File.</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
      */
     @Override
-    public void execute(final ArrayNode output) {
-        final var client = ServerApp.connect().fetchActiveClient();
+    public void execute(final Session session, final JsonGenerator output) {
+        final var client = session.getClient();
 
-        final var parserObject = output.addObject();
         if (client.getLoadedPage() != PageType.DETAILS) {
-            JsonParser.parseBasicError(parserObject);
+            JsonParser.parseBasicError(output);
         } else {
             movieToWatch = client.getSeeMovie();
 
             if (!client.watchMovie(movieToWatch)) {
-                JsonParser.parseBasicError(parserObject);
+                JsonParser.parseBasicError(output);
             } else {
-                parserObject.putNull("error");
-                JsonParser.parseMovie(parserObject.putArray("currentMoviesList"),
-                        "name", movieToWatch);
-                JsonParser.parseClient(parserObject);
+                JsonParser.parseMessage(output, null,
+                        JsonParser.movie("name", movieToWatch), session);
             }
         }
     }
@@ -4,9 +4,12 @@ import backendtv.pagestype.PageType;
 import backendtv.parser.JsonParser;
 import backendtv.process.actiontype.ActionCommand;
 import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
 import datafetch.ActionFetch;
 
+import java.util.stream.IntStream;
+
 /**
  * <p>Specific Command class to change the page of an
  * active client on the running server.</p>
@@ -15,50 +18,54 @@ import datafetch.ActionFetch;
  * @author Mihai Negru
  */
 public final class ChangePageAction implements ActionCommand {
-    private final PageType changePage;
-    private final String selectedMovie;
+    private PageType changePage;
+    private String selectedMovie;
 
     /**
-     * <p>Extract page type from the input data.</p>
+     * <p>Creates the command and binds it to its first action.</p>
      *
      * @param actionInfo information about one action to be created.
      */
     public ChangePageAction(final ActionFetch actionInfo) {
-        changePage = switch (actionInfo.getPage()) {
-            case "login" -> PageType.LOGIN;
-            case "register" -> PageType.REGISTER;
-            case "logout" -> PageType.LOGOUT;
-            case "movies" -> PageType.MOVIES;
-            case "see details" -> PageType.DETAILS;
-            case "upgrades" -> PageType.UPGRADES;
-            default -> PageType.UNKNOWN;
-        };
+        bind(actionInfo);
+    }
+
+    /**
+     * <p>Extract page type from the input data.</p>
+     *
+     * @param actionInfo information about one action to be created.
+     * @return the bound command.
+     */
+    @Override
+    public ActionCommand bind(final ActionFetch actionInfo) {
+        changePage = actionInfo.getPageType();
 
-        if (actionInfo.getPage().equals("see details")) {
+        if (changePage == PageType.DETAILS) {
             selectedMovie = actionInfo.getMovie();
         } else {
             selectedMovie = null;
         }
+
+        return this;
     }
 
     /**
      * <p>Change the page of an active client on the running server if
      * possible or parses an error message to the Json File.</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
      */
     @Override
-    public void execute(final ArrayNode output) {
+    public void execute(final Session session, final JsonGenerator output) {
         final var server = ServerApp.connect();
-        final var client = server.fetchActiveClient();
+        final var client = session.getClient();
         final var clientPage = client.getLoadedPage();
 
-        final var parserObject = output.objectNode();
         if ((changePage == PageType.LOGIN) || (changePage == PageType.REGISTER)) {
             if (clientPage != PageType.NO_AUTH) {
-                JsonParser.parseBasicError(parserObject);
-                output.add(parserObject);
+                JsonParser.parseBasicError(output);
             } else {
                 client.changePage(changePage);
             }
@@ -66,72 +73,51 @@ public final class ChangePageAction implements ActionCommand {
             if ((clientPage != PageType.AUTH) && (clientPage != PageType.UPGRADES)
                 && (clientPage != PageType.DETAILS) && (clientPage != PageType.MOVIES)) {
 
-                parserObject.put("error", "Error");
-                parserObject.putArray("currentMoviesList");
-                JsonParser.parseClient(parserObject);
-                output.add(parserObject);
+                JsonParser.parseMessage(output, "Error", IntStream.empty(), session);
             } else {
-                server.logoutClient();
+                server.logoutClient(session);
             }
         } else if (changePage == PageType.MOVIES) {
 
             if ((clientPage != PageType.AUTH) && (clientPage != PageType.DETAILS)
                 && (clientPage != PageType.UPGRADES) && (clientPage != PageType.MOVIES)) {
 
-                parserObject.put("error", "Error");
-                parserObject.putArray("currentMoviesList");
+                JsonParser.parseMessage(output, "Error", IntStream.empty(), session);
             } else {
                 client.setMoviesAsNonFiltered();
                 client.changePage(changePage);
-                parserObject.putNull("error");
-                JsonParser.parseAvailableMovies(parserObject.putArray("currentMoviesList"));
+                JsonParser.parseMessage(output, null, JsonParser.availableMovies(session),
+                        session);
             }
-
-            JsonParser.parseClient(parserObject);
-            output.add(parserObject);
         } else if (changePage == PageType.DETAILS) {
             if ((selectedMovie == null) || (clientPage != PageType.MOVIES)) {
-                parserObject.put("error", "Error");
-                parserObject.putArray("currentMoviesList");
-                parserObject.putNull("currentUser");
-                output.add(parserObject);
+                JsonParser.parseBasicError(output);
             } else {
                 if (client.areMoviesFiltered()) {
                     if (client.getFilteredMovies().contains(selectedMovie)) {
-                        parserObject.putNull("error");
-                        JsonParser.parseMovie(parserObject.putArray("currentMoviesList"),
-                                "name", selectedMovie);
-                        JsonParser.parseClient(parserObject);
-                        output.add(parserObject);
+                        JsonParser.parseMessage(output, null,
+                                JsonParser.movie("name", selectedMovie), session);
 
                         client.changePage(changePage);
                         client.setSeeMovie(selectedMovie);
                     } else {
-                        JsonParser.parseBasicError(parserObject);
-                        output.add(parserObject);
+                        JsonParser.parseBasicError(output);
                     }
                 } else {
                     if (client.getAvailableMovies().contains(selectedMovie)) {
-                        parserObject.putNull("error");
-                        JsonParser.parseMovie(parserObject.putArray("currentMoviesList"),
-                                "name", selectedMovie);
-                        JsonParser.parseClient(parserObject);
-                        output.add(parserObject);
+                        JsonParser.parseMessage(output, null,
+                                JsonParser.movie("name", selectedMovie), session);
 
                         client.changePage(changePage);
                         client.setSeeMovie(selectedMovie);
                     } else {
-                        JsonParser.parseBasicError(parserObject);
-                        output.add(parserObject);
+                        JsonParser.parseBasicError(output);
                     }
                 }
             }
         } else if (changePage == PageType.UPGRADES) {
             if ((clientPage != PageType.AUTH) && (clientPage != PageType.DETAILS)) {
-                parserObject.put("error", "Error");
-                parserObject.putArray("currentMoviesList");
-                JsonParser.parseClient(parserObject);
-                output.add(parserObject);
+                JsonParser.parseMessage(output, "Error", IntStream.empty(), session);
             } else {
                 client.changePage(changePage);
             }
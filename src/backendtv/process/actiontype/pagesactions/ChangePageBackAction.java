@@ -3,8 +3,8 @@ package backendtv.process.actiontype.pagesactions;
 import backendtv.pagestype.PageType;
 import backendtv.parser.JsonParser;
 import backendtv.process.actiontype.ActionCommand;
-import backendtv.server.ServerApp;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import backendtv.server.Session;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 /**
  * <p>Specific Command class to change the page pf an
@@ -23,40 +23,30 @@ public final class ChangePageBackAction implements ActionCommand {
      * wrong or the process went successfully just
      * for some cases (Movies and See Details).</p>
      *
-     * @param output main array node to parse the output data
-     *               to a Json File.
+     * @param session the session that sent the action.
+     * @param output generator receiving the output data
+     *               of the Json File.
      */
     @Override
-    public void execute(final ArrayNode output) {
-        final var server = ServerApp.connect();
-        final var client = server.fetchActiveClient();
+    public void execute(final Session session, final JsonGenerator output) {
+        final var client = session.getClient();
 
-        final var parserObject = output.objectNode();
         if (client.getStatus()) {
             if (!client.changePageBack()) {
-                JsonParser.parseBasicError(parserObject);
-                output.add(parserObject);
+                JsonParser.parseBasicError(output);
             } else {
                 final var clientPage = client.getLoadedPage();
 
                 if (clientPage == PageType.MOVIES) {
-                    parserObject.putNull("error");
-                    JsonParser.parseAvailableMovies(parserObject.putArray("currentMoviesList"));
-                    JsonParser.parseClient(parserObject);
-
-                    output.add(parserObject);
+                    JsonParser.parseMessage(output, null,
+                            JsonParser.availableMovies(session), session);
                 } else if (clientPage == PageType.DETAILS) {
-                    parserObject.putNull("error");
-                    JsonParser.parseMovie(parserObject
-                            .putArray("currentMoviesList"), "name", client.getSeeMovie());
-                    JsonParser.parseClient(parserObject);
-
-                    output.add(parserObject);
+                    JsonParser.parseMessage(output, null,
+                            JsonParser.movie("name", client.getSeeMovie()), session);
                 }
             }
         } else {
-            JsonParser.parseBasicError(parserObject);
-            output.add(parserObject);
+            JsonParser.parseBasicError(output);
         }
     }
 }
@@ -1,39 +1,85 @@
 package backendtv.server;
 
 import backendtv.client.Client;
+import projectutils.MailboxExecutor;
 import projectutils.ObserverHandler;
 import backendtv.process.ContextActions;
+import backendtv.storage.DataCollection;
 import backendtv.storage.Database;
+import backendtv.storage.FieldType;
+import backendtv.storage.ListCodec;
+import backendtv.storage.RowSet;
+import backendtv.storage.Schema;
+import backendtv.storage.WriteAheadLog;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import datafetch.ActionFetch;
 import datafetch.DataFetch;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>Singleton class maintaining basic functionalities of a real server.</p>
  *
  * <p>The Class follows the singleton design pattern, because we should
- * have just one instance of a server that every user can access. For now
- * the server is NOT a multicore server, meaning that one user can
- * access the server at a time. For future implementations support
- * for multicore server may be added.</p>
+ * have just one instance of a server that every user can access.</p>
+ *
+ * <p>Every connection to the server is a {@code Session} kept in a registry
+ * by its id, every action is routed to the session named by the action and
+ * touches just the client of that session. An action without a session id
+ * is routed to the default session, which is opened when the server
+ * starts.</p>
+ *
+ * <p>When the parallel sessions are enabled, the actions of every session
+ * are run in order by the mailbox of the session, while the sessions are
+ * run in parallel by a pool of workers.</p>
  *
  * @since 1.0.0
  * @author Mihai Negru
  */
 public final class ServerApp implements ObserverHandler {
+    public static final String DEFAULT_SESSION = "default";
+    private static final List<String> MOVIE_LISTS = List.of("purchasedMovies",
+            "watchedMovies", "likedMovies", "ratedMovies");
+    private static final List<String> USER_LISTS = List.of("purchasedMovies",
+            "watchedMovies", "likedMovies", "ratedMovies", "notifications",
+            "subscribedGenres");
+
     private final Database database;
+    private final MailboxExecutor dispatcher;
+    private final Map<String, Session> sessions;
+    private final Map<String, RowSet> availableMovies;
+    private MailboxExecutor sessionExecutor;
+    private WriteAheadLog writeAheadLog;
+    private Path snapshotFile;
+    private Path mappedUsersDirectory;
     private ContextActions actions;
-    private Client activeClient;
 
     /**
-     * <p>Connects to the database</p>
+     * <p>Connects to the database and starts the
+     * notification dispatcher.</p>
      */
     private ServerApp() {
         database = Database.connect();
+        dispatcher = new MailboxExecutor(Runtime.getRuntime().availableProcessors(),
+                "notification-worker");
+        sessions = new LinkedHashMap<>();
+        availableMovies = new ConcurrentHashMap<>();
+        sessionExecutor = null;
+        writeAheadLog = null;
+        snapshotFile = null;
+        mappedUsersDirectory = null;
     }
 
     private static class ServerAppHelper {
@@ -50,6 +96,50 @@ public final class ServerApp implements ObserverHandler {
         return ServerAppHelper.INSTANCE;
     }
 
+    /**
+     * <p>Runs the actions of different sessions in parallel, on a pool
+     * of workers, the actions of one session keep the input order.</p>
+     *
+     * @param workersCount the number of worker threads.
+     */
+    public void enableParallelSessions(final int workersCount) {
+        if (sessionExecutor == null) {
+            sessionExecutor = new MailboxExecutor(workersCount, "session-worker");
+        }
+    }
+
+    /**
+     * <p>Makes the database durable, the database is rebuilt from the
+     * log when the server starts and every write is recorded in
+     * the log.</p>
+     *
+     * @param log the opened write-ahead log, owned by the caller.
+     */
+    public void useWriteAheadLog(final WriteAheadLog log) {
+        writeAheadLog = log;
+    }
+
+    /**
+     * <p>Loads the database from a binary snapshot when the server
+     * starts, if the snapshot exists, and dumps the database in the
+     * snapshot when the server closes.</p>
+     *
+     * @param file the path of the snapshot.
+     */
+    public void useSnapshot(final Path file) {
+        snapshotFile = file;
+    }
+
+    /**
+     * <p>Stores the users off the heap, in memory-mapped files of a
+     * directory, instead of the default in-memory collection.</p>
+     *
+     * @param directory the directory receiving the files of the users.
+     */
+    public void useMappedUsers(final Path directory) {
+        mappedUsersDirectory = directory;
+    }
+
     /**
      * <p>Initializes the main functionality when a client is
      * connecting to the server.</p>
@@ -58,34 +148,100 @@ public final class ServerApp implements ObserverHandler {
      * @param output output data object to print the server messages.
      */
     public void start(final DataFetch input, final ArrayNode output) {
-        init(input, output);
+        init(input, new ContextActions(input.getActions(), output));
+        process();
+        close();
+    }
+
+    /**
+     * <p>Initializes the main functionality when a client is
+     * connecting to the server, the actions are consumed while they
+     * are read and the server messages are streamed to a generator
+     * as soon as every action finishes.</p>
+     *
+     * @param input input data object for database processing.
+     * @param inputActions stream of the actions to process.
+     * @param output generator opened inside the main Json array.
+     */
+    public void start(final DataFetch input, final Iterator<ActionFetch> inputActions,
+                      final JsonGenerator output) {
+        init(input, new ContextActions(inputActions, output));
         process();
         close();
     }
 
     /**
      * <p>Initializes the database according to the input data,
-     * initializes the actions processor and creates a guest
-     * and connects the new client accessing the server as a guess.</p>
+     * initializes the actions processor and opens the default
+     * session, connecting a guest to it.</p>
      *
-     * @param input input data object for database and actions processing.
-     * @param output output data object to print the server messages.
+     * @param input input data object for database processing.
+     * @param initActions the actions processor of the server.
      */
-    private void init(final DataFetch input, final ArrayNode output) {
+    private void init(final DataFetch input, final ContextActions initActions) {
         initDatabase(input);
-        initActions(input, output);
-        connectGuest();
+        actions = initActions;
+        session(DEFAULT_SESSION);
     }
 
     /**
      * <p>Fetches the input data and populates the database with
      * all the data extracted from the input.</p>
+     *
+     * <p>If the server uses a snapshot or a write-ahead log, the collections
+     * are first loaded from the snapshot and rebuilt from the log, the input
+     * data being loaded just if both are empty, then every write of the
+     * database is recorded in the log.</p>
      * @param input input data object for database processing.
      */
     private void initDatabase(final DataFetch input) {
-        if (database.createCollection("users")) {
+        final boolean hasNewUsers;
+
+        try {
+            hasNewUsers = (mappedUsersDirectory == null)
+                    ? database.createCollection("users", true, "name")
+                    : database.createMappedCollection("users", usersSchema(),
+                            mappedUsersDirectory, "name");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (hasNewUsers) {
             final var users = database.collection("users");
+            USER_LISTS.forEach(users::createListField);
+            users.createListIndex("subscribedGenres");
+            users.createListIndex("purchasedMovies");
+        }
+
+        final boolean hasNewMovies = database.createCollection("movies", moviesSchema(),
+                "name", "genres", "actors");
+        if (hasNewMovies) {
+            database.columnCollection("movies").createPrefixIndex("name");
+        }
+
+        long restoredRecords = 0;
+        long snapshotPosition = 0;
+
+        try {
+            if ((snapshotFile != null) && Files.exists(snapshotFile)) {
+                restoredRecords += database.loadSnapshot(snapshotFile);
+                snapshotPosition = database.snapshotLogPosition(snapshotFile);
+            }
+
+            if (writeAheadLog != null) {
+                restoredRecords += writeAheadLog.replay(database, snapshotPosition);
+                database.attachLog(writeAheadLog);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (restoredRecords > 0) {
+            return;
+        }
 
+        if (hasNewUsers) {
+            final var users = database.collection("users");
             final var usersInput = input.getUsers();
 
             for (var userInput : usersInput) {
@@ -108,36 +264,64 @@ public final class ServerApp implements ObserverHandler {
             }
         }
 
-        if (database.createCollection("movies")) {
-            final var movies = database.collection("movies");
-
+        if (hasNewMovies) {
+            final var movies = database.columnCollection("movies");
             final var moviesInput = input.getMovies();
 
             for (var movieInput : moviesInput) {
-                movies.insert(Map.of(
-                        "name", movieInput.getName(),
-                        "year", Integer.toString(movieInput.getYear()),
-                        "duration", Integer.toString(movieInput.getDuration()),
-                        "genres", String.join(",", movieInput.getGenres()),
-                        "actors", String.join(",", movieInput.getActors()),
-                        "countriesBanned", String.join(",", movieInput.getCountriesBanned()),
-                        "numLikes", "0",
-                        "rating", "Unknown:0",
-                        "numRatings", "0"
-                ));
+                movies.newRow()
+                        .setText("name", movieInput.getName())
+                        .setInt("year", movieInput.getYear())
+                        .setInt("duration", movieInput.getDuration())
+                        .setList("genres", movieInput.getGenres())
+                        .setList("actors", movieInput.getActors())
+                        .setList("countriesBanned", movieInput.getCountriesBanned())
+                        .setInt("numLikes", 0)
+                        .insert();
             }
         }
     }
 
     /**
-     * <p>Fetches the input data for the actions and creates
-     * the actions processor of the server.</p>
+     * <p>Builds the typed layout of the users collection, the lists
+     * keep their raw text, where "null" stands for an empty list.</p>
      *
-     * @param input input data object for actions processing.
-     * @param output output data object to print the server messages.
+     * @return the schema of the users collection.
      */
-    private void initActions(final DataFetch input, final ArrayNode output) {
-        actions = new ContextActions(input.getActions(), output);
+    private static Schema usersSchema() {
+        return new Schema.SchemaBuilder()
+                .addField("name", FieldType.TEXT)
+                .addField("password", FieldType.TEXT)
+                .addField("accountType", FieldType.TEXT)
+                .addField("country", FieldType.TEXT)
+                .addField("balance", FieldType.INT)
+                .addField("tokensCount", FieldType.INT)
+                .addField("numFreePremiumMovies", FieldType.INT)
+                .addField("purchasedMovies", FieldType.TEXT_LIST)
+                .addField("watchedMovies", FieldType.TEXT_LIST)
+                .addField("likedMovies", FieldType.TEXT_LIST)
+                .addField("ratedMovies", FieldType.TEXT_LIST)
+                .addField("notifications", FieldType.TEXT_LIST)
+                .addField("subscribedGenres", FieldType.TEXT_LIST)
+                .build();
+    }
+
+    /**
+     * <p>Builds the typed layout of the movies collection.</p>
+     *
+     * @return the schema of the movies collection.
+     */
+    private static Schema moviesSchema() {
+        return new Schema.SchemaBuilder()
+                .addField("name", FieldType.TEXT)
+                .addField("year", FieldType.INT)
+                .addField("duration", FieldType.INT)
+                .addField("genres", FieldType.TEXT_LIST)
+                .addField("actors", FieldType.TEXT_LIST)
+                .addField("countriesBanned", FieldType.TEXT_LIST)
+                .addField("numLikes", FieldType.INT)
+                .addField("rating", FieldType.SCORES)
+                .build();
     }
 
     /**
@@ -145,34 +329,124 @@ public final class ServerApp implements ObserverHandler {
      * all the actions are solved.</p>
      */
     private void process() {
-        while (actions.hasNext()) {
-            actions.next();
+        if (sessionExecutor == null) {
+            while (actions.hasNext()) {
+                actions.next();
+            }
+        } else {
+            while (actions.hasNext()) {
+                actions.dispatchNext(sessionExecutor);
+            }
+
+            sessionExecutor.flush();
         }
 
-        if (activeClient.getStatus() && activeClient.getAccountType().equals("premium")) {
-            actions.premiumBenefits();
+        dispatcher.flush();
+
+        for (var session : openSessions()) {
+            final var client = session.getClient();
+
+            if (client.getStatus() && client.getAccountType().equals("premium")) {
+                actions.premiumBenefits(session);
+            }
         }
     }
 
     /**
      * <p>Close the connection of the client with
      * the server.</p>
+     *
+     * <p>If the server uses a snapshot, the database is dumped in the
+     * snapshot and the write-ahead log is emptied, its writes being
+     * saved by the snapshot. The snapshot records the position of the
+     * log it saves, so a crash before the log is emptied does not
+     * replay the saved writes again.</p>
+     *
+     * <p>The collections are dropped at last, so the files of the
+     * mapped users collection are closed.</p>
      */
     private void close() {
+        if (writeAheadLog != null) {
+            writeAheadLog.sync();
+        }
+
+        if (snapshotFile != null) {
+            try {
+                database.dumpSnapshot(snapshotFile);
+
+                if (writeAheadLog != null) {
+                    writeAheadLog.reset();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
         database.dropAll();
+        availableMovies.clear();
         actions = null;
-        activeClient = null;
+
+        synchronized (sessions) {
+            sessions.clear();
+        }
+    }
+
+    /**
+     * <p>Fetches one session of the server, the session is opened
+     * with a guest client if it does not exist.</p>
+     *
+     * @param sessionId the id of the session or null
+     *                  for the default session.
+     * @return the session with the selected id.
+     */
+    public Session session(final String sessionId) {
+        final String id = (sessionId == null) ? DEFAULT_SESSION : sessionId;
+
+        synchronized (sessions) {
+            return sessions.computeIfAbsent(id, Session::new);
+        }
+    }
+
+    /**
+     * <p>Closes one session of the server, the client of the
+     * session is dropped without being logged out.</p>
+     *
+     * @param sessionId the id of the session.
+     */
+    public void closeSession(final String sessionId) {
+        synchronized (sessions) {
+            sessions.remove(sessionId);
+        }
+    }
+
+    /**
+     * <p>Fetches a snapshot of the opened sessions.</p>
+     *
+     * @return a read-only {@code List} of the sessions.
+     */
+    private List<Session> openSessions() {
+        synchronized (sessions) {
+            return List.copyOf(sessions.values());
+        }
     }
 
     /**
      * <p>Connects a client to the main homepage of the server.</p>
      *
+     * <p>The clients of one country share the same read-only view of the
+     * available movies, while the lists of the client are loaded from
+     * the stored user just when they are used.</p>
+     *
+     * @param session the session of the client.
      * @param clientName id of the client to identify in the database.
      * @param clientPassword password of the client to check credentials.
      * @return true if the client was connected successfully or false
      * if the connection is impossible to make.
      */
-    public boolean loginClient(final String clientName, final String clientPassword) {
+    public boolean loginClient(final Session session, final String clientName,
+                               final String clientPassword) {
+        dispatcher.flush();
+
         final var usersCollection = database.collection("users");
 
         if (usersCollection == null) {
@@ -183,27 +457,18 @@ public final class ServerApp implements ObserverHandler {
         if (clientData.containsKey("password")
                 && clientData.get("password").equals(clientPassword)) {
 
-            final var moviesCollection = database.collection("movies");
+            final var moviesCollection = database.columnCollection("movies");
 
             if (moviesCollection == null) {
                 return false;
             }
 
-            final List<String> availableMovies = new ArrayList<>();
-            final List<Map<String, String>> movies = moviesCollection.getMembers();
+            final var countryMovies = availableMovies.computeIfAbsent(clientData.get("country"),
+                    country -> new RowSet(moviesCollection,
+                            moviesCollection.getRowsExcluding("countriesBanned", country),
+                            "name"));
 
-            if (movies != null) {
-                for (var movie : movies) {
-                    final var countriesBanned = new ArrayList<>(
-                            Arrays.asList(movie.get("countriesBanned").split(",")));
-
-                    if (!countriesBanned.contains(clientData.get("country"))) {
-                        availableMovies.add(movie.get("name"));
-                    }
-                }
-            }
-
-            activeClient = new Client(clientData, availableMovies);
+            session.attach(new Client(clientData, countryMovies));
             return true;
         }
 
@@ -214,6 +479,7 @@ public final class ServerApp implements ObserverHandler {
      * <p>Registers a new client in the database and connects him/her
      * immediately to the main homepage.</p>
      *
+     * @param session the session of the client.
      * @param clientName id of the client to register.
      * @param clientPassword password of the client to register.
      * @param clientAccountType selected account type.
@@ -222,9 +488,12 @@ public final class ServerApp implements ObserverHandler {
      * @return true if the client was registered and logged successfully
      * on the server or false if the registration failed.
      */
-    public boolean registerClient(final String clientName, final String clientPassword,
+    public boolean registerClient(final Session session,
+                                  final String clientName, final String clientPassword,
                                   final String clientAccountType, final String clientCountry,
                                   final String clientBalance) {
+        dispatcher.flush();
+
         final var usersCollection = database.collection("users");
 
         if (usersCollection == null) {
@@ -253,82 +522,61 @@ public final class ServerApp implements ObserverHandler {
                 Map.entry("subscribedGenres", "null")
         ));
 
-        return loginClient(clientName, clientPassword);
+        return loginClient(session, clientName, clientPassword);
     }
 
     /**
      * <p>Logouts an active client on the server and redirects
      * on the guest page.</p>
+     *
+     * <p>Just the changes made by the client are written back to the
+     * stored user: the deleted movies are removed from the stored lists,
+     * the changed fields are replaced and the new elements are appended
+     * to the stored lists, so the cost of the logout depends on the
+     * changes and not on the size of the stored lists.</p>
+     *
+     * @param session the session of the client.
      */
-    public void logoutClient() {
-        final var usersCollection = database.collection("users");
+    public void logoutClient(final Session session) {
+        dispatcher.flush();
 
-        String purchasedMovies = String.join(",", activeClient.getPurchasedMovies());
-        if (purchasedMovies.isEmpty() || purchasedMovies.isBlank()) {
-            purchasedMovies = "null";
-        }
+        final var activeClient = session.getClient();
 
-        String watchedMovies = String.join(",", activeClient.getWatchedMovies());
-        if (watchedMovies.isEmpty() || watchedMovies.isBlank()) {
-            watchedMovies = "null";
-        }
+        final var usersCollection = database.collection("users");
 
-        String likedMovies = String.join(",", activeClient.getLikedMovies());
-        if (likedMovies.isEmpty() || likedMovies.isBlank()) {
-            likedMovies = "null";
-        }
+        final String clientName = activeClient.getName();
+        boolean errCode = usersCollection.versionOf("name", clientName) >= 0;
 
-        String ratedMovies = String.join(",", activeClient.getRatedMovies());
-        if (ratedMovies.isEmpty() || ratedMovies.isBlank()) {
-            ratedMovies = "null";
+        for (var movieName : activeClient.getDeletedMovies()) {
+            for (var listField : MOVIE_LISTS) {
+                usersCollection.removeFromList("name", clientName, listField, movieName);
+            }
         }
 
-        String notifications = String.join(",", activeClient.getNotifications());
-        if (notifications.isEmpty() || notifications.isBlank()) {
-            notifications = "null";
+        for (var field : activeClient.getChangedFields().entrySet()) {
+            errCode &= usersCollection.modifyField("name", clientName,
+                    field.getKey(), field.getValue());
         }
 
-        String subscribedGenres = String.join(",", activeClient.getSubscribedGenres());
-        if (subscribedGenres.isEmpty() || subscribedGenres.isBlank()) {
-            subscribedGenres = "null";
+        for (var list : activeClient.getAppendedElements().entrySet()) {
+            for (var element : list.getValue()) {
+                errCode &= usersCollection.appendToList("name", clientName,
+                        list.getKey(), element);
+            }
         }
 
-        final boolean errCode = usersCollection
-                .modifyMember("name", activeClient.getName(), Map.ofEntries(
-                        Map.entry("name", activeClient.getName()),
-                        Map.entry("password", activeClient.getPassword()),
-                        Map.entry("accountType", activeClient.getAccountType()),
-                        Map.entry("country", activeClient.getCountry()),
-                        Map.entry("balance", Integer.toString(activeClient.getBalance())),
-                        Map.entry("tokensCount", Integer.toString(activeClient.getTokensCount())),
-                        Map.entry("numFreePremiumMovies", Integer.toString(
-                                activeClient.getNumFreePremiumMovies())),
-                        Map.entry("purchasedMovies", purchasedMovies),
-                        Map.entry("watchedMovies", watchedMovies),
-                        Map.entry("likedMovies", likedMovies),
-                        Map.entry("ratedMovies", ratedMovies),
-                        Map.entry("notifications", notifications),
-                        Map.entry("subscribedGenres", subscribedGenres)
-                ));
-
         if (errCode) {
-            activeClient = new Client();
+            connectGuest(session);
         }
     }
 
     /**
-     * <p>Connects a guest to the server.</p>
-     */
-    public void connectGuest() {
-        activeClient = new Client();
-    }
-
-    /**
-     * <p>Fetches the active client from the server.</p>
-     * @return the active client at this moment of time.
+     * <p>Connects a guest to one session of the server.</p>
+     *
+     * @param session the session of the guest.
      */
-    public Client fetchActiveClient() {
-        return activeClient;
+    public void connectGuest(final Session session) {
+        session.attach(new Client());
     }
 
     /**
@@ -345,7 +593,19 @@ public final class ServerApp implements ObserverHandler {
      * the server adds or deletes a movie from the database and
      * modifies all the non-active clients in order to add or
      * to remove the movie from their information,
-     * also calls the update function for the active client.</p>
+     * also calls the update function for the active client of
+     * every session.</p>
+     *
+     * <p>Just the stored clients that purchased the movie or are
+     * subscribed to one of its genres are touched, they are found
+     * through the list indexes of the users collection.</p>
+     *
+     * <p>The active clients are updated immediately and write the change
+     * back when they log out, while the stored clients that are not
+     * active are updated by the notification dispatcher, so the
+     * method returns without waiting for the stored data. When the
+     * sessions run in parallel, the active client of another session
+     * is updated by a task posted in the mailbox of its session.</p>
      *
      * @param message the message that called the update method.
      * @param movieName the movie that needs to be notified.
@@ -355,87 +615,186 @@ public final class ServerApp implements ObserverHandler {
     @Override
     public void updateNotifications(final String message, final String movieName,
                                     final List<String> genres, final List<String> bannedCountries) {
-        activeClient.updateNotifications(message, movieName, genres, bannedCountries);
+        final Set<String> activeUsers = new HashSet<>();
 
-        final var users = database.collection("users").getMembers();
+        for (var session : openSessions()) {
+            final var client = session.getClient();
 
-        if (users == null) {
+            if (client.getStatus()) {
+                activeUsers.add(client.getName());
+                runInSession(session, () -> notifySessionClient(session, client, message,
+                        movieName, genres, bannedCountries));
+            }
+        }
+
+        final var usersCollection = database.collection("users");
+        final Set<String> affectedUsers = new LinkedHashSet<>();
+
+        if (message.equals("DELETE")) {
+            collectNames(usersCollection.findContaining("purchasedMovies", movieName),
+                    affectedUsers);
+        }
+
+        for (var genre : genres) {
+            collectNames(usersCollection.findContaining("subscribedGenres", genre),
+                    affectedUsers);
+        }
+
+        affectedUsers.removeAll(activeUsers);
+
+        for (var userName : affectedUsers) {
+            dispatcher.dispatch(userName, () -> notifyStoredUser(userName, message, movieName,
+                    genres, bannedCountries));
+        }
+    }
+
+    /**
+     * <p>Runs a task touching the client of one session. When the
+     * sessions run in parallel the task is posted in the mailbox of the
+     * session, so it is ordered with the actions of the session, unless
+     * it is posted by an action of the same session.</p>
+     *
+     * @param session the session of the client.
+     * @param task the task to run for the session.
+     */
+    private void runInSession(final Session session, final Runnable task) {
+        if ((sessionExecutor == null) || sessionExecutor.isRunning(session.getId())) {
+            task.run();
+        } else {
+            sessionExecutor.dispatch(session.getId(), task);
+        }
+    }
+
+    /**
+     * <p>Applies the change of one movie to the active client
+     * of one session.</p>
+     *
+     * <p>If the client logged out before the change was applied, its
+     * lists were already written back, so the change is applied to the
+     * stored user by the notification dispatcher instead.</p>
+     *
+     * @param session the session of the client.
+     * @param client the client that was active when the movie changed.
+     * @param message the message that called the update method.
+     * @param movieName the movie that needs to be notified.
+     * @param genres movie genres.
+     * @param bannedCountries countries that are not allowed to watch the movie.
+     */
+    private void notifySessionClient(final Session session, final Client client,
+                                     final String message, final String movieName,
+                                     final List<String> genres,
+                                     final List<String> bannedCountries) {
+        if (session.getClient() == client) {
+            client.updateNotifications(message, movieName, genres, bannedCountries);
             return;
         }
 
-        for (var user : users) {
-            if (bannedCountries.contains(user.get("country"))) {
-                continue;
+        final String userName = client.getName();
+        dispatcher.dispatch(userName, () -> notifyStoredUser(userName, message, movieName,
+                genres, bannedCountries));
+    }
+
+    /**
+     * <p>Applies the change of one movie to the stored data of
+     * one user, the method is run by the notification workers.</p>
+     *
+     * <p>The changes of one user are run in order by the dispatcher and
+     * the login and the logout of the user wait for them, so the stored
+     * lists are changed element by element: a deleted movie is removed
+     * from the lists holding it and the notification is appended to
+     * the stored notifications.</p>
+     *
+     * @param userName the name of the user to update.
+     * @param message the message that called the update method.
+     * @param movieName the movie that needs to be notified.
+     * @param genres movie genres.
+     * @param bannedCountries countries that are not allowed to watch the movie.
+     */
+    private void notifyStoredUser(final String userName, final String message,
+                                  final String movieName, final List<String> genres,
+                                  final List<String> bannedCountries) {
+        final var usersCollection = database.collection("users");
+        final var user = usersCollection.findOne("name", userName);
+
+        if ((user == null) || bannedCountries.contains(user.get("country"))) {
+            return;
+        }
+
+        if (message.equals("DELETE") && usersCollection.removeFromList("name", userName,
+                "purchasedMovies", movieName)) {
+            refundStoredUser(usersCollection, userName);
+
+            for (var listField : List.of("watchedMovies", "likedMovies", "ratedMovies")) {
+                usersCollection.removeFromList("name", userName, listField, movieName);
             }
+        }
 
-            if (message.equals("DELETE")) {
-                var tempMoviesString = user.get("purchasedMovies");
-                if (!tempMoviesString.equals("null")) {
-                    List<String> tempMoviesList = new ArrayList<>(Arrays.asList(
-                            tempMoviesString.split(",")));
-
-                    if (tempMoviesList.contains(movieName)) {
-                        final String userAccountType = user.get("accountType");
-
-                        if (userAccountType.equals("premium")) {
-                            user.put("numFreePremiumMovies",
-                                    Integer.toString(Integer.parseInt(
-                                            user.get("numFreePremiumMovies")) + 1));
-                        } else if (userAccountType.equals("standard")) {
-                            user.put("tokensCount",
-                                    Integer.toString(Integer.parseInt(
-                                            user.get("tokensCount")) + 2));
-                        }
-
-                        tempMoviesList.remove(movieName);
-                        user.put("purchasedMovies", String.join(",", tempMoviesList));
-
-                        tempMoviesString = user.get("watchedMovies");
-                        if (!tempMoviesString.equals("null")) {
-                            tempMoviesList = new ArrayList<>(Arrays.asList(
-                                    tempMoviesString.split(",")));
-
-                            tempMoviesList.remove(movieName);
-                            user.put("watchedMovies", String.join(",", tempMoviesList));
-                        }
-
-                        tempMoviesString = user.get("likedMovies");
-                        if (!tempMoviesString.equals("null")) {
-                            tempMoviesList = new ArrayList<>(Arrays.asList(
-                                    tempMoviesString.split(",")));
-
-                            tempMoviesList.remove(movieName);
-                            user.put("likedMovies", String.join(",", tempMoviesList));
-                        }
-
-                        tempMoviesString = user.get("ratedMovies");
-                        if (!tempMoviesString.equals("null")) {
-                            tempMoviesList = new ArrayList<>(Arrays.asList(
-                                    tempMoviesString.split(",")));
-
-                            tempMoviesList.remove(movieName);
-                            user.put("ratedMovies", String.join(",", tempMoviesList));
-                        }
-                    }
-                }
+        for (var genre : ListCodec.decode(user.get("subscribedGenres"))) {
+            if (genres.contains(genre)) {
+                usersCollection.appendToList("name", userName, "notifications",
+                        movieName + ";" + message);
+
+                break;
+            }
+        }
+    }
+
+    /**
+     * <p>Gives back to one stored user the price of a deleted movie.</p>
+     *
+     * <p>The field is written against the version it was read at, if
+     * another write of the user was made meanwhile the user is read
+     * again and the refund is computed once more.</p>
+     *
+     * @param usersCollection the collection of the users.
+     * @param userName the name of the user to refund.
+     */
+    private static void refundStoredUser(final DataCollection usersCollection,
+                                         final String userName) {
+        while (true) {
+            final long version = usersCollection.versionOf("name", userName);
+            final var user = usersCollection.findOne("name", userName);
+
+            if (user == null) {
+                return;
             }
 
-            for (var genre : user.get("subscribedGenres").split(",")) {
-                if (genres.contains(genre)) {
-                    final String userNotifications = user.get("notifications");
+            final String userAccountType = user.get("accountType");
+            final String refundField;
+            final int refund;
+
+            if (userAccountType.equals("premium")) {
+                refundField = "numFreePremiumMovies";
+                refund = 1;
+            } else if (userAccountType.equals("standard")) {
+                refundField = "tokensCount";
+                refund = 2;
+            } else {
+                return;
+            }
 
-                    if (userNotifications.equals("null")) {
-                        user.put("notifications", movieName + ";" + message);
-                    } else {
-                        user.put("notifications", userNotifications
-                                + "," + movieName + ";" + message);
-                    }
+            final String refundedValue = Integer.toString(
+                    Integer.parseInt(user.get(refundField)) + refund);
 
-                    break;
-                }
+            if (usersCollection.modifyField("name", userName, refundField, refundedValue,
+                    version) || (usersCollection.versionOf("name", userName) == version)) {
+                return;
             }
+        }
+    }
 
-            database.collection("users").modifyMember("name", user.get("name"), user);
+    /**
+     * <p>Collects the names of the found users.</p>
+     *
+     * @param users found users or null if no user was found.
+     * @param names the set receiving the names.
+     */
+    private static void collectNames(final List<Map<String, String>> users,
+                                     final Set<String> names) {
+        if (users != null) {
+            for (var user : users) {
+                names.add(user.get("name"));
+            }
         }
     }
 }
@@ -0,0 +1,51 @@
+package backendtv.server;
+
+import backendtv.client.Client;
+
+/**
+ * <p>One connection to the server, identified by a session id.</p>
+ *
+ * <p>Every session holds its own client, a guest when the session is
+ * opened, which is replaced by the server on every login and logout.
+ * The actions of one session touch just the client of the session, so
+ * the actions of different sessions do not share any client state. The
+ * client is published through a volatile field, so the other sessions
+ * can check which client is connected without running in the session.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class Session {
+    private final String id;
+    private volatile Client client;
+
+    /**
+     * <p>Opens a new session with a guest client.</p>
+     *
+     * @param initId the id of the session.
+     */
+    public Session(final String initId) {
+        id = initId;
+        client = new Client();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Client getClient() {
+        return client;
+    }
+
+    /**
+     * <p>Replaces the client connected through the session,
+     * just the server connects clients to sessions.</p>
+     *
+     * @param newClient the new client of the session.
+     */
+    void attach(final Client newClient) {
+        if (newClient != null) {
+            client = newClient;
+        }
+    }
+}
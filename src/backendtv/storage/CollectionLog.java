@@ -0,0 +1,118 @@
+package backendtv.storage;
+
+import java.util.Map;
+
+/**
+ * <p>View of the {@code WriteAheadLog} for the writes of one
+ * collection, every collection records its successful writes in
+ * the view it was attached to.</p>
+ *
+ * <p>A collection that was not attached to a log holds the
+ * {@code DISABLED} view, which records nothing.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class CollectionLog {
+    public static final CollectionLog DISABLED = new CollectionLog(null, null);
+
+    private final WriteAheadLog log;
+    private final String collectionName;
+
+    CollectionLog(final WriteAheadLog initLog, final String initCollectionName) {
+        log = initLog;
+        collectionName = initCollectionName;
+    }
+
+    /**
+     * <p>Checks if the view records the writes.</p>
+     *
+     * @return true if the view is attached to a log or false otherwise.
+     */
+    public boolean isEnabled() {
+        return log != null;
+    }
+
+    /**
+     * <p>Records the insertion of a member.</p>
+     *
+     * @param fields all data of the inserted member.
+     */
+    public void insert(final Map<String, String> fields) {
+        if (log != null) {
+            log.appendInsert(collectionName, fields);
+        }
+    }
+
+    /**
+     * <p>Records the modification of all the fields of a member.</p>
+     *
+     * @param fieldKey field key of the member.
+     * @param fieldValue field value of the member.
+     * @param fields new field data of the member.
+     */
+    public void modifyMember(final String fieldKey, final String fieldValue,
+                             final Map<String, String> fields) {
+        if (log != null) {
+            log.appendModifyMember(collectionName, fieldKey, fieldValue, fields);
+        }
+    }
+
+    /**
+     * <p>Records the modification of one field of a member.</p>
+     *
+     * @param fieldKey field key of the member.
+     * @param fieldValue field value of the member.
+     * @param changeFieldKey field key that was changed.
+     * @param changeFieldValue the new value of the field.
+     */
+    public void modifyField(final String fieldKey, final String fieldValue,
+                            final String changeFieldKey, final String changeFieldValue) {
+        if (log != null) {
+            log.appendModifyField(collectionName, fieldKey, fieldValue,
+                    changeFieldKey, changeFieldValue);
+        }
+    }
+
+    /**
+     * <p>Records the append of one element to a list field of a member.</p>
+     *
+     * @param fieldKey field key of the member.
+     * @param fieldValue field value of the member.
+     * @param listField the list field receiving the element.
+     * @param element the appended element.
+     */
+    public void appendToList(final String fieldKey, final String fieldValue,
+                             final String listField, final String element) {
+        if (log != null) {
+            log.appendAppendToList(collectionName, fieldKey, fieldValue, listField, element);
+        }
+    }
+
+    /**
+     * <p>Records the removal of one element from a list field of a member.</p>
+     *
+     * @param fieldKey field key of the member.
+     * @param fieldValue field value of the member.
+     * @param listField the list field holding the element.
+     * @param element the removed element.
+     */
+    public void removeFromList(final String fieldKey, final String fieldValue,
+                               final String listField, final String element) {
+        if (log != null) {
+            log.appendRemoveFromList(collectionName, fieldKey, fieldValue, listField, element);
+        }
+    }
+
+    /**
+     * <p>Records the deletion of the members matching a (key, value) pair.</p>
+     *
+     * @param fieldKey field key of the deleted members.
+     * @param fieldValue field value of the deleted members.
+     */
+    public void delete(final String fieldKey, final String fieldValue) {
+        if (log != null) {
+            log.appendDelete(collectionName, fieldKey, fieldValue);
+        }
+    }
+}
@@ -0,0 +1,1767 @@
+package backendtv.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * <p>Collection of data that stores its members in typed columns
+ * described by a {@code Schema}, instead of one {@code Map} per member.</p>
+ *
+ * <p>Every member is identified by a row id, assigned at insertion and
+ * never reused. The values of a deleted row are kept, so a reader that
+ * picked the row before the deletion still reads the member whole.
+ * Integer fields live in primitive arrays and the elements of list
+ * fields are interned in a {@code SymbolTable}, so the typed accessors
+ * read native values with no parsing and no boxing.</p>
+ *
+ * <p>A list field can be indexed as well, in which case the collection
+ * keeps a posting list (a bitmap of row ids) for every element of the
+ * field, so the members containing some elements are found by
+ * intersecting bitmaps instead of scanning all the rows.</p>
+ *
+ * <p>A text field with a unique index can also receive a prefix index, that keeps the values
+ * sorted, so the members whose value starts with some prefix are found
+ * in a range of the index instead of scanning all the rows.</p>
+ *
+ * <p>The collection also keeps, on request, the bitmap of the rows whose
+ * list field does NOT contain one element (for example the movies that
+ * are not banned in one country). Such a bitmap is computed once and then
+ * updated by every insertion and deletion, so it can be shared by all the
+ * readers.</p>
+ *
+ * <p>A scores field keeps the score given by every user together with
+ * a running sum and count, so a score is added or replaced and the
+ * average is read in constant time.</p>
+ *
+ * <p>Every row keeps a version, increased by every write of the row
+ * through the typed setters or the {@code DataCollection} interface.</p>
+ *
+ * <p>When the collection is attached to a log, every write is recorded
+ * in its {@code String} representation, the rows being identified by
+ * the first text field declared as a unique index.</p>
+ *
+ * <p>The Class also implements the {@code DataCollection} interface,
+ * in that case the members are converted from and to their
+ * {@code String} representation, where lists are encoded by the
+ * {@code ListCodec} and scores are written as an encoded list
+ * of "user:score" pairs.</p>
+ *
+ * <p>The collection can be shared by many threads. The reads and the
+ * writes of one row share the lock of the collection, while the changes
+ * of the rows set, of the indexes and of the list fields take it
+ * exclusively. The integer fields and the scores of a row are also
+ * guarded by a lock stripe picked by the row id, so the likes and the
+ * ratings of different movies never wait for each other, and the writes
+ * of one row are recorded in the log in the order they were made.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class ColumnCollection implements DataCollection {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int STRIPES_COUNT = 16;
+    private static final int[] NO_SYMBOLS = new int[0];
+
+    private final Schema schema;
+    private final SymbolTable symbols;
+    private final String[][] textColumns;
+    private final int[][] intColumns;
+    private final int[][][] listColumns;
+    private final ScoreBoard[][] scoreColumns;
+    private final BitSet liveRows;
+    private final Map<String, Map<String, Integer>> indexes;
+    private final Map<String, List<BitSet>> postings;
+    private final Map<String, NavigableMap<String, Integer>> prefixIndexes;
+    private final Map<String, Map<Integer, BitSet>> exclusions;
+    private final ReentrantReadWriteLock lock;
+    private final ReentrantLock[] stripes;
+    private long[] versions;
+    private String keyField;
+    private CollectionLog log;
+    private int rowCount;
+
+    /**
+     * <p>Creates a new workspace for the members.</p>
+     *
+     * @param initSchema the layout of the members.
+     */
+    public ColumnCollection(final Schema initSchema) {
+        schema = initSchema;
+        symbols = new SymbolTable();
+
+        textColumns = new String[schema.countOf(FieldType.TEXT)][INITIAL_CAPACITY];
+        intColumns = new int[schema.countOf(FieldType.INT)][INITIAL_CAPACITY];
+        listColumns = new int[schema.countOf(FieldType.TEXT_LIST)][INITIAL_CAPACITY][];
+        scoreColumns = new ScoreBoard[schema.countOf(FieldType.SCORES)][INITIAL_CAPACITY];
+
+        liveRows = new BitSet();
+        indexes = new HashMap<>();
+        postings = new HashMap<>();
+        prefixIndexes = new HashMap<>();
+        exclusions = new HashMap<>();
+        lock = new ReentrantReadWriteLock();
+        stripes = new ReentrantLock[STRIPES_COUNT];
+        versions = new long[INITIAL_CAPACITY];
+        keyField = null;
+        log = CollectionLog.DISABLED;
+        rowCount = 0;
+
+        for (int stripe = 0; stripe < STRIPES_COUNT; ++stripe) {
+            stripes[stripe] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * <p>Scores given by the users to one member, with
+     * the running sum and count of the scores.</p>
+     */
+    private static final class ScoreBoard {
+        private final Map<String, Integer> scores = new LinkedHashMap<>();
+        private long sum;
+
+        /**
+         * <p>Adds or replaces the score of one user.</p>
+         *
+         * @param user the user giving the score.
+         * @param score the score.
+         */
+        void put(final String user, final int score) {
+            final Integer oldScore = scores.put(user, score);
+
+            sum += score;
+            if (oldScore != null) {
+                sum -= oldScore;
+            }
+        }
+
+        @Override
+        public String toString() {
+            final List<String> pairs = new ArrayList<>(scores.size());
+            scores.forEach((user, score) -> pairs.add(user + ":" + score));
+
+            return ListCodec.encode(pairs);
+        }
+    }
+
+    /**
+     * <p>Nested class that builds a new row from typed values.</p>
+     */
+    public final class RowBuilder {
+        private final String[] texts;
+        private final int[] ints;
+        private final int[][] lists;
+        private final ScoreBoard[] boards;
+
+        private RowBuilder() {
+            texts = new String[textColumns.length];
+            ints = new int[intColumns.length];
+            lists = new int[listColumns.length][];
+            boards = new ScoreBoard[scoreColumns.length];
+
+            Arrays.fill(lists, NO_SYMBOLS);
+        }
+
+        /**
+         * <p>Sets the value of a text field.</p>
+         *
+         * @param field the name of the field.
+         * @param value the value of the field.
+         * @return builder instance.
+         */
+        public RowBuilder setText(final String field, final String value) {
+            texts[slot(field, FieldType.TEXT)] = value;
+            return this;
+        }
+
+        /**
+         * <p>Sets the value of an integer field.</p>
+         *
+         * @param field the name of the field.
+         * @param value the value of the field.
+         * @return builder instance.
+         */
+        public RowBuilder setInt(final String field, final int value) {
+            ints[slot(field, FieldType.INT)] = value;
+            return this;
+        }
+
+        /**
+         * <p>Sets the elements of a list field.</p>
+         *
+         * @param field the name of the field.
+         * @param values the elements of the field.
+         * @return builder instance.
+         */
+        public RowBuilder setList(final String field, final List<String> values) {
+            lists[slot(field, FieldType.TEXT_LIST)] = internAll(values);
+            return this;
+        }
+
+        /**
+         * <p>Inserts the row in the collection.</p>
+         *
+         * @return the id of the new row or -1 if a text field
+         * is missing or the row breaks one of the unique indexes.
+         */
+        public int insert() {
+            return insertRow(this);
+        }
+    }
+
+    /**
+     * <p>Starts building a new row of the collection.</p>
+     *
+     * @return a new empty row builder.
+     */
+    public RowBuilder newRow() {
+        return new RowBuilder();
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * <p>Finds the row of the first member that matches
+     * the input (key, value).</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @return the row id of the member or -1 if the member
+     * does not exist.
+     */
+    public int rowOf(final String fieldKey, final String fieldValue) {
+        if ((fieldKey == null) || (fieldValue == null)) {
+            return -1;
+        }
+
+        lock.readLock().lock();
+        try {
+            final var index = indexes.get(fieldKey);
+            if (index != null) {
+                final Integer row = index.get(fieldValue);
+
+                if (row == null) {
+                    return -1;
+                }
+
+                return row;
+            }
+
+            for (int row = liveRows.nextSetBit(0); row >= 0;
+                 row = liveRows.nextSetBit(row + 1)) {
+                if (fieldValue.equals(format(row, fieldKey))) {
+                    return row;
+                }
+            }
+
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Checks if a row holds a member of the collection.</p>
+     *
+     * @param row the row id to check.
+     * @return true if the row was inserted and not deleted
+     * or false otherwise.
+     */
+    public boolean isLive(final int row) {
+        return (row >= 0) && isSet(liveRows, row);
+    }
+
+    /**
+     * <p>Fetches the ids of all the rows, in insertion order.</p>
+     *
+     * <p>The stream reads a copy of the live rows, taken
+     * when the stream is created.</p>
+     *
+     * @return a stream of row ids.
+     */
+    public IntStream rows() {
+        return copyOf(liveRows).stream();
+    }
+
+    /**
+     * <p>Fetches the number of members of the collection.</p>
+     *
+     * @return the number of rows that were not deleted.
+     */
+    public int size() {
+        return countOf(liveRows);
+    }
+
+    /**
+     * <p>Checks if a row is part of a bitmap kept up to date
+     * by the collection, under the lock of the collection.</p>
+     *
+     * @param rows the bitmap of row ids.
+     * @param row the row id to check.
+     * @return true if the row is part of the bitmap or false otherwise.
+     */
+    boolean isSet(final BitSet rows, final int row) {
+        lock.readLock().lock();
+        try {
+            return rows.get(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Counts the rows of a bitmap kept up to date by the
+     * collection, under the lock of the collection.</p>
+     *
+     * @param rows the bitmap of row ids.
+     * @return the number of rows of the bitmap.
+     */
+    int countOf(final BitSet rows) {
+        lock.readLock().lock();
+        try {
+            return rows.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Copies a bitmap kept up to date by the collection,
+     * under the lock of the collection.</p>
+     *
+     * @param rows the bitmap of row ids.
+     * @return a new bitmap of the same row ids.
+     */
+    BitSet copyOf(final BitSet rows) {
+        lock.readLock().lock();
+        try {
+            return (BitSet) rows.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Reads a text field of a live row.</p>
+     *
+     * @param row the row id of the member.
+     * @param field the name of the field.
+     * @return the value of the field.
+     */
+    public String getText(final int row, final String field) {
+        final int fieldSlot = slot(field, FieldType.TEXT);
+
+        lock.readLock().lock();
+        try {
+            return textColumns[fieldSlot][row];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Reads an integer field of a live row.</p>
+     *
+     * @param row the row id of the member.
+     * @param field the name of the field.
+     * @return the value of the field.
+     */
+    public int getInt(final int row, final String field) {
+        final int fieldSlot = slot(field, FieldType.INT);
+
+        lock.readLock().lock();
+        try {
+            final var stripe = stripeOf(row);
+
+            stripe.lock();
+            try {
+                return intColumns[fieldSlot][row];
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Reads the symbol ids of a list field of a live row.</p>
+     *
+     * <p>The returned array is the stored one and must not be modified.</p>
+     *
+     * @param row the row id of the member.
+     * @param field the name of the field.
+     * @return the ids of the elements, in insertion order.
+     */
+    public int[] getSymbols(final int row, final String field) {
+        final int fieldSlot = slot(field, FieldType.TEXT_LIST);
+
+        lock.readLock().lock();
+        try {
+            return listColumns[fieldSlot][row];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Reads the elements of a list field of a live row.</p>
+     *
+     * @param row the row id of the member.
+     * @param field the name of the field.
+     * @return a {@code List} of the elements, in insertion order.
+     */
+    public List<String> getList(final int row, final String field) {
+        final int[] ids = getSymbols(row, field);
+        final List<String> values = new ArrayList<>(ids.length);
+
+        for (int id : ids) {
+            values.add(symbols.symbol(id));
+        }
+
+        return values;
+    }
+
+    /**
+     * <p>Adds the score of one user to a scores field of a live row,
+     * replacing the previous score of the user if one exists.</p>
+     *
+     * @param row the row id of the member.
+     * @param field the name of the field.
+     * @param user the user giving the score.
+     * @param score the score.
+     * @return true if the score was added or false if the
+     * row is not live or the user is null.
+     */
+    public boolean putScore(final int row, final String field,
+                            final String user, final int score) {
+        final int fieldSlot = slot(field, FieldType.SCORES);
+
+        lock.readLock().lock();
+        try {
+            if (!isLive(row) || (user == null)) {
+                return false;
+            }
+
+            final var stripe = stripeOf(row);
+
+            stripe.lock();
+            try {
+                if (scoreColumns[fieldSlot][row] == null) {
+                    scoreColumns[fieldSlot][row] = new ScoreBoard();
+                }
+
+                scoreColumns[fieldSlot][row].put(user, score);
+                ++versions[row];
+
+                if (log.isEnabled()) {
+                    log.modifyField(keyField, keyOf(row), field, format(row, field));
+                }
+            } finally {
+                stripe.unlock();
+            }
+
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Reads the average of a scores field of a live row.</p>
+     *
+     * @param row the row id of the member.
+     * @param field the name of the field.
+     * @return the average score or 0 if no user gave a score.
+     */
+    public double getAverageScore(final int row, final String field) {
+        final int fieldSlot = slot(field, FieldType.SCORES);
+
+        lock.readLock().lock();
+        try {
+            final var stripe = stripeOf(row);
+
+            stripe.lock();
+            try {
+                final var board = scoreColumns[fieldSlot][row];
+
+                if ((board == null) || board.scores.isEmpty()) {
+                    return 0;
+                }
+
+                return (double) board.sum / board.scores.size();
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Reads the number of users that gave a score
+     * in a scores field of a live row.</p>
+     *
+     * @param row the row id of the member.
+     * @param field the name of the field.
+     * @return the number of scores.
+     */
+    public int getScoreCount(final int row, final String field) {
+        final int fieldSlot = slot(field, FieldType.SCORES);
+
+        lock.readLock().lock();
+        try {
+            final var stripe = stripeOf(row);
+
+            stripe.lock();
+            try {
+                final var board = scoreColumns[fieldSlot][row];
+
+                if (board == null) {
+                    return 0;
+                }
+
+                return board.scores.size();
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Changes an integer field of a row.</p>
+     *
+     * @param row the row id of the member.
+     * @param field the name of the field.
+     * @param value the new value of the field.
+     * @return true if the field was changed or false
+     * if the row is not live.
+     */
+    public boolean setInt(final int row, final String field, final int value) {
+        return changeInt(row, field, value, false);
+    }
+
+    /**
+     * <p>Adds an amount to an integer field of a row, the field
+     * is read and written while the stripe of the row is held, so
+     * concurrent additions to the same row are never lost.</p>
+     *
+     * @param row the row id of the member.
+     * @param field the name of the field.
+     * @param amount the amount to add to the field.
+     * @return true if the field was changed or false
+     * if the row is not live.
+     */
+    public boolean addToInt(final int row, final String field, final int amount) {
+        return changeInt(row, field, amount, true);
+    }
+
+    /**
+     * <p>Changes a text field of a row.</p>
+     *
+     * @param row the row id of the member.
+     * @param field the name of the field.
+     * @param value the new value of the field.
+     * @return true if the field was changed or false if the row
+     * is not live, the value is null or the value breaks the
+     * unique index of the field.
+     */
+    public boolean setText(final int row, final String field, final String value) {
+        final int fieldSlot = slot(field, FieldType.TEXT);
+
+        lock.writeLock().lock();
+        try {
+            if (!isLive(row) || (value == null)) {
+                return false;
+            }
+
+            final String key = keyOf(row);
+            final var index = indexes.get(field);
+            if (index != null) {
+                final Integer holder = index.get(value);
+
+                if ((holder != null) && (holder != row)) {
+                    return false;
+                }
+
+                index.remove(textColumns[fieldSlot][row]);
+                index.put(value, row);
+            }
+
+            final var prefixIndex = prefixIndexes.get(field);
+            if (prefixIndex != null) {
+                prefixIndex.remove(textColumns[fieldSlot][row]);
+                prefixIndex.put(value, row);
+            }
+
+            textColumns[fieldSlot][row] = value;
+            ++versions[row];
+            log.modifyField(keyField, key, field, value);
+
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Fetches the id of an element of the list fields.</p>
+     *
+     * @param value the element to look for.
+     * @return the id of the element or -1 if no list field
+     * ever contained the element.
+     */
+    public int symbolId(final String value) {
+        return symbols.idOf(value);
+    }
+
+    /**
+     * <p>Resolves the id of an element of the list fields.</p>
+     *
+     * @param id the id of the element.
+     * @return the element.
+     */
+    public String symbol(final int id) {
+        return symbols.symbol(id);
+    }
+
+    /**
+     * <p>Fetches the rows whose list field contains one element.</p>
+     *
+     * <p>The returned bitmap is a copy of the posting list kept
+     * by the index, so it can be modified freely.</p>
+     *
+     * @param field the name of an indexed list field.
+     * @param value the element to look for.
+     * @return a new bitmap of the row ids containing the element,
+     * or null if the field is not indexed.
+     */
+    public BitSet getPostings(final String field, final String value) {
+        lock.readLock().lock();
+        try {
+            final var valuePostings = postingsOf(field, value);
+
+            if (valuePostings == null) {
+                return null;
+            }
+
+            return (BitSet) valuePostings.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Fetches the live rows whose list field does not contain
+     * one element.</p>
+     *
+     * <p>The bitmap is computed on the first request and is then kept
+     * up to date by every change of the collection, so the returned
+     * object is shared between all callers and must not be modified.
+     * The bitmap is looked up under the shared lock and is built under
+     * the exclusive lock, the callers read it through the
+     * {@code RowSet} views, that take the lock of the collection.</p>
+     *
+     * @param field the name of the list field.
+     * @param value the element that must not be contained.
+     * @return a bitmap of the row ids not containing the element.
+     */
+    public BitSet getRowsExcluding(final String field, final String value) {
+        final int fieldSlot = slot(field, FieldType.TEXT_LIST);
+        final int id = symbols.intern(value);
+
+        lock.readLock().lock();
+        try {
+            final var excludingRows = exclusions.getOrDefault(field, Map.of()).get(id);
+
+            if (excludingRows != null) {
+                return excludingRows;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            final var fieldExclusions = exclusions.computeIfAbsent(field,
+                    key -> new HashMap<>());
+            var excludingRows = fieldExclusions.get(id);
+
+            if (excludingRows == null) {
+                excludingRows = new BitSet();
+
+                for (int row = liveRows.nextSetBit(0); row >= 0;
+                     row = liveRows.nextSetBit(row + 1)) {
+                    if (!contains(listColumns[fieldSlot][row], id)) {
+                        excludingRows.set(row);
+                    }
+                }
+
+                fieldExclusions.put(id, excludingRows);
+            }
+
+            return excludingRows;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Keeps in a set of rows just the rows whose list field
+     * contains all the selected elements.</p>
+     *
+     * <p>Indexed fields are filtered by intersecting the posting
+     * lists of the elements, other fields are filtered by reading
+     * the elements of every row.</p>
+     *
+     * @param rows the set of row ids to filter.
+     * @param field the name of the list field.
+     * @param values the elements that must be contained.
+     */
+    public void retainContaining(final BitSet rows, final String field,
+                                 final Collection<String> values) {
+        lock.readLock().lock();
+        try {
+            final int fieldSlot = slot(field, FieldType.TEXT_LIST);
+
+            for (String value : values) {
+                final var valuePostings = postingsOf(field, value);
+
+                if (valuePostings != null) {
+                    rows.and(valuePostings);
+                } else {
+                    final int id = symbols.idOf(value);
+
+                    for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                        if (!contains(listColumns[fieldSlot][row], id)) {
+                            rows.clear(row);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Declares an index on one field of the collection.</p>
+     *
+     * <p>A text field receives a unique index, while a list field
+     * receives a posting list for every one of its elements.</p>
+     *
+     * @param fieldKey field key to index.
+     * @return true if the index was created or false if the field
+     * is neither a text nor a list field, is already indexed or two
+     * members share the same value of a text field.
+     */
+    @Override
+    public boolean createIndex(final String fieldKey) {
+        lock.writeLock().lock();
+        try {
+            if (hasIndex(fieldKey)) {
+                return false;
+            }
+
+            if (schema.typeOf(fieldKey) == FieldType.TEXT_LIST) {
+                final List<BitSet> fieldPostings = new ArrayList<>();
+
+                postings.put(fieldKey, fieldPostings);
+                rows().forEach(row -> addPostings(row, fieldKey, fieldPostings));
+
+                return true;
+            }
+
+            if (schema.typeOf(fieldKey) != FieldType.TEXT) {
+                return false;
+            }
+
+            final String[] column = textColumns[schema.slotOf(fieldKey)];
+            final Map<String, Integer> index = new HashMap<>();
+
+            for (int row = liveRows.nextSetBit(0); row >= 0; row = liveRows.nextSetBit(row + 1)) {
+                if (index.put(column[row], row) != null) {
+                    return false;
+                }
+            }
+
+            indexes.put(fieldKey, index);
+
+            if (keyField == null) {
+                keyField = fieldKey;
+            }
+
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Declares a prefix index on one text field of the collection,
+     * the field must already have a unique index.</p>
+     *
+     * @param field the name of the text field.
+     * @return true if the index was created or false if the field
+     * has no unique index or already has a prefix index.
+     */
+    public boolean createPrefixIndex(final String field) {
+        lock.writeLock().lock();
+        try {
+            if (!indexes.containsKey(field) || prefixIndexes.containsKey(field)) {
+                return false;
+            }
+
+            final String[] column = textColumns[schema.slotOf(field)];
+            final NavigableMap<String, Integer> index = new TreeMap<>();
+
+            rows().forEach(row -> index.put(column[row], row));
+            prefixIndexes.put(field, index);
+
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Fetches the rows whose text field starts with a prefix,
+     * by walking the matching range of the prefix index.</p>
+     *
+     * @param field the name of the text field.
+     * @param prefix the prefix of the selected values.
+     * @param candidates test of the rows that may be selected.
+     * @return a new bitmap of the selected row ids or null if
+     * the field has no prefix index.
+     */
+    public BitSet getRowsStartingWith(final String field, final String prefix,
+                                      final IntPredicate candidates) {
+        lock.readLock().lock();
+        try {
+            final var index = prefixIndexes.get(field);
+
+            if (index == null) {
+                return null;
+            }
+
+            final BitSet selectedRows = new BitSet();
+
+            for (var entry : index.tailMap(prefix, true).entrySet()) {
+                if (!entry.getKey().startsWith(prefix)) {
+                    break;
+                }
+
+                if (candidates.test(entry.getValue())) {
+                    selectedRows.set(entry.getValue());
+                }
+            }
+
+            return selectedRows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Declares posting lists on one list field of the collection.</p>
+     *
+     * @param fieldKey field key to index.
+     * @return true if the index was created or false if the field
+     * is not a list field or is already indexed.
+     */
+    @Override
+    public boolean createListIndex(final String fieldKey) {
+        return (schema.typeOf(fieldKey) == FieldType.TEXT_LIST) && createIndex(fieldKey);
+    }
+
+    /**
+     * <p>Checks if one field is declared as a list field
+     * by the schema of the collection.</p>
+     *
+     * @param fieldKey field key to check.
+     * @return true if the field is a list field or false otherwise.
+     */
+    @Override
+    public boolean createListField(final String fieldKey) {
+        return schema.typeOf(fieldKey) == FieldType.TEXT_LIST;
+    }
+
+    @Override
+    public boolean hasIndex(final String fieldKey) {
+        lock.readLock().lock();
+        try {
+            return indexes.containsKey(fieldKey) || postings.containsKey(fieldKey);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Attaches the collection to a log, every successful write
+     * of the collection is recorded in the log from now on.</p>
+     *
+     * @param initLog the log of the collection.
+     * @throws IllegalStateException if no text field is declared
+     * as a unique index, so the rows cannot be identified in the log.
+     */
+    @Override
+    public void attachLog(final CollectionLog initLog) {
+        lock.writeLock().lock();
+        try {
+            if (initLog.isEnabled() && (keyField == null)) {
+                throw new IllegalStateException("Logged collection needs a unique text index");
+            }
+
+            log = initLog;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Parses and inserts a new member in the collection workspace.</p>
+     *
+     * @param fields a {@code Map} object containing all data of
+     *               one member from the collection.
+     * @return true if the member was inserted or false if a field of
+     * the schema is missing or malformed, or the member breaks one of
+     * the unique indexes.
+     */
+    @Override
+    public boolean insert(final Map<String, String> fields) {
+        final var row = parseRow(fields);
+
+        if (row == null) {
+            return false;
+        }
+
+        return insertRow(row) >= 0;
+    }
+
+    /**
+     * <p>Finds the first member that matches the input (key, value).</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @return an immutable {@code Map} representation of the found
+     * member or null if member does not exist.
+     */
+    @Override
+    public Map<String, String> findOne(final String fieldKey, final String fieldValue) {
+        lock.readLock().lock();
+        try {
+            final int row = rowOf(fieldKey, fieldValue);
+
+            if (row < 0) {
+                return null;
+            }
+
+            return toMap(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Finds all members that match the input (key, value).</p>
+     *
+     * @param fieldKey field key of selected members.
+     * @param fieldValue field value of selected members.
+     * @return a {@code List} of immutable {@code Map} representations
+     * of found members or null is no member was found.
+     */
+    @Override
+    public List<Map<String, String>> find(final String fieldKey, final String fieldValue) {
+        lock.readLock().lock();
+        try {
+            if ((fieldKey == null) || (fieldValue == null)) {
+                return null;
+            }
+
+            final List<Map<String, String>> foundMembers = new ArrayList<>();
+
+            if (indexes.containsKey(fieldKey)) {
+                final int row = rowOf(fieldKey, fieldValue);
+
+                if (row >= 0) {
+                    foundMembers.add(toMap(row));
+                }
+            } else {
+                for (int row = liveRows.nextSetBit(0); row >= 0;
+                     row = liveRows.nextSetBit(row + 1)) {
+                    if (fieldValue.equals(format(row, fieldKey))) {
+                        foundMembers.add(toMap(row));
+                    }
+                }
+            }
+
+            if (foundMembers.isEmpty()) {
+                return null;
+            }
+
+            return foundMembers;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Finds all members whose list field contains one element.</p>
+     *
+     * @param fieldKey field key of the list field.
+     * @param element element contained by the selected members.
+     * @return a {@code List} of immutable {@code Map} representations
+     * of found members or null is no member was found or the field
+     * is not a list field.
+     */
+    @Override
+    public List<Map<String, String>> findContaining(final String fieldKey,
+                                                   final String element) {
+        lock.readLock().lock();
+        try {
+            if ((element == null) || (schema.typeOf(fieldKey) != FieldType.TEXT_LIST)) {
+                return null;
+            }
+
+            final BitSet foundRows = (BitSet) liveRows.clone();
+            retainContaining(foundRows, fieldKey, List.of(element));
+
+            if (foundRows.isEmpty()) {
+                return null;
+            }
+
+            final List<Map<String, String>> foundMembers = new ArrayList<>();
+            foundRows.stream().forEach(row -> foundMembers.add(toMap(row)));
+
+            return foundMembers;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Fetches all members from the collection, converted
+     * to their {@code Map} representation.</p>
+     *
+     * @return a {@code List} of immutable {@code Map} representations
+     * of all members or null if the collection is empty.
+     */
+    @Override
+    public List<Map<String, String>> getMembers() {
+        lock.readLock().lock();
+        try {
+            if (liveRows.isEmpty()) {
+                return null;
+            }
+
+            final List<Map<String, String>> foundMembers = new ArrayList<>();
+            rows().forEach(row -> foundMembers.add(toMap(row)));
+
+            return foundMembers;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Fetches the version of the first member that matches
+     * the input (key, value).</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @return the version of the member or -1 if member does not exist.
+     */
+    @Override
+    public long versionOf(final String fieldKey, final String fieldValue) {
+        lock.readLock().lock();
+        try {
+            final int row = rowOf(fieldKey, fieldValue);
+
+            if (row < 0) {
+                return -1;
+            }
+
+            final var stripe = stripeOf(row);
+
+            stripe.lock();
+            try {
+                return versions[row];
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Parses and modifies all the fields of a member that matches
+     * the input (key, value) pair from the collection.</p>
+     *
+     * @param fieldKey field key of the member.
+     * @param fieldValue field value of the member.
+     * @param fields new field data for the selected member.
+     * @return true if the member was modified and false if
+     * the member was not found, a field of the schema is missing
+     * or malformed, or the new data breaks one of the unique indexes.
+     */
+    @Override
+    public boolean modifyMember(final String fieldKey, final String fieldValue,
+                                final Map<String, String> fields) {
+        lock.writeLock().lock();
+        try {
+            final int row = rowOf(fieldKey, fieldValue);
+
+            if (row < 0) {
+                return false;
+            }
+
+            final var newRow = parseRow(fields);
+
+            if ((newRow == null) || violatesIndexes(newRow.texts, row)) {
+                return false;
+            }
+
+            final String key = keyOf(row);
+
+            removeFromIndexes(row);
+            writeRow(row, newRow);
+            ++versions[row];
+            addToIndexes(row);
+            log.modifyMember(keyField, key, fields);
+
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Parses and changes one field of the first member that
+     * matches the (key, value) pair.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param changeFieldKey field key that will be changed.
+     * @param changeFieldValue field value to change the selected field.
+     * @return true if the field of the member was modified or false
+     * if input data is null or malformed, the member or the field does
+     * not exist, or the new value breaks the unique index of the field.
+     */
+    @Override
+    public boolean modifyField(final String fieldKey, final String fieldValue,
+                               final String changeFieldKey, final String changeFieldValue) {
+        lock.writeLock().lock();
+        try {
+            final var fieldType = schema.typeOf(changeFieldKey);
+
+            if ((fieldType == null) || (changeFieldValue == null)) {
+                return false;
+            }
+
+            final int row = rowOf(fieldKey, fieldValue);
+
+            if (row < 0) {
+                return false;
+            }
+
+            return switch (fieldType) {
+                case TEXT -> setText(row, changeFieldKey, changeFieldValue);
+                case INT -> {
+                    final Integer value = parseInt(changeFieldValue);
+                    yield (value != null) && setInt(row, changeFieldKey, value);
+                }
+                case TEXT_LIST -> {
+                    removeFromIndexes(row);
+                    listColumns[schema.slotOf(changeFieldKey)][row] =
+                            parseList(changeFieldValue);
+                    ++versions[row];
+                    addToIndexes(row);
+                    log.modifyField(keyField, keyOf(row), changeFieldKey, changeFieldValue);
+
+                    yield true;
+                }
+                case SCORES -> {
+                    final var board = parseScores(changeFieldValue);
+
+                    if (board != null) {
+                        scoreColumns[schema.slotOf(changeFieldKey)][row] = board;
+                        ++versions[row];
+                        log.modifyField(keyField, keyOf(row), changeFieldKey, changeFieldValue);
+                    }
+
+                    yield board != null;
+                }
+            };
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Appends one element to a list field of the first member that
+     * matches the (key, value) pair, just the element is added to the
+     * posting lists and the exclusions of the field.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param listField the list field receiving the element.
+     * @param element the element to append.
+     * @return true if the element was appended or false if the
+     * member does not exist or the field is not a list field.
+     */
+    @Override
+    public boolean appendToList(final String fieldKey, final String fieldValue,
+                                final String listField, final String element) {
+        lock.writeLock().lock();
+        try {
+            final int row = rowOf(fieldKey, fieldValue);
+
+            if ((row < 0) || (element == null) || !createListField(listField)) {
+                return false;
+            }
+
+            final int fieldSlot = schema.slotOf(listField);
+            final int id = symbols.intern(element);
+            final int[] ids = Arrays.copyOf(listColumns[fieldSlot][row],
+                    listColumns[fieldSlot][row].length + 1);
+
+            ids[ids.length - 1] = id;
+            listColumns[fieldSlot][row] = ids;
+
+            final var fieldPostings = postings.get(listField);
+            if (fieldPostings != null) {
+                while (fieldPostings.size() <= id) {
+                    fieldPostings.add(null);
+                }
+
+                if (fieldPostings.get(id) == null) {
+                    fieldPostings.set(id, new BitSet());
+                }
+
+                fieldPostings.get(id).set(row);
+            }
+
+            final var excludingRows = exclusions.getOrDefault(listField, Map.of()).get(id);
+            if (excludingRows != null) {
+                excludingRows.clear(row);
+            }
+
+            ++versions[row];
+            log.appendToList(keyField, keyOf(row), listField, element);
+
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Removes the first occurrence of one element from a list field
+     * of the first member that matches the (key, value) pair, just the
+     * element is dropped from the posting lists and the exclusions
+     * of the field.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param listField the list field holding the element.
+     * @param element the element to remove.
+     * @return true if the element was removed or false if the member
+     * does not exist, the field is not a list field or the list has
+     * no such element.
+     */
+    @Override
+    public boolean removeFromList(final String fieldKey, final String fieldValue,
+                                  final String listField, final String element) {
+        lock.writeLock().lock();
+        try {
+            final int row = rowOf(fieldKey, fieldValue);
+
+            if ((row < 0) || !createListField(listField)) {
+                return false;
+            }
+
+            final int fieldSlot = schema.slotOf(listField);
+            final int id = symbols.idOf(element);
+            final int[] oldIds = listColumns[fieldSlot][row];
+
+            int position = 0;
+            while ((position < oldIds.length) && (oldIds[position] != id)) {
+                ++position;
+            }
+
+            if ((id < 0) || (position == oldIds.length)) {
+                return false;
+            }
+
+            final int[] ids = new int[oldIds.length - 1];
+            System.arraycopy(oldIds, 0, ids, 0, position);
+            System.arraycopy(oldIds, position + 1, ids, position, ids.length - position);
+            listColumns[fieldSlot][row] = ids;
+
+            if (!contains(ids, id)) {
+                final var fieldPostings = postings.get(listField);
+                if (fieldPostings != null) {
+                    fieldPostings.get(id).clear(row);
+                }
+
+                final var excludingRows = exclusions.getOrDefault(listField, Map.of()).get(id);
+                if (excludingRows != null) {
+                    excludingRows.set(row);
+                }
+            }
+
+            ++versions[row];
+            log.removeFromList(keyField, keyOf(row), listField, element);
+
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Deletes a member from the collection workspace, the row id
+     * of the member is never reused and its values are kept.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     */
+    @Override
+    public void delete(final String fieldKey, final String fieldValue) {
+        lock.writeLock().lock();
+        try {
+            final int row = rowOf(fieldKey, fieldValue);
+
+            if (row < 0) {
+                return;
+            }
+
+            log.delete(fieldKey, fieldValue);
+            removeFromIndexes(row);
+            liveRows.clear(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Fetches the slot of a field and checks its type.</p>
+     *
+     * @param field the name of the field.
+     * @param fieldType the expected type of the field.
+     * @return the slot of the field.
+     * @throws IllegalArgumentException if the field is unknown or
+     * has another type.
+     */
+    private int slot(final String field, final FieldType fieldType) {
+        if (schema.typeOf(field) != fieldType) {
+            throw new IllegalArgumentException("Field " + field + " is not of type " + fieldType);
+        }
+
+        return schema.slotOf(field);
+    }
+
+    private ReentrantLock stripeOf(final int row) {
+        return stripes[row % STRIPES_COUNT];
+    }
+
+    /**
+     * <p>Writes an integer field of a row while the stripe of the row
+     * is held, the write and its log record are made together.</p>
+     *
+     * @param row the row id of the member.
+     * @param field the name of the field.
+     * @param value the new value or the amount to add to the field.
+     * @param isAddition true if the value is added to the field
+     *                   or false if it replaces the field.
+     * @return true if the field was changed or false
+     * if the row is not live.
+     */
+    private boolean changeInt(final int row, final String field, final int value,
+                              final boolean isAddition) {
+        final int fieldSlot = slot(field, FieldType.INT);
+
+        lock.readLock().lock();
+        try {
+            if (!isLive(row)) {
+                return false;
+            }
+
+            final var stripe = stripeOf(row);
+
+            stripe.lock();
+            try {
+                if (isAddition) {
+                    intColumns[fieldSlot][row] += value;
+                } else {
+                    intColumns[fieldSlot][row] = value;
+                }
+
+                ++versions[row];
+
+                if (log.isEnabled()) {
+                    log.modifyField(keyField, keyOf(row), field,
+                            Integer.toString(intColumns[fieldSlot][row]));
+                }
+            } finally {
+                stripe.unlock();
+            }
+
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet postingsOf(final String field, final String value) {
+        final var fieldPostings = postings.get(field);
+
+        if (fieldPostings == null) {
+            return null;
+        }
+
+        final int id = symbols.idOf(value);
+
+        if ((id < 0) || (id >= fieldPostings.size()) || (fieldPostings.get(id) == null)) {
+            return new BitSet();
+        }
+
+        return fieldPostings.get(id);
+    }
+
+    private int insertRow(final RowBuilder newRow) {
+        lock.writeLock().lock();
+        try {
+            for (var text : newRow.texts) {
+                if (text == null) {
+                    return -1;
+                }
+            }
+
+            if (violatesIndexes(newRow.texts, -1)) {
+                return -1;
+            }
+
+            final int row = rowCount++;
+
+            ensureCapacity(rowCount);
+            writeRow(row, newRow);
+            versions[row] = 0;
+            liveRows.set(row);
+            addToIndexes(row);
+
+            if (log.isEnabled()) {
+                log.insert(toMap(row));
+            }
+
+            return row;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void writeRow(final int row, final RowBuilder newRow) {
+        for (int i = 0; i < textColumns.length; ++i) {
+            textColumns[i][row] = newRow.texts[i];
+        }
+
+        for (int i = 0; i < intColumns.length; ++i) {
+            intColumns[i][row] = newRow.ints[i];
+        }
+
+        for (int i = 0; i < listColumns.length; ++i) {
+            listColumns[i][row] = newRow.lists[i];
+        }
+
+        for (int i = 0; i < scoreColumns.length; ++i) {
+            scoreColumns[i][row] = newRow.boards[i];
+        }
+    }
+
+    private void ensureCapacity(final int capacity) {
+        final int length = versions.length;
+
+        if (capacity <= length) {
+            return;
+        }
+
+        final int newLength = Math.max(capacity, length * 2);
+        versions = Arrays.copyOf(versions, newLength);
+
+        for (int i = 0; i < textColumns.length; ++i) {
+            textColumns[i] = Arrays.copyOf(textColumns[i], newLength);
+        }
+
+        for (int i = 0; i < intColumns.length; ++i) {
+            intColumns[i] = Arrays.copyOf(intColumns[i], newLength);
+        }
+
+        for (int i = 0; i < listColumns.length; ++i) {
+            listColumns[i] = Arrays.copyOf(listColumns[i], newLength);
+        }
+
+        for (int i = 0; i < scoreColumns.length; ++i) {
+            scoreColumns[i] = Arrays.copyOf(scoreColumns[i], newLength);
+        }
+    }
+
+    private boolean violatesIndexes(final String[] texts, final int owner) {
+        for (var index : indexes.entrySet()) {
+            final Integer holder = index.getValue().get(texts[schema.slotOf(index.getKey())]);
+
+            if ((holder != null) && (holder != owner)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void addToIndexes(final int row) {
+        for (var index : indexes.entrySet()) {
+            index.getValue().put(textColumns[schema.slotOf(index.getKey())][row], row);
+        }
+
+        postings.forEach((field, fieldPostings) -> addPostings(row, field, fieldPostings));
+
+        prefixIndexes.forEach((field, index) ->
+                index.put(textColumns[schema.slotOf(field)][row], row));
+
+        exclusions.forEach((field, fieldExclusions) -> {
+            final int[] ids = listColumns[schema.slotOf(field)][row];
+
+            fieldExclusions.forEach((id, excludingRows) -> {
+                if (!contains(ids, id)) {
+                    excludingRows.set(row);
+                }
+            });
+        });
+    }
+
+    private void removeFromIndexes(final int row) {
+        for (var index : indexes.entrySet()) {
+            index.getValue().remove(textColumns[schema.slotOf(index.getKey())][row]);
+        }
+
+        postings.forEach((field, fieldPostings) -> removePostings(row, field, fieldPostings));
+
+        prefixIndexes.forEach((field, index) ->
+                index.remove(textColumns[schema.slotOf(field)][row]));
+
+        exclusions.forEach((field, fieldExclusions) ->
+                fieldExclusions.values().forEach(excludingRows -> excludingRows.clear(row)));
+    }
+
+    private void addPostings(final int row, final String field,
+                             final List<BitSet> fieldPostings) {
+        for (int id : listColumns[schema.slotOf(field)][row]) {
+            while (fieldPostings.size() <= id) {
+                fieldPostings.add(null);
+            }
+
+            if (fieldPostings.get(id) == null) {
+                fieldPostings.set(id, new BitSet());
+            }
+
+            fieldPostings.get(id).set(row);
+        }
+    }
+
+    private void removePostings(final int row, final String field,
+                                final List<BitSet> fieldPostings) {
+        for (int id : listColumns[schema.slotOf(field)][row]) {
+            fieldPostings.get(id).clear(row);
+        }
+    }
+
+    private static boolean contains(final int[] ids, final int id) {
+        for (int candidate : ids) {
+            if (candidate == id) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private int[] internAll(final List<String> values) {
+        if ((values == null) || values.isEmpty()) {
+            return NO_SYMBOLS;
+        }
+
+        final int[] ids = new int[values.size()];
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = symbols.intern(values.get(i));
+        }
+
+        return ids;
+    }
+
+    private int[] parseList(final String value) {
+        if (ListCodec.isEmpty(value)) {
+            return NO_SYMBOLS;
+        }
+
+        return internAll(ListCodec.decode(value));
+    }
+
+    /**
+     * <p>Parses the encoded list of "user:score" pairs of a scores field.</p>
+     *
+     * @param value the {@code String} representation of the scores.
+     * @return the parsed scores or null if a pair is malformed.
+     */
+    private static ScoreBoard parseScores(final String value) {
+        final var board = new ScoreBoard();
+
+        for (String pair : ListCodec.decode(value)) {
+            final int separator = pair.lastIndexOf(':');
+
+            if (separator < 0) {
+                return null;
+            }
+
+            final Integer score = parseInt(pair.substring(separator + 1));
+
+            if (score == null) {
+                return null;
+            }
+
+            board.put(pair.substring(0, separator), score);
+        }
+
+        return board;
+    }
+
+    private static Integer parseInt(final String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * <p>Parses the {@code Map} representation of a member.</p>
+     *
+     * @param fields the {@code Map} representation.
+     * @return a row builder holding the parsed values or null if a
+     * field of the schema is missing or malformed.
+     */
+    private RowBuilder parseRow(final Map<String, String> fields) {
+        if (fields == null) {
+            return null;
+        }
+
+        final var row = new RowBuilder();
+
+        for (var field : schema.getFields()) {
+            final String value = fields.get(field);
+
+            if (value == null) {
+                return null;
+            }
+
+            final int fieldSlot = schema.slotOf(field);
+
+            switch (schema.typeOf(field)) {
+                case TEXT -> row.texts[fieldSlot] = value;
+                case INT -> {
+                    final Integer parsedValue = parseInt(value);
+
+                    if (parsedValue == null) {
+                        return null;
+                    }
+
+                    row.ints[fieldSlot] = parsedValue;
+                }
+                case TEXT_LIST -> row.lists[fieldSlot] = parseList(value);
+                default -> {
+                    final var board = parseScores(value);
+
+                    if (board == null) {
+                        return null;
+                    }
+
+                    row.boards[fieldSlot] = board;
+                }
+            }
+        }
+
+        return row;
+    }
+
+    private String format(final int row, final String field) {
+        final var fieldType = schema.typeOf(field);
+
+        if (fieldType == null) {
+            return null;
+        }
+
+        final int fieldSlot = schema.slotOf(field);
+
+        return switch (fieldType) {
+            case TEXT -> textColumns[fieldSlot][row];
+            case INT -> Integer.toString(getInt(row, field));
+            case TEXT_LIST -> ListCodec.encode(getList(row, field));
+            case SCORES -> {
+                final var stripe = stripeOf(row);
+
+                stripe.lock();
+                try {
+                    final var board = scoreColumns[fieldSlot][row];
+
+                    if (board == null) {
+                        yield "";
+                    }
+
+                    yield board.toString();
+                } finally {
+                    stripe.unlock();
+                }
+            }
+        };
+    }
+
+    /**
+     * <p>Fetches the value identifying one row in the log.</p>
+     *
+     * @param row the row id of the member.
+     * @return the value of the key field or null if no text
+     * field is declared as a unique index.
+     */
+    private String keyOf(final int row) {
+        if (keyField == null) {
+            return null;
+        }
+
+        return textColumns[schema.slotOf(keyField)][row];
+    }
+
+    private Map<String, String> toMap(final int row) {
+        final Map<String, String> fields = new HashMap<>();
+
+        for (var field : schema.getFields()) {
+            fields.put(field, format(row, field));
+        }
+
+        return Collections.unmodifiableMap(fields);
+    }
+}
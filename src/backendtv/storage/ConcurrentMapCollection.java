@@ -0,0 +1,1046 @@
+package backendtv.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * <p>Collection of data that can be shared by many threads, stores a
+ * {@code Map} of String to String pairs, where first member is the key
+ * and the second the value of one field.</p>
+ *
+ * <p>Every member must hold the primary key of the collection, the
+ * members are kept in a {@code ConcurrentHashMap} by the value of their
+ * primary key. The writes are serialized by a lock stripe picked by the
+ * hash of the primary key, so writes of members living in different
+ * stripes never wait for each other.</p>
+ *
+ * <p>Every member is stored as an immutable snapshot published through
+ * a volatile field, so the reads take no lock and receive either the
+ * snapshot before or the snapshot after a concurrent write. The indexes
+ * are updated by the writer while holding its stripe, a lookup through an
+ * index racing with a write may return the member with its old or its new
+ * snapshot, so the readers should check the fields they select on.</p>
+ *
+ * <p>Every member keeps a version, published after its snapshot. A writer
+ * reads the version before the snapshot and passes it to the
+ * compare-and-set variants of the writes, which fail if another write
+ * was made meanwhile, so the writer can read the member again and retry
+ * instead of overwriting the other write.</p>
+ *
+ * <p>The fields declared as list fields are stored natively, every member
+ * keeps one {@code ElementList} per list field, so appending or removing
+ * an element touches just that element, in the list and in the list index
+ * of the field. The lists are encoded when the view of the member is
+ * created, so a view is an immutable snapshot of all the fields.</p>
+ *
+ * <p>The members are iterated in the order they were inserted. The writes
+ * are recorded in the log of the collection while the stripe of the member
+ * is held, so the log keeps the order of the writes of every member.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class ConcurrentMapCollection implements DataCollection {
+    private static final int STRIPES_COUNT = 16;
+    private static final long ANY_VERSION = -1;
+
+    private final String primaryKey;
+    private final ConcurrentMap<String, Member> members;
+    private final ConcurrentSkipListMap<Long, Member> insertionOrder;
+    private final AtomicLong insertions;
+    private final ReentrantLock[] stripes;
+    private final ConcurrentMap<String, ConcurrentMap<String, Member>> indexes;
+    private final ConcurrentMap<String, ConcurrentMap<String, Set<Member>>> listIndexes;
+    private final Set<String> listFields;
+    private volatile CollectionLog log;
+
+    /**
+     * <p>Slot of one member, holds the current snapshot of its
+     * fields, its lists and the number of writes of the member.</p>
+     */
+    private static final class Member {
+        private final long order;
+        private volatile Map<String, String> fields;
+        private volatile Map<String, ElementList> lists;
+        private volatile long version;
+
+        Member(final long initOrder, final Map<String, String> initFields,
+               final Map<String, ElementList> initLists) {
+            order = initOrder;
+            fields = initFields;
+            lists = initLists;
+            version = 0;
+        }
+
+        /**
+         * <p>Creates an immutable view of the member,
+         * encoding its lists once.</p>
+         *
+         * @return an immutable {@code Map} of all the fields.
+         */
+        Map<String, String> view() {
+            final var currentLists = lists;
+
+            if (currentLists.isEmpty()) {
+                return fields;
+            }
+
+            final Map<String, String> encoded = new HashMap<>(fields);
+            currentLists.forEach((fieldKey, list) -> encoded.put(fieldKey, list.encode()));
+
+            return Map.copyOf(encoded);
+        }
+    }
+
+    /**
+     * <p>Creates a new workspace for the members.</p>
+     *
+     * @param initPrimaryKey the field identifying the members, it is
+     *                       declared as a unique index.
+     */
+    public ConcurrentMapCollection(final String initPrimaryKey) {
+        primaryKey = initPrimaryKey;
+        members = new ConcurrentHashMap<>();
+        insertionOrder = new ConcurrentSkipListMap<>();
+        insertions = new AtomicLong();
+        stripes = new ReentrantLock[STRIPES_COUNT];
+        indexes = new ConcurrentHashMap<>();
+        listIndexes = new ConcurrentHashMap<>();
+        listFields = ConcurrentHashMap.newKeySet();
+        log = CollectionLog.DISABLED;
+
+        for (int stripe = 0; stripe < STRIPES_COUNT; ++stripe) {
+            stripes[stripe] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * <p>Declares a unique index on one field of the collection.</p>
+     *
+     * <p>Members already stored are indexed immediately, members
+     * that do not contain the field are not part of the index. All
+     * the stripes are locked while the index is built.</p>
+     *
+     * @param fieldKey field key to index.
+     * @return true if the index was created or false if the field
+     * is null, is a list field, is already indexed or two members
+     * share the same value.
+     */
+    @Override
+    public boolean createIndex(final String fieldKey) {
+        if ((fieldKey == null) || hasIndex(fieldKey) || listFields.contains(fieldKey)) {
+            return false;
+        }
+
+        lockAll();
+        try {
+            final ConcurrentMap<String, Member> index = new ConcurrentHashMap<>();
+            for (var member : insertionOrder.values()) {
+                final String fieldValue = member.fields.get(fieldKey);
+
+                if ((fieldValue != null) && (index.put(fieldValue, member) != null)) {
+                    return false;
+                }
+            }
+
+            indexes.put(fieldKey, index);
+        } finally {
+            unlockAll();
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Declares an inverted index on one list field of the collection,
+     * the field is declared as a list field if it is not one already.</p>
+     *
+     * <p>Members already stored are indexed immediately, members
+     * that do not contain the field are not part of the index. All
+     * the stripes are locked while the index is built.</p>
+     *
+     * @param fieldKey field key to index.
+     * @return true if the index was created or false if the field
+     * is null, is the primary key or is already indexed.
+     */
+    @Override
+    public boolean createListIndex(final String fieldKey) {
+        if ((fieldKey == null) || listIndexes.containsKey(fieldKey)) {
+            return false;
+        }
+
+        if (!listFields.contains(fieldKey) && !createListField(fieldKey)) {
+            return false;
+        }
+
+        lockAll();
+        try {
+            final ConcurrentMap<String, Set<Member>> listIndex = new ConcurrentHashMap<>();
+            for (var member : insertionOrder.values()) {
+                addToListIndex(member.lists.get(fieldKey), member, listIndex);
+            }
+
+            listIndexes.put(fieldKey, listIndex);
+        } finally {
+            unlockAll();
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Declares one field of the collection as a list field, the
+     * elements of the field are stored natively from now on.</p>
+     *
+     * <p>The field of the members already stored is decoded immediately,
+     * all the stripes are locked while the members are changed.</p>
+     *
+     * @param fieldKey field key to declare.
+     * @return true if the field was declared or false if the field
+     * is null, is the primary key or is already a list field.
+     */
+    @Override
+    public boolean createListField(final String fieldKey) {
+        if ((fieldKey == null) || fieldKey.equals(primaryKey)
+                || indexes.containsKey(fieldKey) || listFields.contains(fieldKey)) {
+            return false;
+        }
+
+        lockAll();
+        try {
+            listFields.add(fieldKey);
+
+            for (var member : insertionOrder.values()) {
+                final String fieldValue = member.fields.get(fieldKey);
+
+                if (fieldValue != null) {
+                    final Map<String, ElementList> lists = new HashMap<>(member.lists);
+                    lists.put(fieldKey, new ElementList(ListCodec.decode(fieldValue)));
+
+                    final Map<String, String> fields = new HashMap<>(member.fields);
+                    fields.remove(fieldKey);
+
+                    member.lists = Map.copyOf(lists);
+                    member.fields = Map.copyOf(fields);
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Checks if one field is declared as an index, the primary
+     * key is always an index.</p>
+     *
+     * @param fieldKey field key to check.
+     * @return true if the field is indexed or false otherwise.
+     */
+    @Override
+    public boolean hasIndex(final String fieldKey) {
+        if (fieldKey == null) {
+            return false;
+        }
+
+        return fieldKey.equals(primaryKey) || indexes.containsKey(fieldKey)
+                || listIndexes.containsKey(fieldKey);
+    }
+
+    /**
+     * <p>Attaches the collection to a log, every successful write
+     * of the collection is recorded in the log from now on.</p>
+     *
+     * @param initLog the log of the collection.
+     */
+    @Override
+    public void attachLog(final CollectionLog initLog) {
+        log = initLog;
+    }
+
+    /**
+     * <p>Inserts a new member in the collection workspace.</p>
+     *
+     * @param fields a {@code Map} object containing all data of
+     *               one member from the collection.
+     * @return true if the member was inserted or false if input data
+     * is null, contains null values, misses the primary key or the
+     * member breaks one of the unique indexes.
+     */
+    @Override
+    public boolean insert(final Map<String, String> fields) {
+        if (!isValid(fields) || !fields.containsKey(primaryKey)) {
+            return false;
+        }
+
+        final String key = fields.get(primaryKey);
+        final var stripe = stripeOf(key);
+
+        stripe.lock();
+        try {
+            if (members.containsKey(key)) {
+                return false;
+            }
+
+            final var member = new Member(insertions.getAndIncrement(), scalarsOf(fields),
+                    listsOf(fields));
+
+            if (!reserveIndexes(member, Map.of(), member.fields)) {
+                return false;
+            }
+
+            addToListIndexes(member, member.lists);
+            members.put(key, member);
+            insertionOrder.put(member.order, member);
+            log.insert(fields);
+        } finally {
+            stripe.unlock();
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Finds the first member that matches the input (key, value),
+     * without taking any lock.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @return a read-only view of the found member or null if
+     * member does not exist.
+     */
+    @Override
+    public Map<String, String> findOne(final String fieldKey, final String fieldValue) {
+        final var member = lookup(fieldKey, fieldValue);
+
+        if (member == null) {
+            return null;
+        }
+
+        return member.view();
+    }
+
+    /**
+     * <p>Finds all members that match the input (key, value),
+     * without taking any lock.</p>
+     *
+     * @param fieldKey field key of selected members.
+     * @param fieldValue field value of selected members.
+     * @return a {@code List} of read-only views of found members or
+     * null is no member was found.
+     */
+    @Override
+    public List<Map<String, String>> find(final String fieldKey, final String fieldValue) {
+        if ((fieldKey == null) || (fieldValue == null)) {
+            return null;
+        }
+
+        final List<Map<String, String>> foundMembers = new ArrayList<>();
+
+        if (fieldKey.equals(primaryKey) || indexes.containsKey(fieldKey)) {
+            final var member = lookup(fieldKey, fieldValue);
+
+            if (member != null) {
+                foundMembers.add(member.view());
+            }
+        } else {
+            for (var member : insertionOrder.values()) {
+                if (fieldValue.equals(valueOf(member, fieldKey))) {
+                    foundMembers.add(member.view());
+                }
+            }
+        }
+
+        if (foundMembers.isEmpty()) {
+            return null;
+        }
+
+        return foundMembers;
+    }
+
+    /**
+     * <p>Finds all members whose list field contains one element,
+     * using the list index of the field if one is declared.</p>
+     *
+     * @param fieldKey field key of the list field.
+     * @param element element contained by the selected members.
+     * @return a {@code List} of read-only views of found members or
+     * null is no member was found.
+     */
+    @Override
+    public List<Map<String, String>> findContaining(final String fieldKey,
+                                                   final String element) {
+        if ((fieldKey == null) || (element == null)) {
+            return null;
+        }
+
+        final List<Map<String, String>> foundMembers = new ArrayList<>();
+
+        final var listIndex = listIndexes.get(fieldKey);
+        if (listIndex != null) {
+            for (var member : listIndex.getOrDefault(element, Set.of())) {
+                foundMembers.add(member.view());
+            }
+        } else {
+            for (var member : insertionOrder.values()) {
+                final var list = member.lists.get(fieldKey);
+                final String fieldValue = member.fields.get(fieldKey);
+
+                if (((list != null) && list.contains(element)) || ((fieldValue != null)
+                        && ListCodec.decode(fieldValue).contains(element))) {
+                    foundMembers.add(member.view());
+                }
+            }
+        }
+
+        if (foundMembers.isEmpty()) {
+            return null;
+        }
+
+        return foundMembers;
+    }
+
+    /**
+     * <p>Fetches all members from the collection.</p>
+     *
+     * <p>The members are copied in a new list while the collection
+     * may change, so the list holds every member that was not inserted
+     * or deleted during the copy.</p>
+     *
+     * @return a read-only {@code List} of the views of all
+     * members from the collection or null if the collection
+     * is empty.
+     */
+    @Override
+    public List<Map<String, String>> getMembers() {
+        final List<Map<String, String>> views = new ArrayList<>();
+
+        for (var member : insertionOrder.values()) {
+            views.add(member.view());
+        }
+
+        if (views.isEmpty()) {
+            return null;
+        }
+
+        return List.copyOf(views);
+    }
+
+    /**
+     * <p>Fetches the version of the first member that matches the
+     * input (key, value), without taking any lock.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @return the version of the member or -1 if member does not exist.
+     */
+    @Override
+    public long versionOf(final String fieldKey, final String fieldValue) {
+        final var member = lookup(fieldKey, fieldValue);
+
+        if (member == null) {
+            return -1;
+        }
+
+        return member.version;
+    }
+
+    /**
+     * <p>Modifies all the fields of a member that matches
+     * the input (key, value) pair from the collection.</p>
+     *
+     * <p>The new fields must keep the primary key of the member.</p>
+     *
+     * @param fieldKey field key of the member.
+     * @param fieldValue field value of the member.
+     * @param fields new field data for the selected member.
+     * @return true if the member was modified and false if
+     * input data is null, member was not found, the primary key
+     * changes or the new data breaks one of the unique indexes.
+     */
+    @Override
+    public boolean modifyMember(final String fieldKey, final String fieldValue,
+                                final Map<String, String> fields) {
+        return modifyMember(fieldKey, fieldValue, fields, ANY_VERSION);
+    }
+
+    /**
+     * <p>Modifies all the fields of a member that matches the input
+     * (key, value) pair, just if the version of the member is still
+     * the expected one when the stripe of the member is locked.</p>
+     *
+     * <p>The list fields of the member are replaced by new lists, so
+     * the views read before the write keep the old lists.</p>
+     *
+     * @param fieldKey field key of the member.
+     * @param fieldValue field value of the member.
+     * @param fields new field data for the selected member.
+     * @param expectedVersion the version read before computing the new data.
+     * @return true if the member was modified or false if the version
+     * changed or the member could not be modified.
+     */
+    @Override
+    public boolean modifyMember(final String fieldKey, final String fieldValue,
+                                final Map<String, String> fields, final long expectedVersion) {
+        if (!isValid(fields)) {
+            return false;
+        }
+
+        return write(fieldKey, fieldValue, expectedVersion, member -> {
+            final String key = member.fields.get(primaryKey);
+            final var oldFields = member.fields;
+            final var newFields = scalarsOf(fields);
+
+            if (!key.equals(newFields.get(primaryKey))
+                    || !reserveIndexes(member, oldFields, newFields)) {
+                return false;
+            }
+
+            final var oldLists = member.lists;
+            final var newLists = listsOf(fields);
+
+            addToListIndexes(member, newLists);
+            member.fields = newFields;
+            member.lists = newLists;
+            releaseIndexes(member, oldFields, newFields);
+            removeStaleListEntries(member, oldLists, newLists);
+            log.modifyMember(primaryKey, key, fields);
+
+            return true;
+        });
+    }
+
+    /**
+     * <p>Modifies the first member that matches the (key, value) pair
+     * and changes the value of one of its fields, the primary key
+     * cannot be changed.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param changeFieldKey field key that will be changed.
+     * @param changeFieldValue field value to change the selected field.
+     * @return true if the field of the member was modified or false
+     * if input data is null, member does not exist or the new value
+     * breaks one of the unique indexes.
+     */
+    @Override
+    public boolean modifyField(final String fieldKey, final String fieldValue,
+                               final String changeFieldKey, final String changeFieldValue) {
+        return modifyField(fieldKey, fieldValue, changeFieldKey, changeFieldValue,
+                ANY_VERSION);
+    }
+
+    /**
+     * <p>Changes the value of one field of the first member that matches
+     * the (key, value) pair, just if the version of the member is still
+     * the expected one when the stripe of the member is locked.</p>
+     *
+     * <p>Just the indexes of the changed field are updated, a list
+     * field receives a new list built from the encoded value.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param changeFieldKey field key that will be changed.
+     * @param changeFieldValue field value to change the selected field.
+     * @param expectedVersion the version read before computing the new value.
+     * @return true if the field was modified or false if the version
+     * changed or the field could not be modified.
+     */
+    @Override
+    public boolean modifyField(final String fieldKey, final String fieldValue,
+                               final String changeFieldKey, final String changeFieldValue,
+                               final long expectedVersion) {
+        if ((changeFieldKey == null) || (changeFieldValue == null)
+                || changeFieldKey.equals(primaryKey)) {
+            return false;
+        }
+
+        return write(fieldKey, fieldValue, expectedVersion, member -> {
+            final String key = member.fields.get(primaryKey);
+
+            if (listFields.contains(changeFieldKey)) {
+                final var oldList = member.lists.get(changeFieldKey);
+
+                if (oldList == null) {
+                    return false;
+                }
+
+                final Map<String, ElementList> changedLists = new HashMap<>(member.lists);
+                changedLists.put(changeFieldKey,
+                        new ElementList(ListCodec.decode(changeFieldValue)));
+
+                final var oldLists = member.lists;
+                final var newLists = Map.copyOf(changedLists);
+
+                addToListIndexes(member, Map.of(changeFieldKey,
+                        newLists.get(changeFieldKey)));
+                member.lists = newLists;
+                removeStaleListEntries(member, oldLists, newLists);
+            } else {
+                if (!member.fields.containsKey(changeFieldKey)) {
+                    return false;
+                }
+
+                final Map<String, String> changedFields = new HashMap<>(member.fields);
+                changedFields.put(changeFieldKey, changeFieldValue);
+
+                final var oldFields = member.fields;
+                final var newFields = Map.copyOf(changedFields);
+
+                if (!reserveIndexes(member, oldFields, newFields)) {
+                    return false;
+                }
+
+                member.fields = newFields;
+                releaseIndexes(member, oldFields, newFields);
+            }
+
+            log.modifyField(primaryKey, key, changeFieldKey, changeFieldValue);
+
+            return true;
+        });
+    }
+
+    /**
+     * <p>Appends one element to a list field of the first member that
+     * matches the (key, value) pair, while the stripe of the member is
+     * locked, so no other write of the member is lost.</p>
+     *
+     * <p>Just the element is added to the list and to the
+     * list index of the field.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param listField the list field receiving the element.
+     * @param element the element to append.
+     * @return true if the element was appended or false if the
+     * member does not exist or the field is not a list field
+     * of the member.
+     */
+    @Override
+    public boolean appendToList(final String fieldKey, final String fieldValue,
+                                final String listField, final String element) {
+        if ((listField == null) || (element == null)) {
+            return false;
+        }
+
+        return write(fieldKey, fieldValue, ANY_VERSION, member -> {
+            final var list = member.lists.get(listField);
+
+            if (list == null) {
+                return false;
+            }
+
+            list.add(element);
+
+            final var listIndex = listIndexes.get(listField);
+            if (listIndex != null) {
+                addHolder(listIndex, element, member);
+            }
+
+            log.appendToList(primaryKey, member.fields.get(primaryKey), listField, element);
+
+            return true;
+        });
+    }
+
+    /**
+     * <p>Removes the first occurrence of one element from a list field
+     * of the first member that matches the (key, value) pair, while the
+     * stripe of the member is locked.</p>
+     *
+     * <p>Just the element is removed from the list, the member is dropped
+     * from the list index of the field if the list holds no other
+     * occurrence of the element.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param listField the list field holding the element.
+     * @param element the element to remove.
+     * @return true if the element was removed or false if the member
+     * does not exist, the field is not a list field of the member or
+     * the list has no such element.
+     */
+    @Override
+    public boolean removeFromList(final String fieldKey, final String fieldValue,
+                                  final String listField, final String element) {
+        if (listField == null) {
+            return false;
+        }
+
+        return write(fieldKey, fieldValue, ANY_VERSION, member -> {
+            final var list = member.lists.get(listField);
+
+            if ((list == null) || !list.remove(element)) {
+                return false;
+            }
+
+            final var listIndex = listIndexes.get(listField);
+            if ((listIndex != null) && !list.contains(element)) {
+                removeHolder(listIndex, element, member);
+            }
+
+            log.removeFromList(primaryKey, member.fields.get(primaryKey), listField, element);
+
+            return true;
+        });
+    }
+
+    /**
+     * <p>Deletes a member from the collection workspace.</p>
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     */
+    @Override
+    public void delete(final String fieldKey, final String fieldValue) {
+        if ((fieldKey == null) || (fieldValue == null)) {
+            return;
+        }
+
+        final List<Member> selected = new ArrayList<>();
+
+        if (fieldKey.equals(primaryKey) || indexes.containsKey(fieldKey)) {
+            final var member = lookup(fieldKey, fieldValue);
+
+            if (member != null) {
+                selected.add(member);
+            }
+        } else {
+            for (var member : insertionOrder.values()) {
+                if (fieldValue.equals(valueOf(member, fieldKey))) {
+                    selected.add(member);
+                }
+            }
+        }
+
+        for (var member : selected) {
+            final String key = member.fields.get(primaryKey);
+            final var stripe = stripeOf(key);
+
+            stripe.lock();
+            try {
+                if (members.remove(key, member)) {
+                    insertionOrder.remove(member.order);
+                    releaseIndexes(member, member.fields, Map.of());
+                    removeStaleListEntries(member, member.lists, Map.of());
+                    log.delete(primaryKey, key);
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+    }
+
+    /**
+     * <p>Changes one member while holding the stripe of the member,
+     * the version of the member grows if the change is made.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param expectedVersion the version the member must have, or
+     *                        {@code ANY_VERSION} to skip the check.
+     * @param change changes the member and records the write in the log,
+     *               or returns false to cancel the write before any change.
+     * @return true if the member was modified or false otherwise.
+     */
+    private boolean write(final String fieldKey, final String fieldValue,
+                          final long expectedVersion, final Predicate<Member> change) {
+        final var found = lookup(fieldKey, fieldValue);
+
+        if (found == null) {
+            return false;
+        }
+
+        final String key = found.fields.get(primaryKey);
+        final var stripe = stripeOf(key);
+
+        stripe.lock();
+        try {
+            final var member = members.get(key);
+
+            if ((member == null) || !fieldValue.equals(valueOf(member, fieldKey))) {
+                return false;
+            }
+
+            if ((expectedVersion != ANY_VERSION) && (member.version != expectedVersion)) {
+                return false;
+            }
+
+            if (!change.test(member)) {
+                return false;
+            }
+
+            member.version = member.version + 1;
+        } finally {
+            stripe.unlock();
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Finds the stored member that matches the (key, value) pair,
+     * using the primary key or the index of the field if one is
+     * declared.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @return the stored member or null if the member does not exist.
+     */
+    private Member lookup(final String fieldKey, final String fieldValue) {
+        if ((fieldKey == null) || (fieldValue == null)) {
+            return null;
+        }
+
+        if (fieldKey.equals(primaryKey)) {
+            return members.get(fieldValue);
+        }
+
+        final var index = indexes.get(fieldKey);
+        if (index != null) {
+            return index.get(fieldValue);
+        }
+
+        for (var member : insertionOrder.values()) {
+            if (fieldValue.equals(valueOf(member, fieldKey))) {
+                return member;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * <p>Reads one field of a member, a list field being encoded.</p>
+     *
+     * @param member the member to read.
+     * @param fieldKey field key to read.
+     * @return the value of the field or null if the member
+     * does not contain the field.
+     */
+    private static String valueOf(final Member member, final String fieldKey) {
+        final var list = member.lists.get(fieldKey);
+
+        if (list != null) {
+            return list.encode();
+        }
+
+        return member.fields.get(fieldKey);
+    }
+
+    /**
+     * <p>Keeps the fields that are not list fields.</p>
+     *
+     * @param fields field data of one member.
+     * @return an immutable {@code Map} of the other fields.
+     */
+    private Map<String, String> scalarsOf(final Map<String, String> fields) {
+        final Map<String, String> scalars = new HashMap<>(fields);
+        scalars.keySet().removeAll(listFields);
+
+        return Map.copyOf(scalars);
+    }
+
+    /**
+     * <p>Decodes the list fields in new native lists.</p>
+     *
+     * @param fields field data of one member.
+     * @return an immutable {@code Map} of the decoded lists.
+     */
+    private Map<String, ElementList> listsOf(final Map<String, String> fields) {
+        final Map<String, ElementList> lists = new HashMap<>();
+
+        for (var listField : listFields) {
+            final String fieldValue = fields.get(listField);
+
+            if (fieldValue != null) {
+                lists.put(listField, new ElementList(ListCodec.decode(fieldValue)));
+            }
+        }
+
+        return Map.copyOf(lists);
+    }
+
+    private ReentrantLock stripeOf(final String key) {
+        return stripes[Math.floorMod(key.hashCode(), STRIPES_COUNT)];
+    }
+
+    private void lockAll() {
+        for (var stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int stripe = STRIPES_COUNT - 1; stripe >= 0; --stripe) {
+            stripes[stripe].unlock();
+        }
+    }
+
+    private static boolean isValid(final Map<String, String> fields) {
+        if (fields == null) {
+            return false;
+        }
+
+        for (var fieldValue : fields.values()) {
+            if (fieldValue == null) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Claims the new values of the member in the unique indexes,
+     * the claims made so far are dropped if one value is held by
+     * another member.</p>
+     *
+     * @param member the member that will hold the new fields.
+     * @param oldFields the current fields of the member.
+     * @param newFields the new fields of the member.
+     * @return true if all the values were claimed or false otherwise.
+     */
+    private boolean reserveIndexes(final Member member, final Map<String, String> oldFields,
+                                   final Map<String, String> newFields) {
+        final List<Map.Entry<ConcurrentMap<String, Member>, String>> claims = new ArrayList<>();
+
+        for (var index : indexes.entrySet()) {
+            final String newValue = newFields.get(index.getKey());
+
+            if ((newValue == null) || newValue.equals(oldFields.get(index.getKey()))) {
+                continue;
+            }
+
+            final var holder = index.getValue().putIfAbsent(newValue, member);
+
+            if ((holder != null) && (holder != member)) {
+                for (var claim : claims) {
+                    claim.getKey().remove(claim.getValue(), member);
+                }
+
+                return false;
+            }
+
+            claims.add(Map.entry(index.getValue(), newValue));
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Drops the old values of the member from the unique indexes.</p>
+     *
+     * @param member the member holding the values.
+     * @param oldFields the previous fields of the member.
+     * @param newFields the current fields of the member.
+     */
+    private void releaseIndexes(final Member member, final Map<String, String> oldFields,
+                                final Map<String, String> newFields) {
+        for (var index : indexes.entrySet()) {
+            final String oldValue = oldFields.get(index.getKey());
+
+            if ((oldValue != null) && !oldValue.equals(newFields.get(index.getKey()))) {
+                index.getValue().remove(oldValue, member);
+            }
+        }
+    }
+
+    private void addToListIndexes(final Member member, final Map<String, ElementList> lists) {
+        lists.forEach((fieldKey, list) -> {
+            final var listIndex = listIndexes.get(fieldKey);
+
+            if (listIndex != null) {
+                addToListIndex(list, member, listIndex);
+            }
+        });
+    }
+
+    /**
+     * <p>Drops the member from the elements that were in its old
+     * lists and are not in the new ones, the lists that were
+     * not replaced are skipped.</p>
+     *
+     * @param member the member holding the lists.
+     * @param oldLists the previous lists of the member.
+     * @param newLists the current lists of the member.
+     */
+    private void removeStaleListEntries(final Member member,
+                                        final Map<String, ElementList> oldLists,
+                                        final Map<String, ElementList> newLists) {
+        listIndexes.forEach((fieldKey, listIndex) -> {
+            final var oldList = oldLists.get(fieldKey);
+            final var newList = newLists.get(fieldKey);
+
+            if ((oldList == null) || (oldList == newList)) {
+                return;
+            }
+
+            final Set<String> kept = (newList == null)
+                    ? Set.of() : new HashSet<>(newList.toList());
+
+            for (var element : oldList) {
+                if (!kept.contains(element)) {
+                    removeHolder(listIndex, element, member);
+                }
+            }
+        });
+    }
+
+    /**
+     * <p>Adds a member to the holders of one element, while the entry
+     * of the element is locked, so the holders are never added to a set
+     * dropped meanwhile from the list index.</p>
+     *
+     * @param listIndex the list index of the field.
+     * @param element the element of the list.
+     * @param member the member holding the element.
+     */
+    private static void addHolder(final ConcurrentMap<String, Set<Member>> listIndex,
+                                  final String element, final Member member) {
+        listIndex.compute(element, (key, holders) -> {
+            final Set<Member> elementHolders = (holders == null)
+                    ? ConcurrentHashMap.newKeySet() : holders;
+            elementHolders.add(member);
+
+            return elementHolders;
+        });
+    }
+
+    /**
+     * <p>Drops a member from the holders of one element, the
+     * element is dropped from the list index once no member holds it.</p>
+     *
+     * @param listIndex the list index of the field.
+     * @param element the element of the list.
+     * @param member the member that no longer holds the element.
+     */
+    private static void removeHolder(final ConcurrentMap<String, Set<Member>> listIndex,
+                                     final String element, final Member member) {
+        listIndex.computeIfPresent(element, (key, holders) -> {
+            holders.remove(member);
+
+            return holders.isEmpty() ? null : holders;
+        });
+    }
+
+    private static void addToListIndex(final ElementList list, final Member member,
+                                       final ConcurrentMap<String, Set<Member>> listIndex) {
+        if (list != null) {
+            for (var element : list) {
+                addHolder(listIndex, element, member);
+            }
+        }
+    }
+}
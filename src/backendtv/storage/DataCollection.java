@@ -1,116 +1,129 @@
 package backendtv.storage;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- * <p>Collection of data, stores a {@code Map} of String to String pairs,
- * where first member is the key and the second the value of one field.</p>
+ * <p>Collection of data, every member of the collection is seen as a
+ * {@code Map} of String to String pairs, where first member is the key
+ * and the second the value of one field.</p>
  *
- * <p>The Class acts like a real database collection and perform basic
+ * <p>The Interface acts like a real database collection and perform basic
  * actions like inserting, finding and modifying a member
- * or a specific field from the member.</p>
+ * or a specific field from the member. The layout used to store
+ * the members is left to the implementations.</p>
+ *
+ * <p>The list fields are seen as lists encoded by the {@code ListCodec},
+ * while the collections are free to store them natively. A list field
+ * can be changed element by element through the list methods of the
+ * interface.</p>
  *
  * @since 1.0.0
  * @author Mihai Negru
  */
-public final class DataCollection {
-    private final List<Map<String, String>> members;
+public interface DataCollection {
 
     /**
-     * <p>Creates a new workspace for the members.</p>
+     * <p>Declares a unique index on one field of the collection.</p>
+     *
+     * @param fieldKey field key to index.
+     * @return true if the index was created or false otherwise.
      */
-    public DataCollection() {
-        members = new ArrayList<>();
-    }
+    boolean createIndex(String fieldKey);
+
+    /**
+     * <p>Checks if one field is declared as an index.</p>
+     *
+     * @param fieldKey field key to check.
+     * @return true if the field is indexed or false otherwise.
+     */
+    boolean hasIndex(String fieldKey);
+
+    /**
+     * <p>Declares an inverted index on one list field of the collection,
+     * a list field holding its elements separated by commas.</p>
+     *
+     * @param fieldKey field key to index.
+     * @return true if the index was created or false otherwise.
+     */
+    boolean createListIndex(String fieldKey);
+
+    /**
+     * <p>Declares one field of the collection as a list field, so the
+     * collection may store its elements natively, a list field holding
+     * its elements encoded by the {@code ListCodec} when it is read.</p>
+     *
+     * @param fieldKey field key to declare.
+     * @return true if the field is a list field of the collection
+     * or false otherwise.
+     */
+    boolean createListField(String fieldKey);
+
+    /**
+     * <p>Attaches the collection to a log, every successful write
+     * of the collection is recorded in the log from now on.</p>
+     *
+     * @param log the log of the collection.
+     */
+    void attachLog(CollectionLog log);
 
     /**
      * <p>Inserts a new member in the collection workspace.</p>
      *
      * @param fields a {@code Map} object containing all data of
      *               one member from the collection.
+     * @return true if the member was inserted or false otherwise.
      */
-    public void insert(final Map<String, String> fields) {
-        if (fields == null) {
-            return;
-        }
-
-        members.add(new HashMap<>(fields));
-    }
+    boolean insert(Map<String, String> fields);
 
     /**
      * <p>Finds the first member that matches the input (key, value).</p>
      *
      * @param fieldKey field key of the selected member.
      * @param fieldValue field value of the selected member.
-     * @return a copy object of the found member or null if
+     * @return an immutable view of the found member or null if
      * member does not exist.
      */
-    public Map<String, String> findOne(final String fieldKey, final String fieldValue) {
-        if ((fieldKey == null) || (fieldValue == null)) {
-            return null;
-        }
-
-        for (var member : members) {
-            if (member.containsKey(fieldKey) && member.get(fieldKey).equals(fieldValue)) {
-                return new HashMap<>(member);
-            }
-        }
-
-        return null;
-    }
+    Map<String, String> findOne(String fieldKey, String fieldValue);
 
     /**
      * <p>Finds all members that match the input (key, value).</p>
      *
      * @param fieldKey field key of selected members.
      * @param fieldValue field value of selected members.
-     * @return a {@code List} of copy objects of found members or
+     * @return a {@code List} of immutable views of found members or
      * null is no member was found.
      */
-    public List<Map<String, String>> find(final String fieldKey, final String fieldValue) {
-        if ((fieldKey == null) || (fieldValue == null)) {
-            return null;
-        }
-
-        final List<Map<String, String>> foundMembers = new ArrayList<>();
-
-        for (var member : members) {
-            if (member.containsKey(fieldKey) && member.get(fieldKey).equals(fieldValue)) {
-                foundMembers.add(new HashMap<>(member));
-            }
-        }
-
-        if (foundMembers.isEmpty()) {
-            return null;
-        }
-
-        return foundMembers;
-    }
+    List<Map<String, String>> find(String fieldKey, String fieldValue);
 
     /**
-     * <p>Fetches all members from the collection and returns
-     * copies of them.</p>
+     * <p>Finds all members whose list field contains one element.</p>
      *
-     * @return a {@code List} of copy objects of all members
-     * from the database collection or null is no member
-     * was returned.
+     * @param fieldKey field key of the list field.
+     * @param element element contained by the selected members.
+     * @return a {@code List} of immutable views of found members or
+     * null is no member was found.
      */
-    public List<Map<String, String>> getMembers() {
-        final List<Map<String, String>> foundMembers = new ArrayList<>();
+    List<Map<String, String>> findContaining(String fieldKey, String element);
 
-        for (var member : members) {
-            foundMembers.add(new HashMap<>(member));
-        }
-
-        if (foundMembers.isEmpty()) {
-            return null;
-        }
+    /**
+     * <p>Fetches all members from the collection.</p>
+     *
+     * @return a read-only {@code List} of all members from the
+     * collection or null if the collection is empty.
+     */
+    List<Map<String, String>> getMembers();
 
-        return foundMembers;
-    }
+    /**
+     * <p>Fetches the version of the first member that matches the
+     * input (key, value), the version of a member starts at 0 and
+     * grows with every write of the member.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @return the version of the member or -1 if member does not exist.
+     */
+    long versionOf(String fieldKey, String fieldValue);
 
     /**
      * <p>Modifies all the fields of a member that matches
@@ -119,73 +132,118 @@ public final class DataCollection {
      * @param fieldKey field key of the member.
      * @param fieldValue field value of the member.
      * @param fields new field data for the selected member.
-     * @return true if the member was modified and false if
-     * input data is null or member was not found.
+     * @return true if the member was modified or false otherwise.
      */
-    public boolean modifyMember(final String fieldKey, final String fieldValue,
-                                final Map<String, String> fields) {
-        if ((fieldKey == null) || (fieldValue == null) || (fields == null)) {
-            return false;
-        }
-
-        for (var member : members) {
-            if (member.containsKey(fieldKey) && member.get(fieldKey).equals(fieldValue)) {
-                member.clear();
-                member.putAll(fields);
+    boolean modifyMember(String fieldKey, String fieldValue, Map<String, String> fields);
 
-                return true;
-            }
-        }
-
-        return false;
+    /**
+     * <p>Modifies all the fields of a member that matches the input
+     * (key, value) pair, just if the member was not written since
+     * its version was read.</p>
+     *
+     * <p>The default implementation suits the collections that are
+     * used by one thread at a time.</p>
+     *
+     * @param fieldKey field key of the member.
+     * @param fieldValue field value of the member.
+     * @param fields new field data for the selected member.
+     * @param expectedVersion the version read before computing the new data.
+     * @return true if the member was modified or false if the version
+     * changed or the member could not be modified.
+     */
+    default boolean modifyMember(String fieldKey, String fieldValue,
+                                 Map<String, String> fields, long expectedVersion) {
+        return (versionOf(fieldKey, fieldValue) == expectedVersion)
+                && modifyMember(fieldKey, fieldValue, fields);
     }
 
     /**
      * <p>Modifies the first member that matches the (key, value) pair
-     * and changes a field value, however if the changing field.</p>
+     * and changes the value of one of its fields.</p>
      *
      * @param fieldKey field key of the selected member.
      * @param fieldValue field value of the selected member.
      * @param changeFieldKey field key that will be changed.
      * @param changeFieldValue field value to change the selected field.
-     * @return true if the field of the member was modified or false
-     * if input data is null, or member does not exist.
-     */
-    public boolean modifyField(final String fieldKey, final String fieldValue,
-                               final String changeFieldKey, final String changeFieldValue) {
-        if ((fieldKey == null) || (fieldValue == null)
-                || (changeFieldKey == null) || (changeFieldValue == null)) {
-            return false;
-        }
+     * @return true if the field of the member was modified or false otherwise.
+     */
+    boolean modifyField(String fieldKey, String fieldValue,
+                        String changeFieldKey, String changeFieldValue);
+
+    /**
+     * <p>Changes the value of one field of the first member that matches
+     * the (key, value) pair, just if the member was not written since its
+     * version was read.</p>
+     *
+     * <p>The default implementation suits the collections that are
+     * used by one thread at a time.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param changeFieldKey field key that will be changed.
+     * @param changeFieldValue field value to change the selected field.
+     * @param expectedVersion the version read before computing the new value.
+     * @return true if the field was modified or false if the version
+     * changed or the field could not be modified.
+     */
+    default boolean modifyField(String fieldKey, String fieldValue, String changeFieldKey,
+                                String changeFieldValue, long expectedVersion) {
+        return (versionOf(fieldKey, fieldValue) == expectedVersion)
+                && modifyField(fieldKey, fieldValue, changeFieldKey, changeFieldValue);
+    }
 
-        for (var member : members) {
-            if (member.containsKey(fieldKey) && member.get(fieldKey).equals(fieldValue)
-                    && member.containsKey(changeFieldKey)) {
-                member.put(changeFieldKey, changeFieldValue);
+    /**
+     * <p>Reads one list field of the first member that matches
+     * the (key, value) pair.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param listField the list field to read.
+     * @return a new {@code List} of the elements of the field or null
+     * if the member or the field does not exist.
+     */
+    default List<String> findList(String fieldKey, String fieldValue, String listField) {
+        final var member = findOne(fieldKey, fieldValue);
 
-                return true;
-            }
+        if ((member == null) || (member.get(listField) == null)) {
+            return null;
         }
 
-        return false;
+        return ListCodec.decode(member.get(listField));
     }
 
     /**
-     * <p>Deletes a member from the collection workspace.</p>
+     * <p>Appends one element to a list field of the first member that
+     * matches the (key, value) pair, the elements already in the list
+     * are neither decoded nor copied.</p>
+     *
      * @param fieldKey field key of the selected member.
      * @param fieldValue field value of the selected member.
+     * @param listField the list field receiving the element.
+     * @param element the element to append.
+     * @return true if the element was appended or false if the
+     * member or the field does not exist.
      */
-    public void delete(final String fieldKey, final String fieldValue) {
-        if ((fieldKey == null) || (fieldValue == null)) {
-            return;
-        }
+    boolean appendToList(String fieldKey, String fieldValue, String listField, String element);
 
-        members.removeIf(member -> {
-            if (!member.containsKey(fieldKey)) {
-                return false;
-            }
+    /**
+     * <p>Removes the first occurrence of one element from a list field
+     * of the first member that matches the (key, value) pair.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param listField the list field holding the element.
+     * @param element the element to remove.
+     * @return true if the element was removed or false if the member
+     * or the field does not exist or the list has no such element.
+     */
+    boolean removeFromList(String fieldKey, String fieldValue, String listField, String element);
 
-            return member.get(fieldKey).equals(fieldValue);
-        });
-    }
+    /**
+     * <p>Deletes a member from the collection workspace.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     */
+    void delete(String fieldKey, String fieldValue);
 }
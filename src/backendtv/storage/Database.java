@@ -1,7 +1,12 @@
 package backendtv.storage;
 
-import java.util.HashMap;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>Singleton class maintaining basic functionalities of a database.</p>
@@ -9,17 +14,29 @@ import java.util.Map;
  * <p>The Class is a follows the singleton design pattern, because we
  * should not have more than one instance of a database on our server.</p>
  *
+ * <p>The collections are registered in a concurrent map, so they can
+ * be fetched by many threads.</p>
+ *
+ * <p>The database can be attached to a {@code WriteAheadLog}, in which
+ * case every collection records its writes in the log, so the
+ * collections can be rebuilt by replaying the log.</p>
+ *
+ * <p>The members of all the collections can also be dumped in a binary
+ * snapshot and loaded back, after the collections are created.</p>
+ *
  * @since 1.0.0
  * @author Mihai Negru
  */
 public final class Database {
     private final Map<String, DataCollection> collections;
+    private WriteAheadLog log;
 
     /**
      * <p>Creates the workspace for the database collections.</p>
      */
     private Database() {
-        collections = new HashMap<>();
+        collections = new ConcurrentHashMap<>();
+        log = null;
     }
 
     private static class DatabaseHelper {
@@ -40,20 +57,128 @@ public final class Database {
      * for the collection to identify later.</p>
      *
      * @param collectionName name to assign for the collection.
+     * @param indexedFields fields to declare as unique indexes
+     *                      of the new collection.
      * @return true if the collection was created or false otherwise.
      */
-    public boolean createCollection(final String collectionName) {
+    public boolean createCollection(final String collectionName,
+                                    final String... indexedFields) {
         if (collectionName == null) {
             return false;
         }
 
-        collections.put(collectionName, new DataCollection());
+        return registerCollection(collectionName, new MapCollection(), indexedFields);
+    }
+
+    /**
+     * <p>Creates a new empty collection and assign a name
+     * for the collection to identify later, the collection can
+     * be shared by many threads if requested.</p>
+     *
+     * <p>The concurrent collection uses the first indexed field
+     * as its primary key.</p>
+     *
+     * @param collectionName name to assign for the collection.
+     * @param isConcurrent true for a collection that can be shared
+     *                     by many threads or false otherwise.
+     * @param indexedFields fields to declare as unique indexes
+     *                      of the new collection.
+     * @return true if the collection was created or false otherwise.
+     */
+    public boolean createCollection(final String collectionName, final boolean isConcurrent,
+                                    final String... indexedFields) {
+        if (!isConcurrent) {
+            return createCollection(collectionName, indexedFields);
+        }
+
+        if ((collectionName == null) || (indexedFields.length == 0)) {
+            return false;
+        }
+
+        return registerCollection(collectionName,
+                new ConcurrentMapCollection(indexedFields[0]),
+                Arrays.copyOfRange(indexedFields, 1, indexedFields.length));
+    }
+
+    /**
+     * <p>Creates a new empty collection that stores its members
+     * in typed columns and assign a name for the collection
+     * to identify later.</p>
+     *
+     * @param collectionName name to assign for the collection.
+     * @param schema the typed layout of the members.
+     * @param indexedFields text fields to declare as unique indexes
+     *                      of the new collection.
+     * @return true if the collection was created or false otherwise.
+     */
+    public boolean createCollection(final String collectionName, final Schema schema,
+                                    final String... indexedFields) {
+        if ((collectionName == null) || (schema == null)) {
+            return false;
+        }
+
+        return registerCollection(collectionName, new ColumnCollection(schema), indexedFields);
+    }
+
+    /**
+     * <p>Creates a new empty collection that stores its members
+     * off the heap, in memory-mapped files of a directory, and assign
+     * a name for the collection to identify later.</p>
+     *
+     * @param collectionName name to assign for the collection.
+     * @param schema the typed layout of the members.
+     * @param directory the directory receiving the files of the collection.
+     * @param indexedFields text or integer fields to declare as unique
+     *                      indexes of the new collection.
+     * @return true if the collection was created or false otherwise.
+     * @throws IOException if the files of the collection cannot be created.
+     */
+    public boolean createMappedCollection(final String collectionName, final Schema schema,
+                                          final Path directory, final String... indexedFields)
+            throws IOException {
+        if ((collectionName == null) || (schema == null) || (directory == null)) {
+            return false;
+        }
+
+        return registerCollection(collectionName,
+                new MappedCollection(schema, directory, collectionName), indexedFields);
+    }
+
+    private boolean registerCollection(final String collectionName,
+                                       final DataCollection newCollection,
+                                       final String... indexedFields) {
+        for (var fieldKey : indexedFields) {
+            if (!newCollection.createIndex(fieldKey)) {
+                return false;
+            }
+        }
+
+        if (log != null) {
+            newCollection.attachLog(log.forCollection(collectionName));
+        }
+
+        collections.put(collectionName, newCollection);
 
         return true;
     }
 
     /**
-     * <p>Removes a collection from the database.</p>
+     * <p>Attaches all the collections, the existing ones and the ones
+     * created later, to a log, every write of a collection is
+     * recorded in the log from now on.</p>
+     *
+     * @param initLog the log of the database.
+     */
+    public void attachLog(final WriteAheadLog initLog) {
+        log = initLog;
+
+        collections.forEach((collectionName, collection) ->
+                collection.attachLog(initLog.forCollection(collectionName)));
+    }
+
+    /**
+     * <p>Removes a collection from the database, closing
+     * the files of the collection if it has any.</p>
      *
      * @param collectionName collection name to remove from the
      *                       database.
@@ -65,7 +190,15 @@ public final class Database {
             return false;
         }
 
-        return collections.remove(collectionName) != null;
+        final var collection = collections.remove(collectionName);
+
+        if (collection == null) {
+            return false;
+        }
+
+        closeCollection(collection);
+
+        return true;
     }
 
     /**
@@ -84,9 +217,84 @@ public final class Database {
     }
 
     /**
-     * <p>Removes all collections from the database.</p>
+     * <p>Fetches one collection that stores its members in typed
+     * columns from the database and returns it.</p>
+     *
+     * @param collectionName collection name to fetch from the database.
+     * @return a {@code ColumnCollection} object if collection was found
+     * or null if no such collection exists or the collection is not
+     * stored in columns.
+     */
+    public ColumnCollection columnCollection(final String collectionName) {
+        if (collection(collectionName) instanceof ColumnCollection columns) {
+            return columns;
+        }
+
+        return null;
+    }
+
+    /**
+     * <p>Dumps the members of all the collections in a binary
+     * snapshot file, together with the position of the log they
+     * were written up to, no collection should be changed meanwhile.</p>
+     *
+     * @param file the path of the snapshot.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public void dumpSnapshot(final Path file) throws IOException {
+        DatabaseSnapshot.write(Map.copyOf(collections), (log == null) ? 0 : log.position(),
+                file);
+    }
+
+    /**
+     * <p>Loads the members of a binary snapshot file in the collections
+     * with the same names, the collections must be created before.</p>
+     *
+     * @param file the path of the snapshot.
+     * @return the number of loaded members.
+     * @throws IOException if the snapshot cannot be read, is malformed
+     * or names an unknown collection.
+     */
+    public long loadSnapshot(final Path file) throws IOException {
+        return DatabaseSnapshot.read(collections, file);
+    }
+
+    /**
+     * <p>Reads the position of the log saved by a binary snapshot
+     * file, the records of the log up to it must not be replayed.</p>
+     *
+     * @param file the path of the snapshot.
+     * @return the position of the log, 0 if the database had no log.
+     * @throws IOException if the snapshot cannot be read or is malformed.
+     */
+    public long snapshotLogPosition(final Path file) throws IOException {
+        return DatabaseSnapshot.readLogPosition(file);
+    }
+
+    /**
+     * <p>Removes all collections from the database, closing the files
+     * of the collections, and detaches the database from its log, the
+     * log itself is kept.</p>
      */
     public void dropAll() {
-        collections.clear();
+        collections.keySet().forEach(this::dropCollection);
+        log = null;
+    }
+
+    /**
+     * <p>Closes a removed collection that keeps its members in files.</p>
+     *
+     * @throws UncheckedIOException if the files could not be closed.
+     */
+    private static void closeCollection(final DataCollection collection) {
+        if (!(collection instanceof Closeable closeable)) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -0,0 +1,224 @@
+package backendtv.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Compact binary image of the collections of a {@code Database},
+ * written and read through a memory-mapped file.</p>
+ *
+ * <p>Every distinct string of the database (names of the collections,
+ * field keys and field values) is stored once in a dictionary at the
+ * start of the file, then every member is stored as a length-prefixed
+ * record of (key, value) pairs of dictionary ids. The repeated values,
+ * like the field keys or the "null" lists, take four bytes per member
+ * instead of a whole string.</p>
+ *
+ * <p>The snapshot is written in a temporary file which replaces the old
+ * snapshot just when it is complete, so a crash while writing keeps the
+ * previous snapshot.</p>
+ *
+ * <p>The header holds the magic number, the format version, the position
+ * of the write-ahead log saved by the snapshot, the size of the dictionary
+ * and the number of collections, so the records of the log already saved
+ * by the snapshot are not replayed again.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+final class DatabaseSnapshot {
+    private static final int MAGIC = 0x42545653;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_INTS = 4;
+    private static final long HEADER_SIZE = Integer.BYTES * HEADER_INTS + Long.BYTES;
+
+    private DatabaseSnapshot() {
+        // Do not let anyone instantiate this class
+    }
+
+    /**
+     * <p>Writes the members of some collections in a snapshot file.</p>
+     *
+     * @param collections the collections to write, by their names.
+     * @param logPosition the position of the write-ahead log saved
+     *                    by the snapshot, 0 if the database has no log.
+     * @param file the path of the snapshot.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    static void write(final Map<String, DataCollection> collections,
+                      final long logPosition, final Path file) throws IOException {
+        final Map<String, Integer> dictionary = new LinkedHashMap<>();
+        final Map<String, List<Map<String, String>>> contents = new LinkedHashMap<>();
+        long size = HEADER_SIZE;
+
+        for (var collection : collections.entrySet()) {
+            final var members = collection.getValue().getMembers();
+            final List<Map<String, String>> snapshots = (members == null)
+                    ? List.of() : new ArrayList<>(members);
+
+            contents.put(collection.getKey(), snapshots);
+            size += addSymbol(dictionary, collection.getKey()) + Integer.BYTES * 2L;
+
+            for (var member : snapshots) {
+                size += Integer.BYTES * 2L;
+
+                for (var field : member.entrySet()) {
+                    size += addSymbol(dictionary, field.getKey())
+                            + addSymbol(dictionary, field.getValue()) + Integer.BYTES * 2L;
+                }
+            }
+        }
+
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(logPosition)
+                    .putInt(dictionary.size());
+            for (var symbol : dictionary.keySet()) {
+                final byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+                buffer.putInt(bytes.length).put(bytes);
+            }
+
+            buffer.putInt(contents.size());
+            for (var collection : contents.entrySet()) {
+                buffer.putInt(dictionary.get(collection.getKey()))
+                        .putInt(collection.getValue().size());
+
+                for (var member : collection.getValue()) {
+                    buffer.putInt(member.size() * Integer.BYTES * 2).putInt(member.size());
+
+                    for (var field : member.entrySet()) {
+                        buffer.putInt(dictionary.get(field.getKey()))
+                                .putInt(dictionary.get(field.getValue()));
+                    }
+                }
+            }
+
+            buffer.force();
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * <p>Inserts the members of a snapshot file in the collections with
+     * the same names, the collections must already exist.</p>
+     *
+     * @param collections the collections to fill, by their names.
+     * @param file the path of the snapshot.
+     * @return the number of loaded members.
+     * @throws IOException if the snapshot cannot be read, is malformed
+     * or names an unknown collection.
+     */
+    static long read(final Map<String, DataCollection> collections, final Path file)
+            throws IOException {
+        long loadedMembers = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+
+            checkHeader(buffer, file);
+            buffer.getLong();
+
+            final String[] dictionary = new String[buffer.getInt()];
+            for (int id = 0; id < dictionary.length; ++id) {
+                final byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                dictionary[id] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            final int collectionsCount = buffer.getInt();
+            for (int index = 0; index < collectionsCount; ++index) {
+                final String collectionName = dictionary[buffer.getInt()];
+                final var collection = collections.get(collectionName);
+
+                if (collection == null) {
+                    throw new IOException("Unknown collection " + collectionName
+                            + " in the snapshot");
+                }
+
+                final int membersCount = buffer.getInt();
+                for (int member = 0; member < membersCount; ++member) {
+                    buffer.getInt();
+
+                    final int fieldsCount = buffer.getInt();
+                    final Map<String, String> fields = new HashMap<>();
+
+                    for (int field = 0; field < fieldsCount; ++field) {
+                        fields.put(dictionary[buffer.getInt()], dictionary[buffer.getInt()]);
+                    }
+
+                    collection.insert(fields);
+                    ++loadedMembers;
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Snapshot " + file + " is malformed", e);
+        }
+
+        return loadedMembers;
+    }
+
+    /**
+     * <p>Reads the position of the write-ahead log saved by a snapshot.</p>
+     *
+     * @param file the path of the snapshot.
+     * @return the position of the log, 0 if the database had no log.
+     * @throws IOException if the snapshot cannot be read or is malformed.
+     */
+    static long readLogPosition(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, Math.min(HEADER_SIZE, channel.size()));
+
+            checkHeader(buffer, file);
+
+            return buffer.getLong();
+        } catch (RuntimeException e) {
+            throw new IOException("Snapshot " + file + " is malformed", e);
+        }
+    }
+
+    private static void checkHeader(final ByteBuffer buffer, final Path file)
+            throws IOException {
+        if ((buffer.getInt() != MAGIC) || (buffer.getInt() != FORMAT_VERSION)) {
+            throw new IOException("File " + file + " is not a database snapshot");
+        }
+    }
+
+    /**
+     * <p>Adds a string to the dictionary.</p>
+     *
+     * @param dictionary the ids of the strings.
+     * @param symbol the string to add.
+     * @return the number of bytes taken by the string in the
+     * dictionary, 0 if the string was already added.
+     */
+    private static long addSymbol(final Map<String, Integer> dictionary, final String symbol) {
+        if (dictionary.containsKey(symbol)) {
+            return 0;
+        }
+
+        dictionary.put(symbol, dictionary.size());
+
+        return Integer.BYTES + symbol.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
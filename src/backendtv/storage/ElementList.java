@@ -0,0 +1,151 @@
+package backendtv.storage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <p>Ordered list of text elements of one list field of a member,
+ * stored natively instead of encoded by the {@code ListCodec}.</p>
+ *
+ * <p>The elements are kept in insertion order in an array of slots,
+ * while every element knows the slots it is stored in, so appending an
+ * element and removing the first occurrence of an element take constant
+ * time. A removed element just leaves an empty slot behind, the empty
+ * slots are dropped once they are more than the elements.</p>
+ *
+ * <p>The methods of the list are synchronized, so the list can be read
+ * by many threads while one writer changes it.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+final class ElementList implements Iterable<String> {
+    private final List<String> slots;
+    private final Map<String, ArrayDeque<Integer>> positions;
+    private int removedCount;
+
+    /**
+     * <p>Creates a list holding some elements.</p>
+     *
+     * @param elements the initial elements of the list.
+     */
+    ElementList(final Iterable<String> elements) {
+        slots = new ArrayList<>();
+        positions = new HashMap<>();
+        removedCount = 0;
+
+        for (var element : elements) {
+            add(element);
+        }
+    }
+
+    /**
+     * <p>Appends an element at the end of the list.</p>
+     *
+     * @param element the element to append.
+     */
+    synchronized void add(final String element) {
+        positions.computeIfAbsent(element, key -> new ArrayDeque<>(1)).addLast(slots.size());
+        slots.add(element);
+    }
+
+    /**
+     * <p>Removes the first occurrence of an element.</p>
+     *
+     * @param element the element to remove.
+     * @return true if the element was removed or false if
+     * the list has no such element.
+     */
+    synchronized boolean remove(final String element) {
+        final var elementPositions = positions.get(element);
+
+        if (elementPositions == null) {
+            return false;
+        }
+
+        slots.set(elementPositions.pollFirst(), null);
+        ++removedCount;
+
+        if (elementPositions.isEmpty()) {
+            positions.remove(element);
+        }
+
+        if (removedCount > slots.size() - removedCount) {
+            dropRemovedSlots();
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Checks if an element is part of the list.</p>
+     *
+     * @param element the element to check.
+     * @return true if the list holds the element or false otherwise.
+     */
+    synchronized boolean contains(final String element) {
+        return positions.containsKey(element);
+    }
+
+    /**
+     * <p>Encodes the elements of the list by the {@code ListCodec}.</p>
+     *
+     * @return the encoded list.
+     */
+    synchronized String encode() {
+        return ListCodec.encode(this::elements);
+    }
+
+    /**
+     * <p>Copies the elements of the list, the copy can be modified freely.</p>
+     *
+     * @return a new {@code List} of the elements, in insertion order.
+     */
+    synchronized List<String> toList() {
+        final List<String> elements = new ArrayList<>(slots.size() - removedCount);
+        elements().forEachRemaining(elements::add);
+
+        return elements;
+    }
+
+    /**
+     * <p>Iterates over a copy of the elements, in insertion order.</p>
+     *
+     * @return an iterator of elements.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return toList().iterator();
+    }
+
+    private Iterator<String> elements() {
+        return slots.stream().filter(Objects::nonNull).iterator();
+    }
+
+    /**
+     * <p>Drops the empty slots left by the removed elements
+     * and moves every element to its new slot.</p>
+     */
+    private void dropRemovedSlots() {
+        int position = 0;
+        positions.clear();
+
+        for (int slot = 0; slot < slots.size(); ++slot) {
+            final String element = slots.get(slot);
+
+            if (element != null) {
+                positions.computeIfAbsent(element, key -> new ArrayDeque<>(1))
+                        .addLast(position);
+                slots.set(position++, element);
+            }
+        }
+
+        slots.subList(position, slots.size()).clear();
+        removedCount = 0;
+    }
+}
@@ -0,0 +1,15 @@
+package backendtv.storage;
+
+/**
+ * <p>Enum class containing the types of the fields that
+ * a {@code Schema} can declare.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public enum FieldType {
+    TEXT,
+    INT,
+    TEXT_LIST,
+    SCORES
+}
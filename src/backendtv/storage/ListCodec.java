@@ -0,0 +1,110 @@
+package backendtv.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Encodes the list fields of the members as a single {@code String},
+ * the way every collection stores and indexes them.</p>
+ *
+ * <p>The elements are separated by commas, while a comma or a backslash
+ * inside an element is escaped by a backslash, so an element like a movie
+ * title containing a comma is kept whole. An empty list is stored as
+ * "null", the same as the input data.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class ListCodec {
+    public static final String EMPTY = "null";
+
+    private static final char SEPARATOR = ',';
+    private static final char ESCAPE = '\\';
+
+    private ListCodec() {
+        // Do not let anyone instantiate this class
+    }
+
+    /**
+     * <p>Encodes a list of elements.</p>
+     *
+     * @param elements the elements of the list.
+     * @return the encoded list or "null" if the list is empty.
+     */
+    public static String encode(final Iterable<String> elements) {
+        final var encoded = new StringBuilder();
+        boolean isFirst = true;
+
+        for (var element : elements) {
+            if (!isFirst) {
+                encoded.append(SEPARATOR);
+            }
+
+            for (int index = 0; index < element.length(); ++index) {
+                final char character = element.charAt(index);
+
+                if ((character == SEPARATOR) || (character == ESCAPE)) {
+                    encoded.append(ESCAPE);
+                }
+
+                encoded.append(character);
+            }
+
+            isFirst = false;
+        }
+
+        if (isFirst) {
+            return EMPTY;
+        }
+
+        if (encoded.toString().equals(EMPTY)) {
+            return ESCAPE + EMPTY;
+        }
+
+        return encoded.toString();
+    }
+
+    /**
+     * <p>Decodes an encoded list.</p>
+     *
+     * @param encoded the encoded list, "null" or an
+     *                empty {@code String} for an empty list.
+     * @return a new {@code List} of the elements.
+     */
+    public static List<String> decode(final String encoded) {
+        final List<String> elements = new ArrayList<>();
+
+        if (isEmpty(encoded)) {
+            return elements;
+        }
+
+        final var element = new StringBuilder();
+
+        for (int index = 0; index < encoded.length(); ++index) {
+            final char character = encoded.charAt(index);
+
+            if ((character == ESCAPE) && (index + 1 < encoded.length())) {
+                element.append(encoded.charAt(++index));
+            } else if (character == SEPARATOR) {
+                elements.add(element.toString());
+                element.setLength(0);
+            } else {
+                element.append(character);
+            }
+        }
+
+        elements.add(element.toString());
+
+        return elements;
+    }
+
+    /**
+     * <p>Checks if an encoded list has no elements.</p>
+     *
+     * @param encoded the encoded list.
+     * @return true if the list is empty or false otherwise.
+     */
+    public static boolean isEmpty(final String encoded) {
+        return encoded.isEmpty() || encoded.equals(EMPTY);
+    }
+}
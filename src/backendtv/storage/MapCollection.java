@@ -0,0 +1,833 @@
+package backendtv.storage;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * <p>Collection of data, stores a {@code Map} of String to String pairs,
+ * where first member is the key and the second the value of one field.</p>
+ *
+ * <p>The Class does not care about the layout of the members, any
+ * {@code Map} can be inserted in the collection.</p>
+ *
+ * <p>Fields can be declared as unique indexes, in which case every lookup
+ * on that field is resolved through a hash table instead of scanning all
+ * the members. An index is kept consistent by every operation that
+ * changes the collection.</p>
+ *
+ * <p>Fields holding comma separated lists can be declared as list
+ * indexes, in which case the collection keeps, for every element, the
+ * members whose list contains it.</p>
+ *
+ * <p>The fields declared as list fields are stored natively, every member
+ * keeps one {@code ElementList} per list field, so appending or removing
+ * an element touches just that element, in the list and in the list index
+ * of the field.</p>
+ *
+ * <p>Every member is read as an immutable snapshot, so the readers
+ * receive the stored snapshot itself and never pay for a copy. A write
+ * drops the snapshot of the member and the next read builds a new one,
+ * encoding the lists of the member, meaning that a snapshot fetched
+ * before the write keeps the old data.</p>
+ *
+ * <p>Every member knows its position in the insertion order, a deleted
+ * member just leaves an empty slot behind, so deleting an indexed member
+ * takes constant time. The empty slots are dropped once they are more
+ * than the members, keeping the insertion order.</p>
+ *
+ * @since 1.0.0
+ * @author Mihai Negru
+ */
+public final class MapCollection implements DataCollection {
+    private final List<Member> members;
+    private int deletedCount;
+    private final Map<String, Map<String, Member>> indexes;
+    private final Map<String, Map<String, Set<Member>>> listIndexes;
+    private final Set<String> listFields;
+    private CollectionLog log;
+
+    /**
+     * <p>Slot of one member, holds the fields that are not list fields,
+     * the lists, the snapshot of the last read and the number of writes
+     * of the member.</p>
+     */
+    private static final class Member {
+        private Map<String, String> scalars;
+        private Map<String, ElementList> lists;
+        private Map<String, String> snapshot;
+        private long version;
+        private int position;
+
+        Member(final Map<String, String> initScalars,
+               final Map<String, ElementList> initLists, final int initPosition) {
+            scalars = initScalars;
+            lists = initLists;
+            snapshot = null;
+            version = 0;
+            position = initPosition;
+        }
+
+        /**
+         * <p>Fetches the snapshot of the member, building it
+         * if the member was changed since the last read.</p>
+         *
+         * @return an immutable {@code Map} of all the fields.
+         */
+        Map<String, String> fields() {
+            if (snapshot == null) {
+                final Map<String, String> fields = new HashMap<>(scalars);
+                lists.forEach((fieldKey, list) -> fields.put(fieldKey, list.encode()));
+
+                snapshot = Map.copyOf(fields);
+            }
+
+            return snapshot;
+        }
+
+        /**
+         * <p>Reads one field of the member, a list field being encoded.</p>
+         *
+         * @param fieldKey field key to read.
+         * @return the value of the field or null if the member
+         * does not contain the field.
+         */
+        String get(final String fieldKey) {
+            if (lists.containsKey(fieldKey)) {
+                return fields().get(fieldKey);
+            }
+
+            return scalars.get(fieldKey);
+        }
+
+        boolean contains(final String fieldKey) {
+            return scalars.containsKey(fieldKey) || lists.containsKey(fieldKey);
+        }
+
+        /**
+         * <p>Marks a write of the member, dropping its snapshot.</p>
+         */
+        void changed() {
+            snapshot = null;
+            ++version;
+        }
+    }
+
+    /**
+     * <p>Creates a new workspace for the members.</p>
+     */
+    public MapCollection() {
+        members = new ArrayList<>();
+        deletedCount = 0;
+        indexes = new HashMap<>();
+        listIndexes = new HashMap<>();
+        listFields = new HashSet<>();
+        log = CollectionLog.DISABLED;
+    }
+
+    /**
+     * <p>Declares a unique index on one field of the collection.</p>
+     *
+     * <p>Members already stored are indexed immediately, members
+     * that do not contain the field are not part of the index.</p>
+     *
+     * @param fieldKey field key to index.
+     * @return true if the index was created or false if the field
+     * is null, is a list field, is already indexed or two members
+     * share the same value.
+     */
+    @Override
+    public boolean createIndex(final String fieldKey) {
+        if ((fieldKey == null) || indexes.containsKey(fieldKey)
+                || listFields.contains(fieldKey)) {
+            return false;
+        }
+
+        final Map<String, Member> index = new HashMap<>();
+        for (var member : liveMembers()) {
+            final String fieldValue = member.scalars.get(fieldKey);
+
+            if ((fieldValue != null) && (index.put(fieldValue, member) != null)) {
+                return false;
+            }
+        }
+
+        indexes.put(fieldKey, index);
+
+        return true;
+    }
+
+    /**
+     * <p>Declares an inverted index on one list field of the collection,
+     * the field is declared as a list field if it is not one already.</p>
+     *
+     * <p>Members already stored are indexed immediately, members
+     * that do not contain the field are not part of the index.</p>
+     *
+     * @param fieldKey field key to index.
+     * @return true if the index was created or false if the field
+     * is null, is a unique index or is already indexed.
+     */
+    @Override
+    public boolean createListIndex(final String fieldKey) {
+        if ((fieldKey == null) || listIndexes.containsKey(fieldKey)
+                || !createListField(fieldKey)) {
+            return false;
+        }
+
+        final Map<String, Set<Member>> listIndex = new HashMap<>();
+        listIndexes.put(fieldKey, listIndex);
+
+        for (var member : liveMembers()) {
+            addToListIndex(member, fieldKey, listIndex);
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Declares one field of the collection as a list field, the
+     * elements of the field are stored natively from now on.</p>
+     *
+     * <p>The field of the members already stored is decoded
+     * immediately, their snapshots are kept.</p>
+     *
+     * @param fieldKey field key to declare.
+     * @return true if the field is a list field or false if the
+     * field is null or is a unique index.
+     */
+    @Override
+    public boolean createListField(final String fieldKey) {
+        if ((fieldKey == null) || indexes.containsKey(fieldKey)) {
+            return false;
+        }
+
+        if (!listFields.add(fieldKey)) {
+            return true;
+        }
+
+        for (var member : liveMembers()) {
+            final String fieldValue = member.scalars.get(fieldKey);
+
+            if (fieldValue != null) {
+                final Map<String, ElementList> lists = new HashMap<>(member.lists);
+                lists.put(fieldKey, new ElementList(ListCodec.decode(fieldValue)));
+
+                final Map<String, String> scalars = new HashMap<>(member.scalars);
+                scalars.remove(fieldKey);
+
+                member.lists = Map.copyOf(lists);
+                member.scalars = Map.copyOf(scalars);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Checks if one field is declared as an index.</p>
+     *
+     * @param fieldKey field key to check.
+     * @return true if the field is indexed or false otherwise.
+     */
+    @Override
+    public boolean hasIndex(final String fieldKey) {
+        return indexes.containsKey(fieldKey) || listIndexes.containsKey(fieldKey);
+    }
+
+    /**
+     * <p>Attaches the collection to a log, every successful write
+     * of the collection is recorded in the log from now on.</p>
+     *
+     * @param initLog the log of the collection.
+     */
+    @Override
+    public void attachLog(final CollectionLog initLog) {
+        log = initLog;
+    }
+
+    /**
+     * <p>Inserts a new member in the collection workspace.</p>
+     *
+     * @param fields a {@code Map} object containing all data of
+     *               one member from the collection.
+     * @return true if the member was inserted or false if input data
+     * is null, contains null values or the member breaks one of
+     * the unique indexes.
+     */
+    @Override
+    public boolean insert(final Map<String, String> fields) {
+        if (!isValid(fields) || violatesIndexes(fields, null)) {
+            return false;
+        }
+
+        final var member = new Member(scalarsOf(fields), listsOf(fields), members.size());
+
+        members.add(member);
+        addToIndexes(member);
+        log.insert(fields);
+
+        return true;
+    }
+
+    /**
+     * <p>Finds the first member that matches the input (key, value).</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @return an immutable snapshot of the found member or null if
+     * member does not exist.
+     */
+    @Override
+    public Map<String, String> findOne(final String fieldKey, final String fieldValue) {
+        final var member = lookup(fieldKey, fieldValue);
+
+        if (member == null) {
+            return null;
+        }
+
+        return member.fields();
+    }
+
+    /**
+     * <p>Finds all members that match the input (key, value).</p>
+     *
+     * @param fieldKey field key of selected members.
+     * @param fieldValue field value of selected members.
+     * @return a {@code List} of immutable snapshots of found members or
+     * null is no member was found.
+     */
+    @Override
+    public List<Map<String, String>> find(final String fieldKey, final String fieldValue) {
+        if ((fieldKey == null) || (fieldValue == null)) {
+            return null;
+        }
+
+        final List<Map<String, String>> foundMembers = new ArrayList<>();
+
+        final var index = indexes.get(fieldKey);
+        if (index != null) {
+            final var member = index.get(fieldValue);
+
+            if (member != null) {
+                foundMembers.add(member.fields());
+            }
+        } else {
+            for (var member : liveMembers()) {
+                if (matches(member, fieldKey, fieldValue)) {
+                    foundMembers.add(member.fields());
+                }
+            }
+        }
+
+        if (foundMembers.isEmpty()) {
+            return null;
+        }
+
+        return foundMembers;
+    }
+
+    /**
+     * <p>Finds all members whose list field contains one element,
+     * using the list index of the field if one is declared.</p>
+     *
+     * @param fieldKey field key of the list field.
+     * @param element element contained by the selected members.
+     * @return a {@code List} of immutable snapshots of found members or
+     * null is no member was found.
+     */
+    @Override
+    public List<Map<String, String>> findContaining(final String fieldKey,
+                                                   final String element) {
+        if ((fieldKey == null) || (element == null)) {
+            return null;
+        }
+
+        final List<Map<String, String>> foundMembers = new ArrayList<>();
+
+        final var listIndex = listIndexes.get(fieldKey);
+        if (listIndex != null) {
+            for (var member : listIndex.getOrDefault(element, Set.of())) {
+                foundMembers.add(member.fields());
+            }
+        } else {
+            for (var member : liveMembers()) {
+                final var list = member.lists.get(fieldKey);
+                final String fieldValue = member.scalars.get(fieldKey);
+
+                if (((list != null) && list.contains(element)) || ((fieldValue != null)
+                        && ListCodec.decode(fieldValue).contains(element))) {
+                    foundMembers.add(member.fields());
+                }
+            }
+        }
+
+        if (foundMembers.isEmpty()) {
+            return null;
+        }
+
+        return foundMembers;
+    }
+
+    /**
+     * <p>Fetches all members from the collection without copying them.</p>
+     *
+     * <p>The returned list is a read-only view backed by the collection,
+     * every element being the current snapshot of one member. Modifying
+     * the fields of a member while iterating is allowed, inserting or
+     * deleting members is not.</p>
+     *
+     * @return a read-only {@code List} view of all members
+     * from the database collection or null if the collection
+     * is empty.
+     */
+    @Override
+    public List<Map<String, String>> getMembers() {
+        if (members.size() == deletedCount) {
+            return null;
+        }
+
+        if (deletedCount > 0) {
+            dropDeletedSlots();
+        }
+
+        return new AbstractList<>() {
+            @Override
+            public Map<String, String> get(final int index) {
+                return members.get(index).fields();
+            }
+
+            @Override
+            public int size() {
+                return members.size();
+            }
+        };
+    }
+
+    /**
+     * <p>Fetches the version of the first member that matches
+     * the input (key, value).</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @return the version of the member or -1 if member does not exist.
+     */
+    @Override
+    public long versionOf(final String fieldKey, final String fieldValue) {
+        final var member = lookup(fieldKey, fieldValue);
+
+        if (member == null) {
+            return -1;
+        }
+
+        return member.version;
+    }
+
+    /**
+     * <p>Modifies all the fields of a member that matches
+     * the input (key, value) pair from the collection.</p>
+     *
+     * @param fieldKey field key of the member.
+     * @param fieldValue field value of the member.
+     * @param fields new field data for the selected member.
+     * @return true if the member was modified and false if
+     * input data is null, member was not found or the new
+     * data breaks one of the unique indexes.
+     */
+    @Override
+    public boolean modifyMember(final String fieldKey, final String fieldValue,
+                                final Map<String, String> fields) {
+        if (!isValid(fields)) {
+            return false;
+        }
+
+        final var member = lookup(fieldKey, fieldValue);
+
+        if ((member == null) || violatesIndexes(fields, member)) {
+            return false;
+        }
+
+        removeFromIndexes(member);
+        member.scalars = scalarsOf(fields);
+        member.lists = listsOf(fields);
+        member.changed();
+        addToIndexes(member);
+        log.modifyMember(fieldKey, fieldValue, fields);
+
+        return true;
+    }
+
+    /**
+     * <p>Modifies the first member that matches the (key, value) pair
+     * and changes a field value, however if the changing field.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param changeFieldKey field key that will be changed.
+     * @param changeFieldValue field value to change the selected field.
+     * @return true if the field of the member was modified or false
+     * if input data is null, member does not exist or the new value
+     * breaks one of the unique indexes.
+     */
+    @Override
+    public boolean modifyField(final String fieldKey, final String fieldValue,
+                               final String changeFieldKey, final String changeFieldValue) {
+        if ((changeFieldKey == null) || (changeFieldValue == null)) {
+            return false;
+        }
+
+        final var member = lookup(fieldKey, fieldValue);
+
+        if ((member == null) || !member.contains(changeFieldKey)) {
+            return false;
+        }
+
+        final var index = indexes.get(changeFieldKey);
+        if (index != null) {
+            final var holder = index.get(changeFieldValue);
+
+            if ((holder != null) && (holder != member)) {
+                return false;
+            }
+        }
+
+        removeFromIndexes(member);
+
+        if (listFields.contains(changeFieldKey)) {
+            final Map<String, ElementList> changedLists = new HashMap<>(member.lists);
+            changedLists.put(changeFieldKey, new ElementList(ListCodec.decode(changeFieldValue)));
+
+            member.lists = Map.copyOf(changedLists);
+        } else {
+            final Map<String, String> changedFields = new HashMap<>(member.scalars);
+            changedFields.put(changeFieldKey, changeFieldValue);
+
+            member.scalars = Map.copyOf(changedFields);
+        }
+
+        member.changed();
+        addToIndexes(member);
+        log.modifyField(fieldKey, fieldValue, changeFieldKey, changeFieldValue);
+
+        return true;
+    }
+
+    /**
+     * <p>Appends one element to a list field of the first member that
+     * matches the (key, value) pair, just the element is added to the
+     * list index of the field.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param listField the list field receiving the element.
+     * @param element the element to append.
+     * @return true if the element was appended or false if the
+     * member does not exist or the field is not a list field
+     * of the member.
+     */
+    @Override
+    public boolean appendToList(final String fieldKey, final String fieldValue,
+                                final String listField, final String element) {
+        final var member = lookup(fieldKey, fieldValue);
+
+        if ((member == null) || (element == null) || !member.lists.containsKey(listField)) {
+            return false;
+        }
+
+        member.lists.get(listField).add(element);
+        member.changed();
+
+        final var listIndex = listIndexes.get(listField);
+        if (listIndex != null) {
+            listIndex.computeIfAbsent(element, key -> new LinkedHashSet<>()).add(member);
+        }
+
+        log.appendToList(fieldKey, fieldValue, listField, element);
+
+        return true;
+    }
+
+    /**
+     * <p>Removes the first occurrence of one element from a list field
+     * of the first member that matches the (key, value) pair, just the
+     * element is dropped from the list index of the field.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param listField the list field holding the element.
+     * @param element the element to remove.
+     * @return true if the element was removed or false if the member
+     * does not exist, the field is not a list field of the member or
+     * the list has no such element.
+     */
+    @Override
+    public boolean removeFromList(final String fieldKey, final String fieldValue,
+                                  final String listField, final String element) {
+        final var member = lookup(fieldKey, fieldValue);
+
+        if (member == null) {
+            return false;
+        }
+
+        final var list = member.lists.get(listField);
+
+        if ((list == null) || !list.remove(element)) {
+            return false;
+        }
+
+        member.changed();
+
+        final var listIndex = listIndexes.get(listField);
+        if ((listIndex != null) && !list.contains(element)) {
+            final var holders = listIndex.get(element);
+
+            if ((holders != null) && holders.remove(member) && holders.isEmpty()) {
+                listIndex.remove(element);
+            }
+        }
+
+        log.removeFromList(fieldKey, fieldValue, listField, element);
+
+        return true;
+    }
+
+    /**
+     * <p>Deletes a member from the collection workspace.</p>
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     */
+    @Override
+    public void delete(final String fieldKey, final String fieldValue) {
+        if ((fieldKey == null) || (fieldValue == null)) {
+            return;
+        }
+
+        final var index = indexes.get(fieldKey);
+        if (index != null) {
+            final var member = index.get(fieldValue);
+
+            if (member != null) {
+                remove(member);
+                log.delete(fieldKey, fieldValue);
+            }
+
+            return;
+        }
+
+        final List<Member> selected = new ArrayList<>();
+        for (var member : liveMembers()) {
+            if (matches(member, fieldKey, fieldValue)) {
+                selected.add(member);
+            }
+        }
+
+        if (!selected.isEmpty()) {
+            selected.forEach(this::remove);
+            log.delete(fieldKey, fieldValue);
+        }
+    }
+
+    /**
+     * <p>Removes one member from the indexes and leaves an
+     * empty slot at its position.</p>
+     *
+     * @param member the member to remove.
+     */
+    private void remove(final Member member) {
+        removeFromIndexes(member);
+        members.set(member.position, null);
+        ++deletedCount;
+
+        if (deletedCount > members.size() - deletedCount) {
+            dropDeletedSlots();
+        }
+    }
+
+    /**
+     * <p>Drops the empty slots left by the deleted members
+     * and moves every member to its new position.</p>
+     */
+    private void dropDeletedSlots() {
+        int position = 0;
+
+        for (int slot = 0; slot < members.size(); ++slot) {
+            final var member = members.get(slot);
+
+            if (member != null) {
+                member.position = position;
+                members.set(position++, member);
+            }
+        }
+
+        members.subList(position, members.size()).clear();
+        deletedCount = 0;
+    }
+
+    /**
+     * <p>Iterates over the members, skipping the empty slots.</p>
+     *
+     * @return the stored members, in insertion order.
+     */
+    private Iterable<Member> liveMembers() {
+        return () -> members.stream().filter(Objects::nonNull).iterator();
+    }
+
+    /**
+     * <p>Finds the stored member that matches the (key, value) pair,
+     * using the index of the field if one is declared.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @return the stored member or null if the member does not exist.
+     */
+    private Member lookup(final String fieldKey, final String fieldValue) {
+        if ((fieldKey == null) || (fieldValue == null)) {
+            return null;
+        }
+
+        final var index = indexes.get(fieldKey);
+        if (index != null) {
+            return index.get(fieldValue);
+        }
+
+        for (var member : liveMembers()) {
+            if (matches(member, fieldKey, fieldValue)) {
+                return member;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isValid(final Map<String, String> fields) {
+        if (fields == null) {
+            return false;
+        }
+
+        for (var fieldValue : fields.values()) {
+            if (fieldValue == null) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean matches(final Member member,
+                                   final String fieldKey, final String fieldValue) {
+        return fieldValue.equals(member.get(fieldKey));
+    }
+
+    /**
+     * <p>Keeps the fields that are not list fields.</p>
+     *
+     * @param fields field data of one member.
+     * @return an immutable {@code Map} of the other fields.
+     */
+    private Map<String, String> scalarsOf(final Map<String, String> fields) {
+        final Map<String, String> scalars = new HashMap<>(fields);
+        scalars.keySet().removeAll(listFields);
+
+        return Map.copyOf(scalars);
+    }
+
+    /**
+     * <p>Decodes the list fields in new native lists.</p>
+     *
+     * @param fields field data of one member.
+     * @return an immutable {@code Map} of the decoded lists.
+     */
+    private Map<String, ElementList> listsOf(final Map<String, String> fields) {
+        final Map<String, ElementList> lists = new HashMap<>();
+
+        for (var listField : listFields) {
+            final String fieldValue = fields.get(listField);
+
+            if (fieldValue != null) {
+                lists.put(listField, new ElementList(ListCodec.decode(fieldValue)));
+            }
+        }
+
+        return Map.copyOf(lists);
+    }
+
+    /**
+     * <p>Checks if the fields would clash with another member
+     * on one of the unique indexes.</p>
+     *
+     * @param fields field data to check.
+     * @param owner the member that will hold the fields, or null
+     *              if the fields belong to a new member.
+     * @return true if one of the indexed values is already held
+     * by another member or false otherwise.
+     */
+    private boolean violatesIndexes(final Map<String, String> fields,
+                                    final Member owner) {
+        for (var index : indexes.entrySet()) {
+            final String fieldValue = fields.get(index.getKey());
+
+            if (fieldValue != null) {
+                final var holder = index.getValue().get(fieldValue);
+
+                if ((holder != null) && (holder != owner)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void addToIndexes(final Member member) {
+        for (var index : indexes.entrySet()) {
+            final String fieldValue = member.scalars.get(index.getKey());
+
+            if (fieldValue != null) {
+                index.getValue().put(fieldValue, member);
+            }
+        }
+
+        listIndexes.forEach((fieldKey, listIndex) -> addToListIndex(member, fieldKey, listIndex));
+    }
+
+    private void removeFromIndexes(final Member member) {
+        for (var index : indexes.entrySet()) {
+            final String fieldValue = member.scalars.get(index.getKey());
+
+            if (fieldValue != null) {
+                index.getValue().remove(fieldValue);
+            }
+        }
+
+        listIndexes.forEach((fieldKey, listIndex) -> {
+            final var list = member.lists.get(fieldKey);
+
+            if (list != null) {
+                for (var element : list) {
+                    final var holders = listIndex.get(element);
+
+                    if ((holders != null) && holders.remove(member) && holders.isEmpty()) {
+                        listIndex.remove(element);
+                    }
+                }
+            }
+        });
+    }
+
+    private static void addToListIndex(final Member member, final String fieldKey,
+                                       final Map<String, Set<Member>> listIndex) {
+        final var list = member.lists.get(fieldKey);
+
+        if (list != null) {
+            for (var element : list) {
+                listIndex.computeIfAbsent(element, key -> new LinkedHashSet<>()).add(member);
+            }
+        }
+    }
+}
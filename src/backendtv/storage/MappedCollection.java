@@ -0,0 +1,1047 @@
+package backendtv.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Collection of data that keeps its members off the heap, in
+ * memory-mapped files, described by a {@code Schema}.</p>
+ *
+ * <p>Every member is a fixed-layout record of the records file: a live
+ * flag, the version of the member and one slot per field. Integer fields
+ * are stored inline, while the text, list and scores fields are stored in
+ * a region of a side arena and the record keeps the offset, the used
+ * length and the capacity of the region.</p>
+ *
+ * <p>The capacities of the regions are powers of two. A value that fits
+ * its region is rewritten in place, otherwise the region is released and
+ * a region twice as large is taken. The released regions, including the
+ * regions of the deleted members, are kept in one free list per capacity
+ * and are reused before the arena grows.</p>
+ *
+ * <p>The region of a list field holds its elements as length-prefixed
+ * entries, so an element is appended in place while the region has room
+ * and the region doubles when it is full, copying just the live entries.
+ * A removed element is marked as a dead entry with the complement of its
+ * length and is dropped when the region grows.</p>
+ *
+ * <p>Both files are mapped in segments, so the collection grows past the
+ * size of one mapping and just the touched pages are loaded by the
+ * operating system. The files are scratch space, they are truncated when
+ * the collection is created, the durability of the data being the job of
+ * the {@code WriteAheadLog} and of the snapshots.</p>
+ *
+ * <p>Just the unique and the list indexes live on the heap, holding the
+ * record ids of the members. The members are decoded to a {@code Map}
+ * when they are read, so the heap holds just the members in use. A write
+ * of one field or of one element updates just the index of that field.</p>
+ *
+ * <p>The methods of the collection are synchronized, so the collection
+ * can be shared by many threads.</p>
+ *
+ * <p>The collection holds its files open until it is closed, the
+ * {@code Database} closes it when the collection is dropped.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class MappedCollection implements DataCollection, Closeable {
+    private static final int SEGMENT_SIZE = 1 << 26;
+    private static final int LIVE_OFFSET = 0;
+    private static final int VERSION_OFFSET = 1;
+    private static final int HEADER_SIZE = 1 + Long.BYTES;
+    private static final int LENGTH_OFFSET = Long.BYTES;
+    private static final int CAPACITY_OFFSET = Long.BYTES + Integer.BYTES;
+    private static final int REFERENCE_SIZE = Long.BYTES + 2 * Integer.BYTES;
+    private static final int MIN_REGION_SIZE = 16;
+    private static final int ENTRY_HEADER_SIZE = Integer.BYTES;
+
+    private final Schema schema;
+    private final List<String> fields;
+    private final int[] fieldOffsets;
+    private final int recordSize;
+    private final int recordsPerSegment;
+    private final FileChannel recordsChannel;
+    private final FileChannel arenaChannel;
+    private final List<MappedByteBuffer> recordSegments;
+    private final List<MappedByteBuffer> arenaSegments;
+    private final BitSet liveRows;
+    private final Map<String, Map<String, Integer>> indexes;
+    private final Map<String, Map<String, BitSet>> listIndexes;
+    private final Map<Integer, ArrayDeque<Long>> freeRegions;
+    private CollectionLog log;
+    private int rowCount;
+    private long arenaTop;
+
+    /**
+     * <p>Creates the files of the collection in a directory.</p>
+     *
+     * @param initSchema the layout of the members.
+     * @param directory the directory receiving the files.
+     * @param collectionName the name of the collection, used
+     *                       to name the files.
+     * @throws IOException if the files cannot be created.
+     */
+    public MappedCollection(final Schema initSchema, final Path directory,
+                            final String collectionName) throws IOException {
+        schema = initSchema;
+        fields = schema.getFields();
+        fieldOffsets = new int[fields.size()];
+
+        int offset = HEADER_SIZE;
+        for (int field = 0; field < fields.size(); ++field) {
+            fieldOffsets[field] = offset;
+            offset += (schema.typeOf(fields.get(field)) == FieldType.INT)
+                    ? Integer.BYTES : REFERENCE_SIZE;
+        }
+
+        recordSize = offset;
+        recordsPerSegment = SEGMENT_SIZE / recordSize;
+
+        recordsChannel = FileChannel.open(directory.resolve(collectionName + ".records"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        arenaChannel = FileChannel.open(directory.resolve(collectionName + ".arena"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        recordSegments = new ArrayList<>();
+        arenaSegments = new ArrayList<>();
+
+        liveRows = new BitSet();
+        indexes = new HashMap<>();
+        listIndexes = new HashMap<>();
+        freeRegions = new HashMap<>();
+        log = CollectionLog.DISABLED;
+        rowCount = 0;
+        arenaTop = 0;
+    }
+
+    /**
+     * <p>Declares a unique index on one text or integer field.</p>
+     *
+     * @param fieldKey field key to index.
+     * @return true if the index was created or false if the field is
+     * unknown, is already indexed or two members share the same value.
+     */
+    @Override
+    public synchronized boolean createIndex(final String fieldKey) {
+        final var fieldType = schema.typeOf(fieldKey);
+
+        if (hasIndex(fieldKey) || ((fieldType != FieldType.TEXT)
+                && (fieldType != FieldType.INT))) {
+            return false;
+        }
+
+        final Map<String, Integer> index = new HashMap<>();
+        for (int row = liveRows.nextSetBit(0); row >= 0; row = liveRows.nextSetBit(row + 1)) {
+            if (index.put(read(row, fieldKey), row) != null) {
+                return false;
+            }
+        }
+
+        indexes.put(fieldKey, index);
+
+        return true;
+    }
+
+    /**
+     * <p>Checks if one field is declared as an index.</p>
+     *
+     * @param fieldKey field key to check.
+     * @return true if the field is indexed or false otherwise.
+     */
+    @Override
+    public synchronized boolean hasIndex(final String fieldKey) {
+        return indexes.containsKey(fieldKey) || listIndexes.containsKey(fieldKey);
+    }
+
+    /**
+     * <p>Declares an inverted index on one list field, the index
+     * keeps a bitmap of record ids for every element.</p>
+     *
+     * @param fieldKey field key to index.
+     * @return true if the index was created or false if the field
+     * is not a list field or is already indexed.
+     */
+    @Override
+    public synchronized boolean createListIndex(final String fieldKey) {
+        if (hasIndex(fieldKey) || (schema.typeOf(fieldKey) != FieldType.TEXT_LIST)) {
+            return false;
+        }
+
+        listIndexes.put(fieldKey, new HashMap<>());
+
+        for (int row = liveRows.nextSetBit(0); row >= 0; row = liveRows.nextSetBit(row + 1)) {
+            addToListIndex(row, fieldKey, readList(row, fieldKey));
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Checks if one field is declared as a list field
+     * by the schema of the collection.</p>
+     *
+     * @param fieldKey field key to check.
+     * @return true if the field is a list field or false otherwise.
+     */
+    @Override
+    public boolean createListField(final String fieldKey) {
+        return schema.typeOf(fieldKey) == FieldType.TEXT_LIST;
+    }
+
+    /**
+     * <p>Attaches the collection to a log, every successful write
+     * of the collection is recorded in the log from now on.</p>
+     *
+     * @param initLog the log of the collection.
+     */
+    @Override
+    public synchronized void attachLog(final CollectionLog initLog) {
+        log = initLog;
+    }
+
+    /**
+     * <p>Writes a new record for a member.</p>
+     *
+     * @param newFields a {@code Map} object containing all data of
+     *               one member from the collection.
+     * @return true if the member was inserted or false if a field of
+     * the schema is missing or malformed, or the member breaks one of
+     * the unique indexes.
+     */
+    @Override
+    public synchronized boolean insert(final Map<String, String> newFields) {
+        if (!isValid(newFields) || violatesIndexes(newFields, -1)) {
+            return false;
+        }
+
+        final int row = rowCount++;
+        final var segment = recordSegment(row);
+        final int position = recordPosition(row);
+
+        segment.put(position + LIVE_OFFSET, (byte) 1);
+        segment.putLong(position + VERSION_OFFSET, 0);
+        writeFields(row, newFields);
+        liveRows.set(row);
+        addToIndexes(row);
+        log.insert(newFields);
+
+        return true;
+    }
+
+    /**
+     * <p>Finds the first member that matches the input (key, value).</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @return a {@code Map} decoded from the record of the found
+     * member or null if member does not exist.
+     */
+    @Override
+    public synchronized Map<String, String> findOne(final String fieldKey,
+                                                    final String fieldValue) {
+        final int row = rowOf(fieldKey, fieldValue);
+
+        if (row < 0) {
+            return null;
+        }
+
+        return toMap(row);
+    }
+
+    /**
+     * <p>Finds all members that match the input (key, value).</p>
+     *
+     * @param fieldKey field key of selected members.
+     * @param fieldValue field value of selected members.
+     * @return a {@code List} of decoded members or null
+     * is no member was found.
+     */
+    @Override
+    public synchronized List<Map<String, String>> find(final String fieldKey,
+                                                       final String fieldValue) {
+        if ((fieldKey == null) || (fieldValue == null) || (schema.typeOf(fieldKey) == null)) {
+            return null;
+        }
+
+        final List<Map<String, String>> foundMembers = new ArrayList<>();
+
+        if (indexes.containsKey(fieldKey)) {
+            final int row = rowOf(fieldKey, fieldValue);
+
+            if (row >= 0) {
+                foundMembers.add(toMap(row));
+            }
+        } else {
+            for (int row = liveRows.nextSetBit(0); row >= 0;
+                 row = liveRows.nextSetBit(row + 1)) {
+                if (fieldValue.equals(read(row, fieldKey))) {
+                    foundMembers.add(toMap(row));
+                }
+            }
+        }
+
+        if (foundMembers.isEmpty()) {
+            return null;
+        }
+
+        return foundMembers;
+    }
+
+    /**
+     * <p>Finds all members whose list field contains one element,
+     * using the list index of the field if one is declared.</p>
+     *
+     * @param fieldKey field key of the list field.
+     * @param element element contained by the selected members.
+     * @return a {@code List} of decoded members or null
+     * is no member was found.
+     */
+    @Override
+    public synchronized List<Map<String, String>> findContaining(final String fieldKey,
+                                                                 final String element) {
+        if ((fieldKey == null) || (element == null) || (schema.typeOf(fieldKey) == null)) {
+            return null;
+        }
+
+        final List<Map<String, String>> foundMembers = new ArrayList<>();
+
+        final var listIndex = listIndexes.get(fieldKey);
+        if (listIndex != null) {
+            final var holders = listIndex.getOrDefault(element, new BitSet());
+
+            for (int row = holders.nextSetBit(0); row >= 0; row = holders.nextSetBit(row + 1)) {
+                foundMembers.add(toMap(row));
+            }
+        } else {
+            for (int row = liveRows.nextSetBit(0); row >= 0;
+                 row = liveRows.nextSetBit(row + 1)) {
+                if ((schema.typeOf(fieldKey) == FieldType.TEXT_LIST)
+                        ? readList(row, fieldKey).contains(element)
+                        : ListCodec.decode(read(row, fieldKey)).contains(element)) {
+                    foundMembers.add(toMap(row));
+                }
+            }
+        }
+
+        if (foundMembers.isEmpty()) {
+            return null;
+        }
+
+        return foundMembers;
+    }
+
+    /**
+     * <p>Decodes all members from the collection.</p>
+     *
+     * @return a {@code List} of all decoded members or null if the
+     * collection is empty.
+     */
+    @Override
+    public synchronized List<Map<String, String>> getMembers() {
+        if (liveRows.isEmpty()) {
+            return null;
+        }
+
+        final List<Map<String, String>> members = new ArrayList<>();
+
+        for (int row = liveRows.nextSetBit(0); row >= 0; row = liveRows.nextSetBit(row + 1)) {
+            members.add(toMap(row));
+        }
+
+        return members;
+    }
+
+    /**
+     * <p>Fetches the version of the first member that matches
+     * the input (key, value).</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @return the version of the member or -1 if member does not exist.
+     */
+    @Override
+    public synchronized long versionOf(final String fieldKey, final String fieldValue) {
+        final int row = rowOf(fieldKey, fieldValue);
+
+        if (row < 0) {
+            return -1;
+        }
+
+        return recordSegment(row).getLong(recordPosition(row) + VERSION_OFFSET);
+    }
+
+    /**
+     * <p>Rewrites the record of a member that matches the
+     * input (key, value) pair.</p>
+     *
+     * @param fieldKey field key of the member.
+     * @param fieldValue field value of the member.
+     * @param newFields new field data for the selected member.
+     * @return true if the member was modified and false if the
+     * member was not found, a field of the schema is missing or
+     * malformed, or the new data breaks one of the unique indexes.
+     */
+    @Override
+    public synchronized boolean modifyMember(final String fieldKey, final String fieldValue,
+                                             final Map<String, String> newFields) {
+        final int row = rowOf(fieldKey, fieldValue);
+
+        if ((row < 0) || !isValid(newFields) || violatesIndexes(newFields, row)) {
+            return false;
+        }
+
+        removeFromIndexes(row);
+        writeFields(row, newFields);
+        bumpVersion(row);
+        addToIndexes(row);
+        log.modifyMember(fieldKey, fieldValue, newFields);
+
+        return true;
+    }
+
+    /**
+     * <p>Rewrites the record of a member, just if the version of the
+     * member is still the expected one.</p>
+     *
+     * @param fieldKey field key of the member.
+     * @param fieldValue field value of the member.
+     * @param newFields new field data for the selected member.
+     * @param expectedVersion the version read before computing the new data.
+     * @return true if the member was modified or false if the version
+     * changed or the member could not be modified.
+     */
+    @Override
+    public synchronized boolean modifyMember(final String fieldKey, final String fieldValue,
+                                             final Map<String, String> newFields,
+                                             final long expectedVersion) {
+        return (versionOf(fieldKey, fieldValue) == expectedVersion)
+                && modifyMember(fieldKey, fieldValue, newFields);
+    }
+
+    /**
+     * <p>Changes one field in the record of the first member that
+     * matches the (key, value) pair, an integer field is changed in
+     * place while the other fields are rewritten in their region or
+     * moved to a larger one. Just the index of the field is updated.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param changeFieldKey field key that will be changed.
+     * @param changeFieldValue field value to change the selected field.
+     * @return true if the field of the member was modified or false
+     * if input data is null or malformed, the member or the field does
+     * not exist, or the new value breaks the unique index of the field.
+     */
+    @Override
+    public synchronized boolean modifyField(final String fieldKey, final String fieldValue,
+                                            final String changeFieldKey,
+                                            final String changeFieldValue) {
+        final var fieldType = schema.typeOf(changeFieldKey);
+
+        if ((fieldType == null) || (changeFieldValue == null)) {
+            return false;
+        }
+
+        final int row = rowOf(fieldKey, fieldValue);
+
+        if ((row < 0) || ((fieldType == FieldType.INT) && !isInt(changeFieldValue))) {
+            return false;
+        }
+
+        final var index = indexes.get(changeFieldKey);
+        if (index != null) {
+            final Integer holder = index.get(changeFieldValue);
+
+            if ((holder != null) && (holder != row)) {
+                return false;
+            }
+        }
+
+        final boolean isListIndexed = listIndexes.containsKey(changeFieldKey);
+
+        if (index != null) {
+            index.remove(read(row, changeFieldKey));
+        }
+
+        if (isListIndexed) {
+            for (var element : readList(row, changeFieldKey)) {
+                removeFromListIndex(row, changeFieldKey, element);
+            }
+        }
+
+        write(row, fields.indexOf(changeFieldKey), changeFieldValue);
+        bumpVersion(row);
+
+        if (index != null) {
+            index.put(read(row, changeFieldKey), row);
+        }
+
+        if (isListIndexed) {
+            addToListIndex(row, changeFieldKey, readList(row, changeFieldKey));
+        }
+
+        log.modifyField(fieldKey, fieldValue, changeFieldKey, changeFieldValue);
+
+        return true;
+    }
+
+    /**
+     * <p>Changes one field of a member, just if the version of the
+     * member is still the expected one.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param changeFieldKey field key that will be changed.
+     * @param changeFieldValue field value to change the selected field.
+     * @param expectedVersion the version read before computing the new value.
+     * @return true if the field was modified or false if the version
+     * changed or the field could not be modified.
+     */
+    @Override
+    public synchronized boolean modifyField(final String fieldKey, final String fieldValue,
+                                            final String changeFieldKey,
+                                            final String changeFieldValue,
+                                            final long expectedVersion) {
+        return (versionOf(fieldKey, fieldValue) == expectedVersion)
+                && modifyField(fieldKey, fieldValue, changeFieldKey, changeFieldValue);
+    }
+
+    /**
+     * <p>Appends one element to a list field of the first member that
+     * matches the (key, value) pair, the element is written as a new
+     * entry of the region of the list and just the element is added
+     * to the list index of the field.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param listField the list field receiving the element.
+     * @param element the element to append.
+     * @return true if the element was appended or false if the
+     * member does not exist or the field is not a list field.
+     */
+    @Override
+    public synchronized boolean appendToList(final String fieldKey, final String fieldValue,
+                                             final String listField, final String element) {
+        final int row = rowOf(fieldKey, fieldValue);
+
+        if ((row < 0) || (element == null) || !createListField(listField)) {
+            return false;
+        }
+
+        appendEntry(row, fields.indexOf(listField), element.getBytes(StandardCharsets.UTF_8));
+        bumpVersion(row);
+
+        if (listIndexes.containsKey(listField)) {
+            listIndexes.get(listField).computeIfAbsent(element, key -> new BitSet()).set(row);
+        }
+
+        log.appendToList(fieldKey, fieldValue, listField, element);
+
+        return true;
+    }
+
+    /**
+     * <p>Removes the first occurrence of one element from a list field
+     * of the first member that matches the (key, value) pair, the entry
+     * of the element is marked as dead and just the element is dropped
+     * from the list index of the field.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     * @param listField the list field holding the element.
+     * @param element the element to remove.
+     * @return true if the element was removed or false if the member
+     * does not exist, the field is not a list field or the list has
+     * no such element.
+     */
+    @Override
+    public synchronized boolean removeFromList(final String fieldKey, final String fieldValue,
+                                               final String listField, final String element) {
+        final int row = rowOf(fieldKey, fieldValue);
+
+        if ((row < 0) || !createListField(listField)) {
+            return false;
+        }
+
+        final int occurrences = (element == null) ? -1 : removeEntry(row,
+                fields.indexOf(listField), element.getBytes(StandardCharsets.UTF_8));
+
+        if (occurrences < 0) {
+            return false;
+        }
+
+        bumpVersion(row);
+
+        if (listIndexes.containsKey(listField) && (occurrences == 0)) {
+            removeFromListIndex(row, listField, element);
+        }
+
+        log.removeFromList(fieldKey, fieldValue, listField, element);
+
+        return true;
+    }
+
+    /**
+     * <p>Marks the record of a member as deleted and releases the
+     * regions of its fields, the record itself is never reused.</p>
+     *
+     * @param fieldKey field key of the selected member.
+     * @param fieldValue field value of the selected member.
+     */
+    @Override
+    public synchronized void delete(final String fieldKey, final String fieldValue) {
+        final int row = rowOf(fieldKey, fieldValue);
+
+        if (row < 0) {
+            return;
+        }
+
+        removeFromIndexes(row);
+        recordSegment(row).put(recordPosition(row) + LIVE_OFFSET, (byte) 0);
+        liveRows.clear(row);
+
+        for (int field = 0; field < fields.size(); ++field) {
+            if (schema.typeOf(fields.get(field)) != FieldType.INT) {
+                releaseRegion(row, field);
+            }
+        }
+        log.delete(fieldKey, fieldValue);
+    }
+
+    /**
+     * <p>Unmaps the segments and closes the files of the collection,
+     * the collection cannot be used anymore.</p>
+     *
+     * @throws IOException if one of the files could not be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        recordSegments.clear();
+        arenaSegments.clear();
+
+        try {
+            recordsChannel.close();
+        } finally {
+            arenaChannel.close();
+        }
+    }
+
+    private int rowOf(final String fieldKey, final String fieldValue) {
+        if ((fieldKey == null) || (fieldValue == null) || (schema.typeOf(fieldKey) == null)) {
+            return -1;
+        }
+
+        final var index = indexes.get(fieldKey);
+        if (index != null) {
+            final Integer row = index.get(fieldValue);
+
+            if (row == null) {
+                return -1;
+            }
+
+            return row;
+        }
+
+        for (int row = liveRows.nextSetBit(0); row >= 0; row = liveRows.nextSetBit(row + 1)) {
+            if (fieldValue.equals(read(row, fieldKey))) {
+                return row;
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean isValid(final Map<String, String> newFields) {
+        if (newFields == null) {
+            return false;
+        }
+
+        for (var field : fields) {
+            final String value = newFields.get(field);
+
+            if ((value == null) || ((schema.typeOf(field) == FieldType.INT) && !isInt(value))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isInt(final String value) {
+        try {
+            Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        return true;
+    }
+
+    private boolean violatesIndexes(final Map<String, String> newFields, final int owner) {
+        for (var index : indexes.entrySet()) {
+            final Integer holder = index.getValue().get(newFields.get(index.getKey()));
+
+            if ((holder != null) && (holder != owner)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void addToIndexes(final int row) {
+        indexes.forEach((fieldKey, index) -> index.put(read(row, fieldKey), row));
+        listIndexes.keySet().forEach(fieldKey -> addToListIndex(row, fieldKey,
+                readList(row, fieldKey)));
+    }
+
+    private void removeFromIndexes(final int row) {
+        indexes.forEach((fieldKey, index) -> index.remove(read(row, fieldKey)));
+        listIndexes.keySet().forEach(fieldKey -> {
+            for (var element : readList(row, fieldKey)) {
+                removeFromListIndex(row, fieldKey, element);
+            }
+        });
+    }
+
+    private void removeFromListIndex(final int row, final String fieldKey,
+                                     final String element) {
+        final var listIndex = listIndexes.get(fieldKey);
+        final var holders = listIndex.get(element);
+
+        if (holders != null) {
+            holders.clear(row);
+
+            if (holders.isEmpty()) {
+                listIndex.remove(element);
+            }
+        }
+    }
+
+    private void addToListIndex(final int row, final String fieldKey,
+                                final List<String> elements) {
+        final var listIndex = listIndexes.get(fieldKey);
+
+        for (var element : elements) {
+            listIndex.computeIfAbsent(element, key -> new BitSet()).set(row);
+        }
+    }
+
+    private void bumpVersion(final int row) {
+        final var segment = recordSegment(row);
+        final int position = recordPosition(row) + VERSION_OFFSET;
+
+        segment.putLong(position, segment.getLong(position) + 1);
+    }
+
+    private void writeFields(final int row, final Map<String, String> newFields) {
+        for (int field = 0; field < fields.size(); ++field) {
+            write(row, field, newFields.get(fields.get(field)));
+        }
+    }
+
+    private Map<String, String> toMap(final int row) {
+        final Map<String, String> member = new HashMap<>();
+
+        for (var field : fields) {
+            member.put(field, read(row, field));
+        }
+
+        return member;
+    }
+
+    /**
+     * <p>Writes one field in the record of a member, the value
+     * is already checked against the type of the field.</p>
+     */
+    private void write(final int row, final int field, final String value) {
+        final var fieldType = schema.typeOf(fields.get(field));
+
+        if (fieldType == FieldType.INT) {
+            recordSegment(row).putInt(slotPosition(row, field), Integer.parseInt(value));
+        } else if (fieldType == FieldType.TEXT_LIST) {
+            writeRegion(row, field, encodeEntries(ListCodec.decode(value)));
+        } else {
+            writeRegion(row, field, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private String read(final int row, final String fieldKey) {
+        final var fieldType = schema.typeOf(fieldKey);
+        final int field = fields.indexOf(fieldKey);
+
+        if (fieldType == FieldType.INT) {
+            return Integer.toString(recordSegment(row).getInt(slotPosition(row, field)));
+        }
+
+        if (fieldType == FieldType.TEXT_LIST) {
+            return ListCodec.encode(readList(row, fieldKey));
+        }
+
+        final var segment = recordSegment(row);
+        final int position = slotPosition(row, field);
+        final long offset = segment.getLong(position);
+        final byte[] bytes = new byte[segment.getInt(position + LENGTH_OFFSET)];
+
+        arenaSegment(offset).get(arenaPosition(offset), bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * <p>Decodes the live entries of the region of a list field.</p>
+     */
+    private List<String> readList(final int row, final String fieldKey) {
+        final var segment = recordSegment(row);
+        final int position = slotPosition(row, fields.indexOf(fieldKey));
+        final long offset = segment.getLong(position);
+        final int length = segment.getInt(position + LENGTH_OFFSET);
+        final List<String> elements = new ArrayList<>();
+
+        if (length == 0) {
+            return elements;
+        }
+
+        final var arena = arenaSegment(offset);
+        final int start = arenaPosition(offset);
+
+        for (int entry = start; entry < start + length;) {
+            final int entryLength = arena.getInt(entry);
+
+            if (entryLength >= 0) {
+                final byte[] bytes = new byte[entryLength];
+                arena.get(entry + ENTRY_HEADER_SIZE, bytes);
+                elements.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            entry += ENTRY_HEADER_SIZE + ((entryLength >= 0) ? entryLength : ~entryLength);
+        }
+
+        return elements;
+    }
+
+    private static byte[] encodeEntries(final List<String> elements) {
+        final List<byte[]> encoded = new ArrayList<>(elements.size());
+        int size = 0;
+
+        for (var element : elements) {
+            final byte[] bytes = element.getBytes(StandardCharsets.UTF_8);
+
+            encoded.add(bytes);
+            size += ENTRY_HEADER_SIZE + bytes.length;
+        }
+
+        final var entries = ByteBuffer.allocate(size);
+        for (var bytes : encoded) {
+            entries.putInt(bytes.length).put(bytes);
+        }
+
+        return entries.array();
+    }
+
+    /**
+     * <p>Writes the bytes of a field in its region, the region is
+     * replaced by a larger one if the bytes do not fit.</p>
+     */
+    private void writeRegion(final int row, final int field, final byte[] bytes) {
+        final var segment = recordSegment(row);
+        final int position = slotPosition(row, field);
+        long offset = segment.getLong(position);
+
+        if (bytes.length > segment.getInt(position + CAPACITY_OFFSET)) {
+            releaseRegion(row, field);
+
+            final int capacity = regionCapacity(bytes.length);
+            offset = allocateRegion(capacity);
+
+            segment.putLong(position, offset);
+            segment.putInt(position + CAPACITY_OFFSET, capacity);
+        }
+
+        arenaSegment(offset).put(arenaPosition(offset), bytes);
+        segment.putInt(position + LENGTH_OFFSET, bytes.length);
+    }
+
+    /**
+     * <p>Appends one entry at the end of the region of a list field,
+     * a full region is replaced by a region twice as large holding
+     * just the live entries.</p>
+     */
+    private void appendEntry(final int row, final int field, final byte[] element) {
+        final var segment = recordSegment(row);
+        final int position = slotPosition(row, field);
+        final long offset = segment.getLong(position);
+        final int length = segment.getInt(position + LENGTH_OFFSET);
+        final int entrySize = ENTRY_HEADER_SIZE + element.length;
+
+        if (length + entrySize <= segment.getInt(position + CAPACITY_OFFSET)) {
+            arenaSegment(offset).putInt(arenaPosition(offset) + length, element.length)
+                    .put(arenaPosition(offset) + length + ENTRY_HEADER_SIZE, element);
+            segment.putInt(position + LENGTH_OFFSET, length + entrySize);
+            return;
+        }
+
+        final var elements = readList(row, fields.get(field));
+        elements.add(new String(element, StandardCharsets.UTF_8));
+
+        writeRegion(row, field, encodeEntries(elements));
+    }
+
+    /**
+     * <p>Marks the first live entry of an element as dead.</p>
+     *
+     * @return the number of live entries of the element left in the
+     * list or -1 if the list has no such element.
+     */
+    private int removeEntry(final int row, final int field, final byte[] element) {
+        final var segment = recordSegment(row);
+        final int position = slotPosition(row, field);
+        final long offset = segment.getLong(position);
+        final int length = segment.getInt(position + LENGTH_OFFSET);
+
+        if (length == 0) {
+            return -1;
+        }
+
+        final var arena = arenaSegment(offset);
+        final int start = arenaPosition(offset);
+        final byte[] bytes = new byte[element.length];
+        boolean isRemoved = false;
+        int occurrences = 0;
+
+        for (int entry = start; entry < start + length;) {
+            final int entryLength = arena.getInt(entry);
+
+            if (entryLength == element.length) {
+                arena.get(entry + ENTRY_HEADER_SIZE, bytes);
+
+                if (Arrays.equals(bytes, element)) {
+                    if (isRemoved) {
+                        ++occurrences;
+                    } else {
+                        arena.putInt(entry, ~entryLength);
+                        isRemoved = true;
+                    }
+                }
+            }
+
+            entry += ENTRY_HEADER_SIZE + ((entryLength >= 0) ? entryLength : ~entryLength);
+        }
+
+        return isRemoved ? occurrences : -1;
+    }
+
+    /**
+     * <p>Gives the region of a field back to the free list
+     * of its capacity.</p>
+     */
+    private void releaseRegion(final int row, final int field) {
+        final var segment = recordSegment(row);
+        final int position = slotPosition(row, field);
+        final int capacity = segment.getInt(position + CAPACITY_OFFSET);
+
+        if (capacity > 0) {
+            freeRegions.computeIfAbsent(capacity, key -> new ArrayDeque<>())
+                    .push(segment.getLong(position));
+            segment.putInt(position + LENGTH_OFFSET, 0);
+            segment.putInt(position + CAPACITY_OFFSET, 0);
+        }
+    }
+
+    /**
+     * <p>Takes a free region of a capacity or carves a new one at the
+     * end of the arena, a region never crosses the end of a segment.</p>
+     *
+     * @param capacity the capacity of the region, a power of two.
+     * @return the offset of the region in the arena.
+     */
+    private long allocateRegion(final int capacity) {
+        final var free = freeRegions.get(capacity);
+
+        if ((free != null) && !free.isEmpty()) {
+            return free.pop();
+        }
+
+        if ((arenaTop % SEGMENT_SIZE) + capacity > SEGMENT_SIZE) {
+            arenaTop += SEGMENT_SIZE - (arenaTop % SEGMENT_SIZE);
+        }
+
+        final long offset = arenaTop;
+        arenaTop += capacity;
+
+        return offset;
+    }
+
+    /**
+     * <p>Computes the capacity of the region holding some bytes.</p>
+     *
+     * @throws IllegalArgumentException if the bytes are longer
+     * than a segment.
+     */
+    private static int regionCapacity(final int size) {
+        if (size > SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Field value is too long for the arena");
+        }
+
+        if (size <= MIN_REGION_SIZE) {
+            return MIN_REGION_SIZE;
+        }
+
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private int slotPosition(final int row, final int field) {
+        return recordPosition(row) + fieldOffsets[field];
+    }
+
+    private static int arenaPosition(final long offset) {
+        return (int) (offset % SEGMENT_SIZE);
+    }
+
+    private MappedByteBuffer recordSegment(final int row) {
+        return segment(recordsChannel, recordSegments, row / recordsPerSegment);
+    }
+
+    private int recordPosition(final int row) {
+        return (row % recordsPerSegment) * recordSize;
+    }
+
+    private MappedByteBuffer arenaSegment(final long offset) {
+        return segment(arenaChannel, arenaSegments, (int) (offset / SEGMENT_SIZE));
+    }
+
+    /**
+     * <p>Fetches one segment of a file, mapping the
+     * missing segments of the file.</p>
+     */
+    private static MappedByteBuffer segment(final FileChannel channel,
+                                            final List<MappedByteBuffer> segments,
+                                            final int index) {
+        try {
+            while (segments.size() <= index) {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE,
+                        (long) segments.size() * SEGMENT_SIZE, SEGMENT_SIZE));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return segments.get(index);
+    }
+}
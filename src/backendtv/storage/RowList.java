@@ -0,0 +1,146 @@
+package backendtv.storage;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.stream.IntStream;
+
+/**
+ * <p>Ordered list of distinct rows of a {@code ColumnCollection},
+ * the members of the list are identified by one of their text fields
+ * and are stored as their row ids.</p>
+ *
+ * <p>The row ids are kept in insertion order in a primitive array, while
+ * a bitmap of the same row ids answers the membership checks, so the key
+ * of a member is read from the collection just when the list is printed.</p>
+ *
+ * <p>The rows of the collection are never reused, so a deleted member
+ * is dropped from the list by itself, the list skips the rows that are
+ * not live anymore and forgets them when its array is full.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class RowList implements Iterable<String> {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final ColumnCollection collection;
+    private final String keyField;
+    private final BitSet members;
+    private int[] rows;
+    private int size;
+
+    /**
+     * <p>Creates an empty list of rows of a collection.</p>
+     *
+     * @param initCollection the collection holding the rows.
+     * @param initKeyField text field identifying the members.
+     */
+    public RowList(final ColumnCollection initCollection, final String initKeyField) {
+        collection = initCollection;
+        keyField = initKeyField;
+        members = new BitSet();
+        rows = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * <p>Appends a member at the end of the list.</p>
+     *
+     * @param key value of the key field of the member.
+     * @return true if the member was appended or false if the
+     * member does not exist or is already part of the list.
+     */
+    public boolean add(final String key) {
+        return addRow(collection.rowOf(keyField, key));
+    }
+
+    /**
+     * <p>Appends a row at the end of the list.</p>
+     *
+     * @param row the row id to append.
+     * @return true if the row was appended or false if the row
+     * is not live or is already part of the list.
+     */
+    public boolean addRow(final int row) {
+        if (!collection.isLive(row) || members.get(row)) {
+            return false;
+        }
+
+        if (size == rows.length) {
+            dropDeadRows();
+
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, rows.length * 2);
+            }
+        }
+
+        rows[size++] = row;
+        members.set(row);
+
+        return true;
+    }
+
+    /**
+     * <p>Checks if a member is part of the list.</p>
+     *
+     * @param key value of the key field of the member.
+     * @return true if the member exists and is part of the
+     * list or false otherwise.
+     */
+    public boolean contains(final String key) {
+        return containsRow(collection.rowOf(keyField, key));
+    }
+
+    /**
+     * <p>Checks if a row is part of the list.</p>
+     *
+     * @param row the row id to check.
+     * @return true if the row is live and is part of the
+     * list or false otherwise.
+     */
+    public boolean containsRow(final int row) {
+        return (row >= 0) && members.get(row) && collection.isLive(row);
+    }
+
+    /**
+     * <p>Removes all the members of the list.</p>
+     */
+    public void clear() {
+        members.clear();
+        size = 0;
+    }
+
+    /**
+     * <p>Fetches the live row ids of the list, in insertion order.</p>
+     *
+     * @return a stream of row ids.
+     */
+    public IntStream rows() {
+        return Arrays.stream(rows, 0, size).filter(collection::isLive);
+    }
+
+    /**
+     * <p>Iterates over the key values of the members, in insertion order.</p>
+     *
+     * @return an iterator of key values.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return rows().mapToObj(row -> collection.getText(row, keyField)).iterator();
+    }
+
+    private void dropDeadRows() {
+        int liveCount = 0;
+
+        for (int index = 0; index < size; ++index) {
+            if (collection.isLive(rows[index])) {
+                rows[liveCount++] = rows[index];
+            } else {
+                members.clear(rows[index]);
+            }
+        }
+
+        size = liveCount;
+    }
+}
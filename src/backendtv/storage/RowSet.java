@@ -0,0 +1,129 @@
+package backendtv.storage;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+/**
+ * <p>Read-only view over a set of rows of a {@code ColumnCollection},
+ * the members of the view are identified by one of their text fields.</p>
+ *
+ * <p>The view does not copy the rows, it reads the bitmap it was created
+ * with under the lock of the collection, so any change of the bitmap made
+ * by the collection is seen immediately by the view. The streams and the
+ * iterators of the view read a copy of the bitmap, taken when they are
+ * created.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class RowSet implements Iterable<String> {
+    private final ColumnCollection collection;
+    private final BitSet rows;
+    private final String keyField;
+
+    /**
+     * <p>Creates a view over some rows of a collection.</p>
+     *
+     * @param initCollection the collection holding the rows.
+     * @param initRows bitmap of the row ids of the view.
+     * @param initKeyField text field identifying the members.
+     */
+    public RowSet(final ColumnCollection initCollection, final BitSet initRows,
+                  final String initKeyField) {
+        collection = initCollection;
+        rows = initRows;
+        keyField = initKeyField;
+    }
+
+    /**
+     * <p>Checks if a member is part of the view.</p>
+     *
+     * @param key value of the key field of the member.
+     * @return true if the member exists and is part of the view
+     * or false otherwise.
+     */
+    public boolean contains(final String key) {
+        return containsRow(collection.rowOf(keyField, key));
+    }
+
+    /**
+     * <p>Checks if a row is part of the view.</p>
+     *
+     * @param row the row id to check.
+     * @return true if the row is part of the view or false otherwise.
+     */
+    public boolean containsRow(final int row) {
+        return (row >= 0) && collection.isSet(rows, row);
+    }
+
+    /**
+     * <p>Fetches the number of members of the view.</p>
+     *
+     * @return the number of rows of the view.
+     */
+    public int size() {
+        return collection.countOf(rows);
+    }
+
+    /**
+     * <p>Fetches the row ids of the view, in insertion order.</p>
+     *
+     * @return a stream of row ids.
+     */
+    public IntStream rows() {
+        return collection.copyOf(rows).stream();
+    }
+
+    /**
+     * <p>Copies the row ids of the view, the copy
+     * can be modified freely.</p>
+     *
+     * @return a new bitmap of the row ids.
+     */
+    public BitSet copyRows() {
+        return collection.copyOf(rows);
+    }
+
+    /**
+     * <p>Creates an empty ordered list of rows of the same
+     * collection, identified by the same key field.</p>
+     *
+     * @return a new empty {@code RowList}.
+     */
+    public RowList newList() {
+        return new RowList(collection, keyField);
+    }
+
+    /**
+     * <p>Iterates over the key values of the members, in insertion order.</p>
+     *
+     * @return an iterator of key values.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        final BitSet iteratedRows = collection.copyOf(rows);
+
+        return new Iterator<>() {
+            private int nextRow = iteratedRows.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return nextRow >= 0;
+            }
+
+            @Override
+            public String next() {
+                if (nextRow < 0) {
+                    throw new NoSuchElementException();
+                }
+
+                final String key = collection.getText(nextRow, keyField);
+                nextRow = iteratedRows.nextSetBit(nextRow + 1);
+
+                return key;
+            }
+        };
+    }
+}
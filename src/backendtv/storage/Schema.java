@@ -0,0 +1,136 @@
+package backendtv.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Describes the typed layout of the members of a collection,
+ * every field has a name and a {@code FieldType}.</p>
+ *
+ * <p>Every field receives a slot, which is the position of the field
+ * between all the fields of the same type. The slot is used by the
+ * columnar collections to select the column that stores the field.</p>
+ *
+ * <p>The Class follows the Builder Pattern.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class Schema {
+    private final List<String> fields;
+    private final Map<String, FieldType> types;
+    private final Map<String, Integer> slots;
+    private final Map<FieldType, Integer> counts;
+
+    /**
+     * <p>The Class can be instanced just by the builder class.</p>
+     *
+     * @param builder valid builder to construct the schema.
+     */
+    private Schema(final SchemaBuilder builder) {
+        fields = Collections.unmodifiableList(new ArrayList<>(builder.fields));
+        types = new HashMap<>(builder.types);
+        slots = new HashMap<>();
+        counts = new EnumMap<>(FieldType.class);
+
+        for (var fieldType : FieldType.values()) {
+            counts.put(fieldType, 0);
+        }
+
+        for (var field : fields) {
+            final var fieldType = types.get(field);
+            final int slot = counts.get(fieldType);
+
+            slots.put(field, slot);
+            counts.put(fieldType, slot + 1);
+        }
+    }
+
+    /**
+     * <p>Static nested class that allows the Builder Pattern.</p>
+     */
+    public static final class SchemaBuilder {
+        private final List<String> fields;
+        private final Map<String, FieldType> types;
+
+        public SchemaBuilder() {
+            fields = new ArrayList<>();
+            types = new HashMap<>();
+        }
+
+        /**
+         * <p>Adds a new field to the schema, a field that was
+         * already added keeps its first type.</p>
+         *
+         * @param field the name of the field.
+         * @param fieldType the type of the field.
+         * @return builder instance.
+         */
+        public SchemaBuilder addField(final String field, final FieldType fieldType) {
+            if ((field != null) && (fieldType != null) && !types.containsKey(field)) {
+                fields.add(field);
+                types.put(field, fieldType);
+            }
+
+            return this;
+        }
+
+        /**
+         * <p>Creates the instance of a new Schema.</p>
+         *
+         * @return new created schema.
+         */
+        public Schema build() {
+            return new Schema(this);
+        }
+    }
+
+    /**
+     * <p>Fetches all the fields in the order they were declared.</p>
+     *
+     * @return a read-only {@code List} of field names.
+     */
+    public List<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * <p>Fetches the type of one field.</p>
+     *
+     * @param field the name of the field.
+     * @return the type of the field or null if the field is unknown.
+     */
+    public FieldType typeOf(final String field) {
+        return types.get(field);
+    }
+
+    /**
+     * <p>Fetches the slot of one field.</p>
+     *
+     * @param field the name of the field.
+     * @return the slot of the field or -1 if the field is unknown.
+     */
+    public int slotOf(final String field) {
+        final Integer slot = slots.get(field);
+
+        if (slot == null) {
+            return -1;
+        }
+
+        return slot;
+    }
+
+    /**
+     * <p>Fetches the number of fields of one type.</p>
+     *
+     * @param fieldType the type of the fields.
+     * @return the number of fields declared with the type.
+     */
+    public int countOf(final FieldType fieldType) {
+        return counts.get(fieldType);
+    }
+}
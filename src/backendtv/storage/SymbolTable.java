@@ -0,0 +1,105 @@
+package backendtv.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Dictionary of interned strings, every distinct string
+ * receives a dense integer id the first time it is seen.</p>
+ *
+ * <p>Ids are never reused, so they can be stored in primitive
+ * arrays and compared without touching the strings.</p>
+ *
+ * <p>The dictionary can be shared by many threads, the lookups take no
+ * lock while a new string is interned under the lock of the dictionary.
+ * A string is stored before its id is published, so every thread that
+ * reads an id can also resolve it.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class SymbolTable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ConcurrentMap<String, Integer> ids;
+    private volatile String[] symbols;
+    private int count;
+
+    /**
+     * <p>Creates an empty dictionary.</p>
+     */
+    public SymbolTable() {
+        ids = new ConcurrentHashMap<>();
+        symbols = new String[INITIAL_CAPACITY];
+        count = 0;
+    }
+
+    /**
+     * <p>Fetches the id of a string, assigning a new one
+     * if the string was never seen before.</p>
+     *
+     * @param symbol string to intern.
+     * @return the id of the string.
+     */
+    public int intern(final String symbol) {
+        final Integer id = ids.get(symbol);
+
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            final Integer internedId = ids.get(symbol);
+
+            if (internedId != null) {
+                return internedId;
+            }
+
+            if (count == symbols.length) {
+                symbols = Arrays.copyOf(symbols, count * 2);
+            }
+
+            symbols[count] = symbol;
+            ids.put(symbol, count);
+
+            return count++;
+        }
+    }
+
+    /**
+     * <p>Fetches the id of a string without interning it.</p>
+     *
+     * @param symbol string to look for.
+     * @return the id of the string or -1 if the string
+     * was never interned.
+     */
+    public int idOf(final String symbol) {
+        final Integer id = ids.get(symbol);
+
+        if (id == null) {
+            return -1;
+        }
+
+        return id;
+    }
+
+    /**
+     * <p>Resolves an id back to its string.</p>
+     *
+     * @param id id of the string.
+     * @return the interned string.
+     */
+    public String symbol(final int id) {
+        return symbols[id];
+    }
+
+    /**
+     * <p>Fetches the number of interned strings.</p>
+     *
+     * @return the number of distinct strings.
+     */
+    public synchronized int size() {
+        return count;
+    }
+}
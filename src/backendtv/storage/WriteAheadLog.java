@@ -0,0 +1,509 @@
+package backendtv.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * <p>Append-only log of the writes made in the collections of
+ * the {@code Database}, used to rebuild the collections after
+ * a restart or a crash.</p>
+ *
+ * <p>Every write is encoded as a record holding its operation, the name
+ * of the collection and the arguments of the operation. The writers just
+ * append the record to an in-memory batch, while a committer thread
+ * writes the batch through a {@code FileChannel} and forces it to the
+ * disk. The records appended while one batch is forced are committed by
+ * the next force, so the cost of one force is shared by all the writes
+ * of a batch (group commit).</p>
+ *
+ * <p>The commits are asynchronous, a write returns before its record is
+ * forced to the disk, so the writes that were not forced yet are lost if
+ * the process crashes. A caller that needs its writes durable waits for
+ * them through {@code sync}, the server does it just when it closes.</p>
+ *
+ * <p>A record is framed by its length and its CRC32 checksum, the replay
+ * stops at the first record that is incomplete or damaged, which is the
+ * record that was being written when the process stopped, and cuts the
+ * log right before it.</p>
+ *
+ * <p>Every record has a position, the number of log bytes written up to
+ * its end since the log was created. The header of the file keeps the
+ * position the file starts at, so the positions keep growing when the
+ * log is emptied. A snapshot of the database records the position of the
+ * log it covers, the replay skips the records at or below it, so a crash
+ * between the snapshot and the emptying of the log never applies the
+ * same write twice.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class WriteAheadLog implements Closeable {
+    private static final byte INSERT = 1;
+    private static final byte MODIFY_MEMBER = 2;
+    private static final byte MODIFY_FIELD = 3;
+    private static final byte DELETE = 4;
+    private static final byte APPEND_TO_LIST = 5;
+    private static final byte REMOVE_FROM_LIST = 6;
+    private static final int FRAME_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int HEADER_SIZE = Long.BYTES;
+    private static final int MAX_PENDING_BYTES = 1 << 22;
+
+    private final FileChannel channel;
+    private final Thread committer;
+    private ByteArrayOutputStream pending;
+    private ByteArrayOutputStream committing;
+    private final ByteArrayOutputStream recordBytes;
+    private final DataOutputStream record;
+    private final ByteBuffer frame;
+    private final CRC32 checksum;
+    private long appendedRecords;
+    private long durableRecords;
+    private long startPosition;
+    private long endPosition;
+    private boolean isClosed;
+    private IOException failure;
+
+    private WriteAheadLog(final FileChannel initChannel) {
+        channel = initChannel;
+        pending = new ByteArrayOutputStream();
+        committing = new ByteArrayOutputStream();
+        recordBytes = new ByteArrayOutputStream();
+        record = new DataOutputStream(recordBytes);
+        frame = ByteBuffer.allocate(FRAME_SIZE);
+        checksum = new CRC32();
+        appendedRecords = 0;
+        durableRecords = 0;
+        startPosition = 0;
+        endPosition = 0;
+        isClosed = false;
+        failure = null;
+
+        committer = new Thread(this::commitBatches, "wal-committer");
+        committer.setDaemon(true);
+    }
+
+    /**
+     * <p>Opens the log file, creating it if it does not exist,
+     * and starts the committer thread.</p>
+     *
+     * @param file the path of the log file.
+     * @return the opened log.
+     * @throws IOException if the file cannot be opened.
+     */
+    public static WriteAheadLog open(final Path file) throws IOException {
+        final var log = new WriteAheadLog(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE));
+
+        if (log.channel.size() < HEADER_SIZE) {
+            log.restart(0);
+        } else {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+            while (header.hasRemaining()) {
+                log.channel.read(header, header.position());
+            }
+
+            log.startPosition = header.flip().getLong();
+            log.endPosition = log.startPosition + log.channel.size() - HEADER_SIZE;
+        }
+
+        log.channel.position(log.channel.size());
+        log.committer.start();
+
+        return log;
+    }
+
+    /**
+     * <p>Applies the records of the log past a position to the
+     * collections of a database, the collections must be created before
+     * the replay and must not be attached to the log yet.</p>
+     *
+     * <p>The records at or below the position are already saved by a
+     * snapshot and are skipped. If the snapshot covers the whole log,
+     * the log is emptied and starts at the position of the snapshot.</p>
+     *
+     * @param database the database receiving the writes.
+     * @param snapshotPosition the position of the log saved by the
+     *                         loaded snapshot, 0 if no snapshot was loaded.
+     * @return the number of replayed records.
+     * @throws IOException if the log cannot be read or names
+     * an unknown collection.
+     */
+    public synchronized long replay(final Database database, final long snapshotPosition)
+            throws IOException {
+        final long fileSize = channel.size();
+        long validSize = HEADER_SIZE;
+        long replayedRecords = 0;
+
+        channel.position(HEADER_SIZE);
+        final var input = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel)));
+
+        try {
+            while (true) {
+                final int length = input.readInt();
+                final long expectedChecksum = input.readLong();
+
+                if ((length < 0) || (validSize + FRAME_SIZE + length > fileSize)) {
+                    break;
+                }
+
+                final byte[] payload = input.readNBytes(length);
+
+                checksum.reset();
+                checksum.update(payload);
+
+                if ((payload.length != length) || (checksum.getValue() != expectedChecksum)) {
+                    break;
+                }
+
+                validSize += FRAME_SIZE + length;
+
+                if (startPosition + validSize - HEADER_SIZE > snapshotPosition) {
+                    apply(database, new DataInputStream(new ByteArrayInputStream(payload)));
+                    ++replayedRecords;
+                }
+            }
+        } catch (EOFException e) {
+            // The last record was not completely written
+        }
+
+        channel.truncate(validSize);
+        channel.position(validSize);
+        endPosition = startPosition + validSize - HEADER_SIZE;
+
+        if (endPosition <= snapshotPosition) {
+            restart(snapshotPosition);
+        }
+
+        return replayedRecords;
+    }
+
+    /**
+     * <p>Fetches the position of the end of the records appended so
+     * far, that is saved by a snapshot of the database.</p>
+     *
+     * @return the position of the last appended record.
+     */
+    public synchronized long position() {
+        return endPosition;
+    }
+
+    /**
+     * <p>Fetches a view of the log for the writes of one collection.</p>
+     *
+     * @param collectionName the name of the collection.
+     * @return the log of the collection.
+     */
+    public CollectionLog forCollection(final String collectionName) {
+        return new CollectionLog(this, collectionName);
+    }
+
+    /**
+     * <p>Waits until all the records appended so far are forced
+     * to the disk.</p>
+     *
+     * @throws UncheckedIOException if the log could not be written.
+     */
+    public synchronized void sync() {
+        final long target = appendedRecords;
+
+        while ((durableRecords < target) && (failure == null)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    /**
+     * <p>Drops all the records of the log, once their writes are
+     * saved by a snapshot of the database, the log keeps counting
+     * the positions from the end of the dropped records.</p>
+     *
+     * @throws IOException if the log cannot be cut.
+     */
+    public synchronized void reset() throws IOException {
+        sync();
+        restart(endPosition);
+    }
+
+    /**
+     * <p>Commits the pending records, stops the committer
+     * thread and closes the log file.</p>
+     *
+     * @throws IOException if the log could not be written or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            isClosed = true;
+            notifyAll();
+        }
+
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        channel.close();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * <p>Empties the log file and writes the position it starts at.</p>
+     *
+     * <p>The records are cut before the header is changed, so a crash
+     * in between leaves an empty log with its old start, which is moved
+     * by the next replay to the position of the snapshot.</p>
+     *
+     * @param newStartPosition the position the log starts at.
+     * @throws IOException if the log cannot be cut.
+     */
+    private void restart(final long newStartPosition) throws IOException {
+        channel.truncate(HEADER_SIZE);
+        channel.force(true);
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(newStartPosition).flip();
+
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+
+        channel.force(true);
+        channel.position(HEADER_SIZE);
+
+        startPosition = newStartPosition;
+        endPosition = newStartPosition;
+    }
+
+    void appendInsert(final String collectionName, final Map<String, String> fields) {
+        append(INSERT, collectionName, null, null, fields, null, null);
+    }
+
+    void appendModifyMember(final String collectionName, final String fieldKey,
+                            final String fieldValue, final Map<String, String> fields) {
+        append(MODIFY_MEMBER, collectionName, fieldKey, fieldValue, fields, null, null);
+    }
+
+    void appendModifyField(final String collectionName, final String fieldKey,
+                           final String fieldValue, final String changeFieldKey,
+                           final String changeFieldValue) {
+        append(MODIFY_FIELD, collectionName, fieldKey, fieldValue, null,
+                changeFieldKey, changeFieldValue);
+    }
+
+    void appendAppendToList(final String collectionName, final String fieldKey,
+                            final String fieldValue, final String listField,
+                            final String element) {
+        append(APPEND_TO_LIST, collectionName, fieldKey, fieldValue, null, listField, element);
+    }
+
+    void appendRemoveFromList(final String collectionName, final String fieldKey,
+                              final String fieldValue, final String listField,
+                              final String element) {
+        append(REMOVE_FROM_LIST, collectionName, fieldKey, fieldValue, null,
+                listField, element);
+    }
+
+    void appendDelete(final String collectionName, final String fieldKey,
+                      final String fieldValue) {
+        append(DELETE, collectionName, fieldKey, fieldValue, null, null, null);
+    }
+
+    /**
+     * <p>Encodes one record in the pending batch and returns
+     * without waiting for the disk, the record is durable
+     * once the committer forces its batch.</p>
+     */
+    private synchronized void append(final byte operation, final String collectionName,
+                                     final String fieldKey, final String fieldValue,
+                                     final Map<String, String> fields,
+                                     final String changeFieldKey,
+                                     final String changeFieldValue) {
+        if (isClosed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+
+        while ((pending.size() > MAX_PENDING_BYTES) && (failure == null)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        try {
+            recordBytes.reset();
+            record.writeByte(operation);
+            writeString(collectionName);
+
+            if (fieldKey != null) {
+                writeString(fieldKey);
+                writeString(fieldValue);
+            }
+
+            if (fields != null) {
+                record.writeInt(fields.size());
+
+                for (var field : fields.entrySet()) {
+                    writeString(field.getKey());
+                    writeString(field.getValue());
+                }
+            }
+
+            if (changeFieldKey != null) {
+                writeString(changeFieldKey);
+                writeString(changeFieldValue);
+            }
+
+            final byte[] payload = recordBytes.toByteArray();
+
+            checksum.reset();
+            checksum.update(payload);
+
+            frame.clear();
+            frame.putInt(payload.length).putLong(checksum.getValue());
+            pending.write(frame.array());
+            pending.write(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        endPosition += FRAME_SIZE + recordBytes.size();
+        ++appendedRecords;
+        notifyAll();
+    }
+
+    private void writeString(final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        record.writeInt(bytes.length);
+        record.write(bytes);
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        return new String(input.readNBytes(input.readInt()), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> readFields(final DataInputStream input)
+            throws IOException {
+        final int size = input.readInt();
+        final Map<String, String> fields = new HashMap<>();
+
+        for (int field = 0; field < size; ++field) {
+            fields.put(readString(input), readString(input));
+        }
+
+        return fields;
+    }
+
+    /**
+     * <p>Decodes one record and applies it to its collection.</p>
+     */
+    private static void apply(final Database database, final DataInputStream input)
+            throws IOException {
+        final byte operation = input.readByte();
+        final String collectionName = readString(input);
+        final var collection = database.collection(collectionName);
+
+        if (collection == null) {
+            throw new IOException("Unknown collection " + collectionName + " in the log");
+        }
+
+        switch (operation) {
+            case INSERT -> collection.insert(readFields(input));
+            case MODIFY_MEMBER -> collection.modifyMember(readString(input), readString(input),
+                    readFields(input));
+            case MODIFY_FIELD -> collection.modifyField(readString(input), readString(input),
+                    readString(input), readString(input));
+            case APPEND_TO_LIST -> collection.appendToList(readString(input),
+                    readString(input), readString(input), readString(input));
+            case REMOVE_FROM_LIST -> collection.removeFromList(readString(input),
+                    readString(input), readString(input), readString(input));
+            case DELETE -> collection.delete(readString(input), readString(input));
+            default -> throw new IOException("Unknown operation " + operation + " in the log");
+        }
+    }
+
+    /**
+     * <p>Body of the committer thread, writes and forces the pending
+     * batch while the writers fill the next one.</p>
+     */
+    private void commitBatches() {
+        while (true) {
+            final long batchRecords;
+
+            synchronized (this) {
+                while ((pending.size() == 0) && !isClosed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+
+                if (pending.size() == 0) {
+                    return;
+                }
+
+                final var batch = pending;
+                pending = committing;
+                committing = batch;
+                batchRecords = appendedRecords;
+                notifyAll();
+            }
+
+            try {
+                final var buffer = ByteBuffer.wrap(committing.toByteArray());
+
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+
+                return;
+            }
+
+            synchronized (this) {
+                committing.reset();
+                durableRecords = batchRecords;
+                notifyAll();
+            }
+        }
+    }
+}
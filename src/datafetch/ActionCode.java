@@ -0,0 +1,86 @@
+package datafetch;
+
+/**
+ * <p>Operation code of one input action, decoded once from the
+ * type and the feature of the action when the action is read.</p>
+ *
+ * <p>The server dispatches the actions by the ordinal of their code,
+ * so the action strings are never compared again after parsing.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public enum ActionCode {
+    REGISTER,
+    LOGIN,
+    SEARCH,
+    FILTER,
+    BUY_TOKENS,
+    BUY_PREMIUM_ACCOUNT,
+    PURCHASE,
+    WATCH,
+    LIKE,
+    RATE,
+    SUBSCRIBE,
+    BACK,
+    CHANGE_PAGE,
+    ADD_MOVIE,
+    DELETE_MOVIE,
+    UNKNOWN_DATABASE,
+    UNKNOWN;
+
+    /**
+     * <p>Decodes the operation code of an action.</p>
+     *
+     * @param type the type of the action.
+     * @param feature the feature of the action, may be null.
+     * @return the code of the action or UNKNOWN if the
+     * flags are unknown.
+     */
+    public static ActionCode decode(final String type, final String feature) {
+        if (type == null) {
+            return UNKNOWN;
+        }
+
+        return switch (type.toLowerCase()) {
+            case "on page" -> decodeFeature(feature);
+            case "back" -> BACK;
+            case "database" -> decodeDatabaseFeature(feature);
+            case "change page" -> CHANGE_PAGE;
+            default -> UNKNOWN;
+        };
+    }
+
+    private static ActionCode decodeFeature(final String feature) {
+        if (feature == null) {
+            return UNKNOWN;
+        }
+
+        return switch (feature) {
+            case "register" -> REGISTER;
+            case "login" -> LOGIN;
+            case "search" -> SEARCH;
+            case "filter" -> FILTER;
+            case "buy tokens" -> BUY_TOKENS;
+            case "buy premium account" -> BUY_PREMIUM_ACCOUNT;
+            case "purchase" -> PURCHASE;
+            case "watch" -> WATCH;
+            case "like" -> LIKE;
+            case "rate" -> RATE;
+            case "subscribe" -> SUBSCRIBE;
+            default -> UNKNOWN;
+        };
+    }
+
+    private static ActionCode decodeDatabaseFeature(final String feature) {
+        if (feature == null) {
+            return UNKNOWN_DATABASE;
+        }
+
+        return switch (feature.toLowerCase()) {
+            case "add" -> ADD_MOVIE;
+            case "delete" -> DELETE_MOVIE;
+            default -> UNKNOWN_DATABASE;
+        };
+    }
+}
@@ -1,6 +1,9 @@
 package datafetch;
 
+import backendtv.pagestype.PageType;
+
 public final class ActionFetch {
+    private String session;
     private String type;
     private String page;
     private String movie;
@@ -13,9 +16,20 @@ public final class ActionFetch {
     private String deletedMovie;
     private int count;
     private int rate;
+    private ActionCode actionCode;
+    private PageType pageType;
 
     public ActionFetch() {
+        actionCode = ActionCode.UNKNOWN;
+        pageType = PageType.UNKNOWN;
+    }
+
+    public String getSession() {
+        return session;
+    }
 
+    public void setSession(final String newSession) {
+        session = newSession;
     }
 
     public String getType() {
@@ -24,6 +38,7 @@ public final class ActionFetch {
 
     public void setType(final String newType) {
         type = newType;
+        actionCode = ActionCode.decode(type, feature);
     }
 
     public String getPage() {
@@ -32,6 +47,7 @@ public final class ActionFetch {
 
     public void setPage(final String newPage) {
         page = newPage;
+        pageType = PageType.fromName(page);
     }
 
     public String getMovie() {
@@ -48,6 +64,7 @@ public final class ActionFetch {
 
     public void setFeature(final String newFeature) {
         feature = newFeature;
+        actionCode = ActionCode.decode(type, feature);
     }
 
     public String getSubscribedGenre() {
@@ -113,4 +130,45 @@ public final class ActionFetch {
     public void setRate(final int newRate) {
         rate = newRate;
     }
+
+    /**
+     * <p>Fetches the operation code decoded from
+     * the type and the feature of the action.</p>
+     *
+     * @return the code of the action.
+     */
+    public ActionCode getActionCode() {
+        return actionCode;
+    }
+
+    /**
+     * <p>Fetches the page decoded from the page name of the action.</p>
+     *
+     * @return the type of the page or UNKNOWN if the name is unknown.
+     */
+    public PageType getPageType() {
+        return pageType;
+    }
+
+    /**
+     * <p>Resets all the fields, so the object can be
+     * reused to read another action.</p>
+     */
+    public void clear() {
+        session = null;
+        type = null;
+        page = null;
+        movie = null;
+        feature = null;
+        subscribedGenre = null;
+        credentials = null;
+        startsWith = null;
+        filters = null;
+        addedMovie = null;
+        deletedMovie = null;
+        count = 0;
+        rate = 0;
+        actionCode = ActionCode.UNKNOWN;
+        pageType = PageType.UNKNOWN;
+    }
 }
@@ -0,0 +1,146 @@
+package datafetch;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>Bounded single producer, single consumer ring of reusable
+ * {@code ActionFetch} slots.</p>
+ *
+ * <p>The slots are allocated once, the producer claims a free slot,
+ * fills it and publishes it, while the consumer reads the published
+ * slots in order and releases every slot when it is done with it, so
+ * no object is allocated per action. The two sides communicate just
+ * through two volatile counters and wait by spinning and parking.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class ActionRing {
+    private static final int SPIN_LIMIT = 128;
+    private static final long PARK_NANOS = 1000L;
+
+    private final ActionFetch[] slots;
+    private final int mask;
+    private volatile long published;
+    private volatile long released;
+    private volatile boolean isClosed;
+
+    /**
+     * <p>Creates the ring and all its slots.</p>
+     *
+     * @param capacity the minimum number of slots, rounded up
+     *                 to a power of two.
+     */
+    public ActionRing(final int capacity) {
+        final int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+
+        slots = new ActionFetch[size];
+        for (int index = 0; index < size; ++index) {
+            slots[index] = new ActionFetch();
+        }
+
+        mask = size - 1;
+        published = 0;
+        released = 0;
+        isClosed = false;
+    }
+
+    /**
+     * <p>Fetches the number of slots of the ring.</p>
+     *
+     * @return the number of slots.
+     */
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * <p>Fetches one slot of the ring.</p>
+     *
+     * @param index the index of the slot.
+     * @return the slot object.
+     */
+    public ActionFetch slot(final int index) {
+        return slots[index];
+    }
+
+    /**
+     * <p>Claims the next free slot for the producer, waiting while
+     * the ring is full. The claimed slot is cleared.</p>
+     *
+     * @return the index of the claimed slot.
+     * @throws InterruptedException if the producer was interrupted.
+     */
+    public int claim() throws InterruptedException {
+        int spins = 0;
+
+        while (published - released == slots.length) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            idle(++spins);
+        }
+
+        final int index = (int) (published & mask);
+        slots[index].clear();
+
+        return index;
+    }
+
+    /**
+     * <p>Publishes the last claimed slot to the consumer.</p>
+     */
+    public void publish() {
+        published = published + 1;
+    }
+
+    /**
+     * <p>Marks that the producer will not publish any other slot.</p>
+     */
+    public void close() {
+        isClosed = true;
+    }
+
+    /**
+     * <p>Fetches the next published slot for the consumer, waiting
+     * while the ring is empty. The slot stays owned by the consumer
+     * until it is released.</p>
+     *
+     * @return the next published slot or null if the ring is closed
+     * and all the published slots were released.
+     */
+    public ActionFetch peek() {
+        int spins = 0;
+
+        while (released == published) {
+            if (isClosed) {
+                if (released == published) {
+                    return null;
+                }
+
+                break;
+            }
+
+            idle(++spins);
+        }
+
+        return slots[(int) (released & mask)];
+    }
+
+    /**
+     * <p>Releases the slot returned by the last peek,
+     * so the producer can reuse it.</p>
+     */
+    public void release() {
+        released = released + 1;
+    }
+
+    private static void idle(final int spins) {
+        if (spins < SPIN_LIMIT) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+}
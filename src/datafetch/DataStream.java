@@ -0,0 +1,268 @@
+package datafetch;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>Streaming reader of the input file, built on the token API
+ * of the Jackson parser.</p>
+ *
+ * <p>The users and the movies are loaded when the stream is opened,
+ * while the actions are read one at a time by a reader thread and handed
+ * to the consumer through a bounded {@code ActionRing}, so the first action
+ * can be executed while the rest of the file is still being parsed.</p>
+ *
+ * <p>Every action is read directly into a slot of the ring, the object
+ * returned by {@code next} is valid until the following call of
+ * {@code hasNext} or {@code next}, when its slot is given back to the
+ * reader.</p>
+ *
+ * <p>If the actions appear in the input before the users or the movies,
+ * they are kept in memory until the whole input is loaded.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class DataStream implements Iterator<ActionFetch>, Closeable {
+    private static final int RING_CAPACITY = 1024;
+
+    private final ObjectMapper mapper;
+    private final JsonParser parser;
+    private final DataFetch data;
+    private final ActionRing pendingActions;
+    private final ObjectReader[] slotReaders;
+    private Iterator<ActionFetch> bufferedActions;
+    private Thread reader;
+    private ActionFetch nextAction;
+    private boolean isSlotHeld;
+    private volatile IOException failure;
+
+    private DataStream(final ObjectMapper initMapper, final JsonParser initParser) {
+        mapper = initMapper;
+        parser = initParser;
+        data = new DataFetch();
+        pendingActions = new ActionRing(RING_CAPACITY);
+        slotReaders = new ObjectReader[pendingActions.capacity()];
+        bufferedActions = null;
+        reader = null;
+        nextAction = null;
+        isSlotHeld = false;
+        failure = null;
+
+        for (int index = 0; index < slotReaders.length; ++index) {
+            slotReaders[index] = mapper.readerForUpdating(pendingActions.slot(index));
+        }
+
+        data.setUsers(new ArrayList<>());
+        data.setMovies(new ArrayList<>());
+    }
+
+    /**
+     * <p>Opens the input file, loads the users and the movies and
+     * starts reading the actions in the background.</p>
+     *
+     * @param mapper mapper used to bind the members of the input.
+     * @param input the input file.
+     * @return the opened stream.
+     * @throws IOException if the file cannot be read or is malformed.
+     */
+    public static DataStream open(final ObjectMapper mapper, final File input) throws IOException {
+        final var stream = new DataStream(mapper, mapper.getFactory().createParser(input));
+
+        try {
+            stream.loadData();
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+
+        return stream;
+    }
+
+    /**
+     * <p>Fetches the users and the movies of the input, the
+     * actions are not part of the returned data.</p>
+     *
+     * @return data object holding the users and the movies.
+     */
+    public DataFetch getData() {
+        return data;
+    }
+
+    /**
+     * <p>Checks if one more action can be read, waiting for the
+     * reader thread if needed.</p>
+     *
+     * @return true if another action exists or false otherwise.
+     * @throws UncheckedIOException if the actions could not be read.
+     */
+    @Override
+    public boolean hasNext() {
+        if (nextAction != null) {
+            return true;
+        }
+
+        if (bufferedActions != null) {
+            nextAction = bufferedActions.hasNext() ? bufferedActions.next() : null;
+        } else {
+            if (isSlotHeld) {
+                pendingActions.release();
+                isSlotHeld = false;
+            }
+
+            nextAction = pendingActions.peek();
+            isSlotHeld = nextAction != null;
+        }
+
+        if ((nextAction == null) && (failure != null)) {
+            throw new UncheckedIOException(failure);
+        }
+
+        return nextAction != null;
+    }
+
+    /**
+     * <p>Fetches the next action of the input.</p>
+     *
+     * @return the next action.
+     * @throws NoSuchElementException if no action is left.
+     */
+    @Override
+    public ActionFetch next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final var action = nextAction;
+        nextAction = null;
+
+        return action;
+    }
+
+    /**
+     * <p>Stops the reader thread and closes the input file.</p>
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.interrupt();
+
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        parser.close();
+    }
+
+    /**
+     * <p>Reads the input until the start of the actions array, or until
+     * the end of the input if the actions come before the other data,
+     * and starts the reader thread.</p>
+     *
+     * @throws IOException if the input is malformed.
+     */
+    private void loadData() throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Input data is not a Json object");
+        }
+
+        ArrayList<ActionFetch> earlyActions = null;
+        boolean hasUsers = false;
+        boolean hasMovies = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final JsonToken valueToken = parser.nextToken();
+
+            if (field.equals("users")) {
+                data.setUsers(readArray(UserFetch.class, valueToken));
+                hasUsers = true;
+            } else if (field.equals("movies")) {
+                data.setMovies(readArray(MovieFetch.class, valueToken));
+                hasMovies = true;
+            } else if (field.equals("actions") && (valueToken == JsonToken.START_ARRAY)
+                    && hasUsers && hasMovies) {
+                reader = new Thread(this::readActions, "input-reader");
+                reader.setDaemon(true);
+                reader.start();
+
+                return;
+            } else if (field.equals("actions")) {
+                earlyActions = readArray(ActionFetch.class, valueToken);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (earlyActions == null) {
+            earlyActions = new ArrayList<>();
+        }
+
+        bufferedActions = earlyActions.iterator();
+    }
+
+    /**
+     * <p>Reads a whole array of the input, member by member.</p>
+     *
+     * @param memberType the class of the members.
+     * @param valueToken the first token of the array.
+     * @param <T> the type of the members.
+     * @return the members of the array, empty if the value is null.
+     * @throws IOException if the array is malformed.
+     */
+    private <T> ArrayList<T> readArray(final Class<T> memberType,
+                                       final JsonToken valueToken) throws IOException {
+        final ArrayList<T> members = new ArrayList<>();
+
+        if (valueToken == JsonToken.VALUE_NULL) {
+            return members;
+        }
+
+        if (valueToken != JsonToken.START_ARRAY) {
+            throw new IOException("Input field is not a Json array");
+        }
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            members.add(mapper.readValue(parser, memberType));
+        }
+
+        return members;
+    }
+
+    /**
+     * <p>Body of the reader thread, reads the actions one by one
+     * directly in the slots of the ring, waiting while the ring
+     * is full.</p>
+     */
+    private void readActions() {
+        try {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                final int index = pendingActions.claim();
+
+                slotReaders[index].readValue(parser);
+                pendingActions.publish();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pendingActions.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package projectutils;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * <p>Utility class for arrays of primitive integers.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class IntArrays {
+    private IntArrays() {
+        // Do not let anyone instantiate this class
+    }
+
+    /**
+     * <p>Sorts an array of integers with a custom comparator,
+     * without boxing the values.</p>
+     *
+     * <p>The sort is stable, equal values keep their relative order.</p>
+     *
+     * @param values the array to sort.
+     * @param comparator compares two values of the array, returns a negative
+     *                   number, zero or a positive number as the first value
+     *                   is less than, equal to or greater than the second.
+     */
+    public static void sort(final int[] values, final IntBinaryOperator comparator) {
+        if (values.length < 2) {
+            return;
+        }
+
+        mergeSort(values, values.clone(), 0, values.length, comparator);
+    }
+
+    /**
+     * <p>Sorts the range [from, to) of the values, using the
+     * buffer as a copy of the same range.</p>
+     */
+    private static void mergeSort(final int[] values, final int[] buffer,
+                                  final int from, final int to,
+                                  final IntBinaryOperator comparator) {
+        if (to - from < 2) {
+            return;
+        }
+
+        final int middle = (from + to) >>> 1;
+
+        mergeSort(buffer, values, from, middle, comparator);
+        mergeSort(buffer, values, middle, to, comparator);
+
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; ++i) {
+            if ((right >= to)
+                    || ((left < middle)
+                    && (comparator.applyAsInt(buffer[left], buffer[right]) <= 0))) {
+                values[i] = buffer[left++];
+            } else {
+                values[i] = buffer[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package projectutils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>Runs tasks on a pool of worker threads, keeping the tasks
+ * posted under the same key in order.</p>
+ *
+ * <p>Every task is posted in the mailbox of one key (a user, a session),
+ * the tasks of a mailbox are run one at a time and in the order they were
+ * posted, while the mailboxes of different keys are drained in parallel.
+ * The flush barrier waits until all the posted tasks were run, so the
+ * caller can read the data touched by the tasks without depending on
+ * the scheduling of the workers.</p>
+ *
+ * @since 3.0.0
+ * @author Mihai Negru
+ */
+public final class MailboxExecutor {
+    private final ExecutorService workers;
+    private final Map<String, Deque<Runnable>> mailboxes;
+    private final ThreadLocal<String> runningKey;
+    private int pendingTasks;
+    private RuntimeException failure;
+
+    /**
+     * <p>Creates the executor and its pool of daemon workers.</p>
+     *
+     * @param workersCount the number of worker threads.
+     * @param workersName the name of the worker threads.
+     */
+    public MailboxExecutor(final int workersCount, final String workersName) {
+        workers = Executors.newFixedThreadPool(workersCount, task -> {
+            final var worker = new Thread(task, workersName);
+            worker.setDaemon(true);
+
+            return worker;
+        });
+
+        mailboxes = new HashMap<>();
+        runningKey = new ThreadLocal<>();
+        pendingTasks = 0;
+        failure = null;
+    }
+
+    /**
+     * <p>Posts a task in the mailbox of one key and returns
+     * immediately.</p>
+     *
+     * @param key the key owning the mailbox.
+     * @param task the task to run for the key.
+     */
+    public synchronized void dispatch(final String key, final Runnable task) {
+        if ((key == null) || (task == null)) {
+            return;
+        }
+
+        ++pendingTasks;
+
+        final var mailbox = mailboxes.get(key);
+        if (mailbox != null) {
+            mailbox.addLast(task);
+            return;
+        }
+
+        final Deque<Runnable> newMailbox = new ArrayDeque<>();
+        newMailbox.addLast(task);
+        mailboxes.put(key, newMailbox);
+
+        workers.execute(() -> drain(key));
+    }
+
+    /**
+     * <p>Checks if the calling thread is running a task
+     * of the mailbox of one key.</p>
+     *
+     * @param key the key owning the mailbox.
+     * @return true if the calling thread drains the mailbox
+     * of the key or false otherwise.
+     */
+    public boolean isRunning(final String key) {
+        return (key != null) && key.equals(runningKey.get());
+    }
+
+    /**
+     * <p>Waits until all the posted tasks were run.</p>
+     *
+     * @throws IllegalStateException if one of the tasks failed.
+     */
+    public synchronized void flush() {
+        while (pendingTasks > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        if (failure != null) {
+            final var taskFailure = failure;
+            failure = null;
+
+            throw new IllegalStateException("Mailbox task failed", taskFailure);
+        }
+    }
+
+    /**
+     * <p>Runs the tasks of one mailbox until the mailbox is empty,
+     * the running task stays in the mailbox so the new tasks
+     * are queued behind it.</p>
+     *
+     * @param key the key owning the mailbox.
+     */
+    private void drain(final String key) {
+        boolean isDrained = false;
+
+        while (!isDrained) {
+            final Runnable task;
+            synchronized (this) {
+                task = mailboxes.get(key).peekFirst();
+            }
+
+            RuntimeException taskFailure = null;
+            runningKey.set(key);
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                taskFailure = e;
+            } finally {
+                runningKey.remove();
+            }
+
+            synchronized (this) {
+                if ((taskFailure != null) && (failure == null)) {
+                    failure = taskFailure;
+                }
+
+                final var mailbox = mailboxes.get(key);
+                mailbox.pollFirst();
+
+                if (mailbox.isEmpty()) {
+                    mailboxes.remove(key);
+                    isDrained = true;
+                }
+
+                if (--pendingTasks == 0) {
+                    notifyAll();
+                }
+            }
+        }
+    }
+}